@@ -0,0 +1,154 @@
+package com.NickSishchuck.StezhkaBot.benchmark;
+
+import com.NickSishchuck.StezhkaBot.component.UpdateDispatcher;
+import com.NickSishchuck.StezhkaBot.component.UpdateDispatcher.Lane;
+import com.NickSishchuck.StezhkaBot.config.ExecutorConfig;
+import com.NickSishchuck.StezhkaBot.service.DeadLetterLog;
+import com.NickSishchuck.StezhkaBot.service.OutboundScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one button tap, from receiving the callback to Telegram answering the AnswerCallbackQuery
+ * (tapToAnswer, the client's spinner stops) and the handler's edit (tapToRender), with every Bot API
+ * call taking apiLatencyMillis on a {@link StubTelegramClient}.
+ * The tap lands on a dispatcher shard that is still running another chat's handler, which makes one
+ * blocking send. How the answer is sent:
+ * <ul>
+ *   <li>blocking: a blocking round trip in the handler before it renders (the original code)</li>
+ *   <li>lane: queued on the chat's shard in the highest-priority lane, ahead of the handler</li>
+ *   <li>direct: submitted from the ingress thread, not through the dispatcher (current code)</li>
+ * </ul>
+ * Rate limits are lifted, so the numbers show ordering and round trips only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CallbackLatencyBenchmark {
+
+    @Param({"blocking", "lane", "direct"})
+    public String answer;
+
+    @Param({"50"})
+    public int apiLatencyMillis;
+
+    private ExecutorService outboundExecutor;
+    private OutboundScheduler scheduler;
+    private UpdateDispatcher dispatcher;
+    private long nextChatId = 1;
+    private CountDownLatch busyDone = new CountDownLatch(0);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        outboundExecutor = Executors.newFixedThreadPool(4);
+        scheduler = new OutboundScheduler(new ExecutorConfig(), outboundExecutor,
+                1_000_000, 1_000, 1_000, 1_000, 1, 500, 30_000, 10_000, new DeadLetterLog(10));
+        scheduler.setTelegramClient(StubTelegramClient.withLatency(apiLatencyMillis));
+        // One shard, so the tap always queues behind the busy handler
+        dispatcher = new UpdateDispatcher(new ExecutorConfig(), 1, 1, 256, 64);
+        dispatcher.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.drain(Duration.ofSeconds(10));
+        scheduler.shutdown();
+        outboundExecutor.shutdownNow();
+    }
+
+    /**
+     * Occupy the shard with another chat's handler that is waiting for its send
+     */
+    @Setup(Level.Invocation)
+    public void occupyShard() throws InterruptedException {
+        busyDone.await();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        long busyChat = nextChatId++;
+        dispatcher.dispatch(busyChat, Lane.FORM, 0, () -> {
+            started.countDown();
+            try {
+                scheduler.execute(busyChat, SendMessage.builder().chatId(busyChat).text("busy").build());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                done.countDown();
+            }
+        });
+        started.await();
+        busyDone = done;
+    }
+
+    @Benchmark
+    public Object tapToAnswer() throws Exception {
+        return tap()[0].get();
+    }
+
+    @Benchmark
+    public Object tapToRender() throws Exception {
+        return tap()[1].get();
+    }
+
+    /**
+     * @return futures of the answer and of the rendered screen
+     */
+    private CompletableFuture<?>[] tap() {
+        long chatId = nextChatId++;
+        AnswerCallbackQuery answerQuery = AnswerCallbackQuery.builder().callbackQueryId("q" + chatId).build();
+        CompletableFuture<Object> answered = new CompletableFuture<>();
+        CompletableFuture<Void> rendered = new CompletableFuture<>();
+
+        switch (answer) {
+            case "blocking" -> dispatcher.dispatch(chatId, Lane.FORM, 0, () -> {
+                try {
+                    answered.complete(scheduler.execute(answerQuery));
+                } catch (Exception e) {
+                    answered.completeExceptionally(e);
+                }
+                render(chatId, rendered);
+            });
+            case "lane" -> {
+                dispatcher.dispatch(chatId, Lane.ADMIN, 0,
+                        () -> scheduler.submit(answerQuery).whenComplete((result, error) -> answered.complete(result)));
+                dispatcher.dispatch(chatId, Lane.FORM, 0, () -> render(chatId, rendered));
+            }
+            case "direct" -> {
+                scheduler.submit(answerQuery).whenComplete((result, error) -> answered.complete(result));
+                dispatcher.dispatch(chatId, Lane.FORM, 0, () -> render(chatId, rendered));
+            }
+            default -> throw new IllegalArgumentException(answer);
+        }
+        return new CompletableFuture<?>[]{answered, rendered};
+    }
+
+    // The handler only queues its edit, like the menu handlers on the async sender
+    private void render(long chatId, CompletableFuture<Void> rendered) {
+        scheduler.trackChatSends(() -> scheduler.submit(chatId,
+                        EditMessageText.builder().chatId(chatId).messageId(1).text("screen").build()))
+                .whenComplete((ok, error) -> rendered.complete(null));
+    }
+}
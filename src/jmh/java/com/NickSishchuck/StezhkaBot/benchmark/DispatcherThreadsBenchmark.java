@@ -0,0 +1,94 @@
+package com.NickSishchuck.StezhkaBot.benchmark;
+
+import com.NickSishchuck.StezhkaBot.component.UpdateDispatcher;
+import com.NickSishchuck.StezhkaBot.config.ExecutorConfig;
+import com.NickSishchuck.StezhkaBot.utils.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Update throughput of the dispatcher on platform vs virtual shards, with every update making one
+ * blocking Bot API call to a stubbed {@link TelegramClient}
+ * ({@link StubTelegramClient}) that just sleeps for the network round trip.
+ * The virtual cases need a Java 21 JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class DispatcherThreadsBenchmark {
+
+    private static final int UPDATES = 2000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"50"})
+    public int apiLatencyMillis;
+
+    private UpdateDispatcher dispatcher;
+    private TelegramClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = threads.equals("virtual");
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("The virtual-thread case needs Java 21, running on " + Runtime.version());
+        }
+        ExecutorConfig executorConfig = new ExecutorConfig();
+        ReflectionTestUtils.setField(executorConfig, "virtualThreads", virtual);
+
+        // Defaults from application.properties
+        dispatcher = new UpdateDispatcher(executorConfig, 8, 1024, 256, 64);
+        dispatcher.start();
+        client = StubTelegramClient.withLatency(apiLatencyMillis);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.drain(Duration.ofSeconds(10));
+    }
+
+    /**
+     * A burst of updates from distinct chats, each answered with one sendMessage
+     */
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void burstFromDistinctChats() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(UPDATES);
+        for (int i = 0; i < UPDATES; i++) {
+            long chatId = 100_000 + i;
+            dispatcher.dispatch(chatId, () -> {
+                try {
+                    client.execute(SendMessage.builder().chatId(chatId).text("reply").build());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
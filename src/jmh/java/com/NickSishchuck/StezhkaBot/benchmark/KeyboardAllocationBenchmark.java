@@ -0,0 +1,76 @@
+package com.NickSishchuck.StezhkaBot.benchmark;
+
+import com.NickSishchuck.StezhkaBot.menu.MenuDefinition;
+import com.NickSishchuck.StezhkaBot.menu.MenuTree;
+import com.NickSishchuck.StezhkaBot.utils.KeyboardRegistry;
+import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the keyboard for one menu tap: building it from the screen definition on every tap,
+ * as the handlers did before, vs the frozen keyboard of the compiled menu tree.
+ * Run with -prof gc for the allocation rate per tap (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyboardAllocationBenchmark {
+
+    /** The largest screen (7 buttons in 4 rows) and a typical program screen (2 buttons) */
+    @Param({"directions_main", "program_nmt"})
+    public String screenId;
+
+    private MenuDefinition.Screen definition;
+    private MenuTree tree;
+
+    @Setup
+    public void setUp() throws IOException {
+        MenuDefinition menu;
+        try (InputStream in = new ClassPathResource("menus/programs.json").getInputStream()) {
+            menu = new ObjectMapper().readValue(in, MenuDefinition.class);
+        }
+        definition = menu.screens().stream()
+                .filter(screen -> screen.id().equals(screenId))
+                .findFirst()
+                .orElseThrow();
+        tree = MenuTree.compile("programs", menu, key -> key, new KeyboardRegistry());
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup builtPerTap() {
+        MenuBuilder builder = new MenuBuilder();
+        for (List<MenuDefinition.Button> row : definition.rows()) {
+            for (MenuDefinition.Button button : row) {
+                builder.addButton(button.label(), button.to() != null ? button.to() : button.callback());
+            }
+            builder.addRow();
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public InlineKeyboardMarkup frozen() {
+        return tree.resolve(screenId).keyboard();
+    }
+}
@@ -0,0 +1,98 @@
+package com.NickSishchuck.StezhkaBot.benchmark;
+
+import com.NickSishchuck.StezhkaBot.utils.SlidingWindowRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate-limit checks from 8 threads at once: the striped ring-buffer limiter vs the
+ * ConcurrentHashMap of per-user request lists the services kept before (with the list
+ * synchronized, which the old code was missing).
+ * The clock advances by one millisecond per call so requests keep entering and leaving the
+ * window, and both the admit and the refuse path are taken.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class RateLimiterContentionBenchmark {
+
+    private static final int LIMIT = 5;
+    private static final long WINDOW_MILLIS = 1_000;
+
+    /** 16 users shared by all threads (same stripes and rings) vs 10 000 users, mostly on different stripes */
+    @Param({"16", "10000"})
+    public int users;
+
+    private SlidingWindowRateLimiter limiter;
+    private ListRateLimiter lists;
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        limiter = new SlidingWindowRateLimiter(LIMIT, Duration.ofMillis(WINDOW_MILLIS));
+        lists = new ListRateLimiter();
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private long next;
+
+        long nextUser(int users) {
+            return (next++ * 0x9E3779B97F4A7C15L >>> 1) % users + 1;
+        }
+    }
+
+    @Benchmark
+    public boolean ringBuffers(Caller caller) {
+        return limiter.tryAcquire(caller.nextUser(users), clock.getAndIncrement() / 8);
+    }
+
+    @Benchmark
+    public boolean requestLists(Caller caller) {
+        return lists.tryAcquire(caller.nextUser(users), clock.getAndIncrement() / 8);
+    }
+
+    /**
+     * The previous per-service bookkeeping: boxed keys, one list of timestamps per user,
+     * pruned with removeIf on every check
+     */
+    static final class ListRateLimiter {
+        private final Map<Long, List<Long>> requests = new ConcurrentHashMap<>();
+
+        boolean tryAcquire(long userId, long nowMillis) {
+            List<Long> times = requests.computeIfAbsent(userId, k -> new ArrayList<>());
+            synchronized (times) {
+                long cutoff = nowMillis - WINDOW_MILLIS;
+                times.removeIf(time -> time <= cutoff);
+                if (times.size() >= LIMIT) {
+                    return false;
+                }
+                times.add(nowMillis);
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.NickSishchuck.StezhkaBot.benchmark;
+
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TelegramClient} that answers every Bot API call with null after a fixed network latency.
+ * execute sleeps on the calling thread, executeAsync completes its future from a timer.
+ */
+final class StubTelegramClient {
+
+    private StubTelegramClient() {
+    }
+
+    static TelegramClient withLatency(int latencyMillis) {
+        return (TelegramClient) Proxy.newProxyInstance(TelegramClient.class.getClassLoader(),
+                new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "execute" -> {
+                        Thread.sleep(latencyMillis);
+                        yield null;
+                    }
+                    case "executeAsync" -> CompletableFuture.supplyAsync(() -> null,
+                            CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS));
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubTelegramClient(" + latencyMillis + " ms)";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
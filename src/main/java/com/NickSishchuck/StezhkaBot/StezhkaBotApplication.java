@@ -2,8 +2,10 @@ package com.NickSishchuck.StezhkaBot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class StezhkaBotApplication {
     public static void main(String[] args) {
         SpringApplication.run(StezhkaBotApplication.class, args);
@@ -2,17 +2,32 @@ package com.NickSishchuck.StezhkaBot.component;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import com.NickSishchuck.StezhkaBot.scheduler.SessionExpiry;
+import com.NickSishchuck.StezhkaBot.service.OutboxRelay;
 import com.NickSishchuck.StezhkaBot.service.StezhkaBotService;
 import com.NickSishchuck.StezhkaBot.service.AdminNotificationService;
+import com.NickSishchuck.StezhkaBot.service.OutboundScheduler;
+import com.NickSishchuck.StezhkaBot.state.ConversationStateStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
 import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
+import org.telegram.telegrambots.meta.TelegramUrl;
+import org.telegram.telegrambots.meta.api.methods.updates.DeleteWebhook;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 
 @Component
 public class BotInitializer {
@@ -22,14 +37,39 @@ public class BotInitializer {
     private final String botToken;
     private final StezhkaBotService stezhkaBotService;
     private final AdminNotificationService notificationService;
+    private final OutboundScheduler outboundScheduler;
+    private final UpdateOffsetTracker offsetTracker;
+    private final UpdateDispatcher updateDispatcher;
+    private final OutboxRelay outboxRelay;
+    private final SessionExpiry sessionExpiry;
+    private final ConversationStateStore stateStore;
+    private final Duration shutdownTimeout;
+    // Present only with bot.ingress.mode=webhook
+    private final WebhookServer webhookServer;
+    private final String apiUrl;
     private TelegramBotsLongPollingApplication botsApplication;
     private TelegramClient telegramClient;
 
     @Autowired
-    public BotInitializer(String botToken, StezhkaBotService stezhkaBotService, AdminNotificationService notificationService) {
+    public BotInitializer(String botToken, StezhkaBotService stezhkaBotService, AdminNotificationService notificationService,
+                          OutboundScheduler outboundScheduler, UpdateOffsetTracker offsetTracker,
+                          UpdateDispatcher updateDispatcher, OutboxRelay outboxRelay,
+                          SessionExpiry sessionExpiry, ConversationStateStore stateStore,
+                          ObjectProvider<WebhookServer> webhookServer,
+                          @Value("${bot.telegram.api-url:}") String apiUrl,
+                          @Value("${bot.shutdown.timeout-ms:20000}") long shutdownTimeoutMs) {
         this.botToken = botToken;
         this.stezhkaBotService = stezhkaBotService;
         this.notificationService = notificationService;
+        this.outboundScheduler = outboundScheduler;
+        this.offsetTracker = offsetTracker;
+        this.updateDispatcher = updateDispatcher;
+        this.outboxRelay = outboxRelay;
+        this.sessionExpiry = sessionExpiry;
+        this.stateStore = stateStore;
+        this.shutdownTimeout = Duration.ofMillis(Math.max(0, shutdownTimeoutMs));
+        this.webhookServer = webhookServer.getIfAvailable();
+        this.apiUrl = apiUrl;
     }
 
     @PostConstruct
@@ -38,48 +78,154 @@ public class BotInitializer {
             logger.info("Initializing Telegram bot...");
 
             // Create Telegram client
-            telegramClient = new OkHttpTelegramClient(botToken);
+            telegramClient = new OkHttpTelegramClient(botToken, telegramUrl());
+
+            // Every outbound call goes through the rate-limited scheduler
+            outboundScheduler.setTelegramClient(telegramClient);
 
-            // Set the client in the bot service
-            stezhkaBotService.setTelegramClient(telegramClient);
-            notificationService.setTelegramClient(telegramClient);
+            if (webhookServer != null) {
+                webhookServer.start(telegramClient);
+            } else {
+                // getUpdates is refused while a webhook is set, e.g. after running in webhook mode
+                telegramClient.execute(DeleteWebhook.builder().build());
 
-            // Create and start the long polling application
-            botsApplication = new TelegramBotsLongPollingApplication();
-            botsApplication.registerBot(botToken, stezhkaBotService);
+                // Create and start the long polling application
+                botsApplication = new TelegramBotsLongPollingApplication();
+                botsApplication.registerBot(botToken, this::telegramUrl, this::nextGetUpdates, stezhkaBotService);
+            }
 
             logger.info("Telegram bot started successfully!");
             logger.info("Bot username: {}", stezhkaBotService.getBotUsername());
 
             notificationService.sendStartupNotification(stezhkaBotService.getBotUsername());
 
-        } catch (TelegramApiException e) {
+        } catch (TelegramApiException | IOException e) {
             logger.error("Failed to initialize Telegram bot", e);
             notificationService.sendErrorNotification("Bot Startup Failed", e.getMessage());
             throw new RuntimeException("Failed to initialize Telegram bot", e);
         }
     }
 
+    /**
+     * Hand over without losing work: stop taking updates, let the queued ones run, deliver what they
+     * sent, then persist state and the update offset before closing the Telegram client.
+     * The phases share bot.shutdown.timeout-ms; once it is used up the remaining phases only flush.
+     */
     @PreDestroy
     public void shutdown() {
         logger.info("Bot shutdown initialized...");
-        notificationService.sendShutdownNotification(stezhkaBotService.getBotUsername());
+        long started = System.nanoTime();
+        long deadline = started + shutdownTimeout.toNanos();
 
-        //Making sure the message is sent
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        phase("stop ingress", () -> {
+            if (webhookServer != null) {
+                webhookServer.stop();
+            }
+            if (botsApplication != null) {
+                botsApplication.unregisterBot(botToken);
+            }
+            return true;
+        });
 
-        if (botsApplication != null) {
-            try {
-                logger.info("Shutting down Telegram bot...");
+        CompletableFuture<Void> notice = notificationService.sendShutdownNotification(stezhkaBotService.getBotUsername());
+
+        phase("drain updates", () -> {
+            boolean drained = updateDispatcher.drain(remaining(deadline));
+            if (!drained) {
+                logger.warn("{} updates were not handled before the deadline", updateDispatcher.getQueuedCount());
+            }
+            return drained;
+        });
+
+        // Batch in progress first, so its sends are in the outbound queues before those drain
+        phase("stop outbox relay", () -> outboxRelay.stop(remaining(deadline)));
+
+        phase("drain outbound", () -> {
+            boolean drained = outboundScheduler.drain(remaining(deadline));
+            if (!drained) {
+                logger.warn("{} outbound messages were not sent before the deadline", outboundScheduler.getQueuedCount());
+            }
+            return drained && notice.isDone();
+        });
+
+        phase("flush conversation state", () -> {
+            sessionExpiry.shutdown();
+            stateStore.flush();
+            return true;
+        });
+
+        phase("flush update offset", () -> {
+            offsetTracker.flush();
+            return true;
+        });
+
+        phase("close Telegram client", () -> {
+            if (botsApplication != null) {
                 botsApplication.close();
-                logger.info("Telegram bot shutdown completed");
-            } catch (Exception e) {
-                logger.error("Error during bot shutdown", e);
             }
+            return true;
+        });
+
+        logger.info("Bot shutdown completed in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Run one shutdown step and log how long it took; a failing step does not stop the later ones
+     */
+    private void phase(String name, ShutdownStep step) {
+        long started = System.nanoTime();
+        try {
+            boolean complete = step.run();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            if (complete) {
+                logger.info("Shutdown: {} done in {} ms", name, millis);
+            } else {
+                logger.warn("Shutdown: {} incomplete after {} ms", name, millis);
+            }
+        } catch (Exception e) {
+            logger.error("Shutdown: {} failed after {} ms", name,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), e);
         }
     }
+
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+    }
+
+    @FunctionalInterface
+    private interface ShutdownStep {
+        /**
+         * @return false when the step gave up at the deadline
+         */
+        boolean run() throws Exception;
+    }
+
+    /**
+     * Bot API address: api.telegram.org unless bot.telegram.api-url points elsewhere
+     * (a local Bot API server, or tools/WebhookReplay.java fake-api for offline load tests)
+     */
+    private TelegramUrl telegramUrl() {
+        if (apiUrl.isBlank()) {
+            return TelegramUrl.DEFAULT_URL;
+        }
+        URI uri = URI.create(apiUrl);
+        boolean https = "https".equals(uri.getScheme());
+        return TelegramUrl.builder()
+                .schema(uri.getScheme())
+                .host(uri.getHost())
+                .port(uri.getPort() != -1 ? uri.getPort() : https ? 443 : 80)
+                .build();
+    }
+
+    /**
+     * Poll after the last update handled, by this run or (on the first poll) the previous one
+     */
+    private GetUpdates nextGetUpdates(Integer lastReceivedUpdate) {
+        long lastUpdateId = Math.max(lastReceivedUpdate, offsetTracker.getLastUpdateId());
+        return GetUpdates.builder()
+                .offset(Math.toIntExact(lastUpdateId + 1))
+                .limit(100)
+                .timeout(50)
+                .build();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,447 @@
+package com.NickSishchuck.StezhkaBot.component;
+
+import com.NickSishchuck.StezhkaBot.config.ExecutorConfig;
+import com.NickSishchuck.StezhkaBot.utils.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs update handling on a bounded pool of chat shards.
+ * Every chat is pinned to one shard, so updates from the same chat are handled in order
+ * while different chats are handled in parallel.
+ * With virtual threads enabled every shard runs on its own virtual thread, so the
+ * shard count can be raised to thousands without tying up carrier threads.
+ *
+ * Each shard keeps one FIFO queue per chat, so a chat's tasks always run in submission order,
+ * whatever their lane. Lanes (see {@link Lane}) only decide which chat goes next: the shard serves
+ * the chats whose most urgent pending task is in the highest lane first, round-robin among them,
+ * so a flood of menu taps from some chats cannot delay admins or form input of others.
+ * Callback answers do not go through the dispatcher at all (see StezhkaBotService).
+ */
+@Component
+public class UpdateDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpdateDispatcher.class);
+
+    /**
+     * Task priority, highest first
+     */
+    public enum Lane {
+        /** Anything from an admin chat */
+        ADMIN,
+        /** Form input: text for an open flow and the callbacks that drive forms and requests */
+        FORM,
+        /** Menu navigation; the only lane that sheds load instead of blocking the caller */
+        MENU
+    }
+
+    private static final Lane[] LANES = Lane.values();
+
+    private final boolean virtualThreads;
+    private final int poolSize;
+    private final int queueCapacity;
+    private final int menuCapacity;
+    private final Shard[] shards;
+    private final LongAdder[] dropped = newCounters();
+    private final LongAdder[] collapsed = newCounters();
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    @Autowired
+    public UpdateDispatcher(ExecutorConfig executorConfig,
+                            @Value("${bot.dispatcher.pool-size:8}") int platformPoolSize,
+                            @Value("${bot.dispatcher.virtual-pool-size:1024}") int virtualPoolSize,
+                            @Value("${bot.dispatcher.queue-capacity:256}") int queueCapacity,
+                            @Value("${bot.dispatcher.menu-capacity:64}") int menuCapacity) {
+        this.virtualThreads = executorConfig.useVirtualThreads();
+        int poolSize = virtualThreads ? virtualPoolSize : platformPoolSize;
+        if (poolSize < 1 || queueCapacity < 1 || menuCapacity < 1) {
+            throw new IllegalStateException(
+                    "Dispatcher pool size, bot.dispatcher.queue-capacity and bot.dispatcher.menu-capacity must be positive");
+        }
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+        this.menuCapacity = menuCapacity;
+        this.shards = new Shard[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (virtualThreads) {
+            workers = VirtualThreads.newThreadPerTaskExecutor("update-shard-");
+        } else {
+            AtomicInteger threadCounter = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(poolSize, runnable -> {
+                Thread thread = new Thread(runnable, "update-shard-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        running = true;
+        for (Shard shard : shards) {
+            workers.execute(shard::runLoop);
+        }
+
+        logger.info("Update dispatcher started with {} {} shards (lane capacity {}, menu lane {})",
+                poolSize, virtualThreads ? "virtual" : "platform", queueCapacity, menuCapacity);
+    }
+
+    /**
+     * Queue a task for the given chat in the FORM lane
+     */
+    public void dispatch(long chatId, Runnable task) {
+        dispatch(chatId, Lane.FORM, 0, task);
+    }
+
+    /**
+     * Queue a task for the given chat.
+     * In every lane but MENU this blocks the caller while the lane is full, which pushes back on
+     * the poller instead of dropping updates. A MENU task replaces the chat's last queued task when
+     * that is a MENU task with the same non-zero screen id (a tap that was not rendered yet would be
+     * overwritten anyway), and is dropped when the lane is full.
+     *
+     * @param screenId id of the message a menu task renders into, 0 when it sends a new one
+     * @return false when the task was dropped
+     */
+    public boolean dispatch(long chatId, Lane lane, int screenId, Runnable task) {
+        Shard shard = shardFor(chatId);
+        try {
+            return shard.offer(new Task(chatId, lane, screenId, task));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while queueing update for chat {}", chatId);
+            return false;
+        }
+    }
+
+    /**
+     * Current queue length of every shard, all lanes together (for monitoring)
+     */
+    public int[] getQueueLengths() {
+        int[] lengths = new int[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            lengths[i] = shards[i].size();
+        }
+        return lengths;
+    }
+
+    /**
+     * Tasks queued in the lane over all shards
+     */
+    public int getLaneDepth(Lane lane) {
+        int depth = 0;
+        for (Shard shard : shards) {
+            depth += shard.size(lane);
+        }
+        return depth;
+    }
+
+    /**
+     * Tasks shed from the lane since startup: dropped when full, or replaced by a newer tap
+     */
+    public long getLaneDropCount(Lane lane) {
+        return dropped[lane.ordinal()].sum() + collapsed[lane.ordinal()].sum();
+    }
+
+    /**
+     * Log per-shard queue metrics and per-lane depth and shedding periodically
+     */
+    @Scheduled(fixedDelayString = "${bot.dispatcher.metrics-interval-ms:60000}")
+    public void reportMetrics() {
+        StringBuilder report = new StringBuilder();
+        long processed = 0;
+
+        // Only shards that saw traffic are listed, there can be a thousand of them
+        for (Shard shard : shards) {
+            int depth = shard.size();
+            int highWater = shard.highWaterMark.getAndSet(depth);
+            processed += shard.processed.get();
+            if (depth > 0 || highWater > 0) {
+                report.append(String.format("%n  shard %d: depth=%d, max=%d, processed=%d",
+                        shard.index, depth, highWater, shard.processed.get()));
+            }
+        }
+
+        StringBuilder lanes = new StringBuilder();
+        boolean shed = false;
+        for (Lane lane : LANES) {
+            long droppedCount = dropped[lane.ordinal()].sum();
+            long collapsedCount = collapsed[lane.ordinal()].sum();
+            shed |= droppedCount + collapsedCount > 0;
+            lanes.append(String.format("%n  lane %s: depth=%d, dropped=%d, collapsed=%d",
+                    lane, getLaneDepth(lane), droppedCount, collapsedCount));
+        }
+
+        if (report.length() > 0 || shed) {
+            logger.info("Update dispatcher queues ({} processed in total):{}{}", processed, report, lanes);
+        } else {
+            logger.debug("Update dispatcher idle, {} updates processed in total", processed);
+        }
+    }
+
+    /**
+     * Let the shards run what is queued and stop. Call once ingress has stopped, tasks queued
+     * after the shards exit are not run.
+     *
+     * @return false when tasks were still queued or running at the deadline
+     */
+    public boolean drain(Duration timeout) {
+        running = false;
+        if (workers == null) {
+            return true;
+        }
+
+        workers.shutdown();
+        try {
+            return workers.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!drain(Duration.ofSeconds(5))) {
+            logger.warn("Update dispatcher did not drain in time, {} updates left", totalQueued());
+            workers.shutdownNow();
+        }
+    }
+
+    public int getQueuedCount() {
+        return totalQueued();
+    }
+
+    private Shard shardFor(long chatId) {
+        return shards[Math.floorMod(Long.hashCode(chatId), shards.length)];
+    }
+
+    private int totalQueued() {
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[LANES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * A queued task; the runnable of a queued MENU task is swapped under the shard lock when collapsed
+     */
+    private static final class Task {
+        private final long chatId;
+        private final Lane lane;
+        private final int screenId;
+        private Runnable runnable;
+
+        Task(long chatId, Lane lane, int screenId, Runnable runnable) {
+            this.chatId = chatId;
+            this.lane = lane;
+            this.screenId = screenId;
+            this.runnable = runnable;
+        }
+    }
+
+    /**
+     * One chat's pending tasks in submission order, guarded by the shard lock.
+     * While it has tasks the chat sits in the shard's ready queue of its highest pending lane.
+     */
+    private static final class ChatQueue {
+        private final long chatId;
+        private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+        private final int[] pending = new int[LANES.length];
+        private Lane readyLane;
+
+        ChatQueue(long chatId) {
+            this.chatId = chatId;
+        }
+
+        Lane highestLane() {
+            for (Lane lane : LANES) {
+                if (pending[lane.ordinal()] > 0) {
+                    return lane;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A single-consumer set of chat queues; its worker runs one task at a time, taking the next
+     * task of the first chat waiting in the highest lane
+     */
+    private class Shard {
+        private final int index;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final Map<Long, ChatQueue> chats = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<ChatQueue>[] ready = new ArrayDeque[LANES.length];
+        private final int[] laneSizes = new int[LANES.length];
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicInteger highWaterMark = new AtomicInteger();
+        private int size;
+
+        Shard(int index) {
+            this.index = index;
+            for (int i = 0; i < ready.length; i++) {
+                ready[i] = new ArrayDeque<>();
+            }
+        }
+
+        boolean offer(Task task) throws InterruptedException {
+            int lane = task.lane.ordinal();
+            lock.lock();
+            try {
+                if (task.lane == Lane.MENU) {
+                    if (task.screenId != 0 && replaceLast(task)) {
+                        collapsed[lane].increment();
+                        return true;
+                    }
+                    if (laneSizes[lane] >= menuCapacity) {
+                        dropped[lane].increment();
+                        return false;
+                    }
+                } else {
+                    while (laneSizes[lane] >= queueCapacity) {
+                        notFull.await();
+                    }
+                }
+
+                ChatQueue chat = chats.computeIfAbsent(task.chatId, ChatQueue::new);
+                chat.tasks.addLast(task);
+                chat.pending[lane]++;
+                laneSizes[lane]++;
+                size++;
+                // A more urgent task moves the whole chat up, its queue order stays as it is
+                if (chat.readyLane == null || task.lane.compareTo(chat.readyLane) < 0) {
+                    if (chat.readyLane != null) {
+                        ready[chat.readyLane.ordinal()].remove(chat);
+                    }
+                    chat.readyLane = task.lane;
+                    ready[lane].addLast(chat);
+                }
+                highWaterMark.accumulateAndGet(size, Math::max);
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Only the chat's newest task is replaced, so the tap cannot jump ahead of anything queued after the old one
+        private boolean replaceLast(Task task) {
+            ChatQueue chat = chats.get(task.chatId);
+            Task last = chat != null ? chat.tasks.peekLast() : null;
+            if (last != null && last.lane == Lane.MENU && last.screenId == task.screenId) {
+                last.runnable = task.runnable;
+                return true;
+            }
+            return false;
+        }
+
+        private Task take() throws InterruptedException {
+            lock.lock();
+            try {
+                if (size == 0 && !notEmpty.await(1, TimeUnit.SECONDS)) {
+                    return null;
+                }
+                for (ArrayDeque<ChatQueue> queue : ready) {
+                    ChatQueue chat = queue.pollFirst();
+                    if (chat == null) {
+                        continue;
+                    }
+                    Task task = chat.tasks.pollFirst();
+                    chat.pending[task.lane.ordinal()]--;
+                    laneSizes[task.lane.ordinal()]--;
+                    size--;
+                    // Back of the line, so chats in the same lane take turns
+                    chat.readyLane = chat.highestLane();
+                    if (chat.readyLane != null) {
+                        ready[chat.readyLane.ordinal()].addLast(chat);
+                    } else {
+                        chats.remove(chat.chatId);
+                    }
+                    notFull.signalAll();
+                    return task;
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size(Lane lane) {
+            lock.lock();
+            try {
+                return laneSizes[lane.ordinal()];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void runLoop() {
+            while (running || size() > 0) {
+                Task task;
+                try {
+                    task = take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                if (task == null) {
+                    continue;
+                }
+
+                try {
+                    task.runnable.run();
+                } catch (Exception e) {
+                    logger.error("Error processing update in shard {}", index, e);
+                } finally {
+                    processed.incrementAndGet();
+                }
+            }
+        }
+    }
+}
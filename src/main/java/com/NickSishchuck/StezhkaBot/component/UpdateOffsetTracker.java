@@ -0,0 +1,154 @@
+package com.NickSishchuck.StezhkaBot.component;
+
+import com.NickSishchuck.StezhkaBot.utils.UpdateDedupWindow;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops updates that were already handled and remembers how far we got.
+ * Every update id passes a dedup window before dispatch; the highest id is written to the
+ * update_offset table every flush interval and on shutdown. After a restart polling resumes
+ * after that id and anything at or below it is dropped, so redelivered updates are not handled twice.
+ * With a webhook Telegram keeps retrying updates we never acknowledged, which may be below the
+ * stored id, so there the id is only a polling hint and nothing is dropped because of it.
+ */
+@Component
+public class UpdateOffsetTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpdateOffsetTracker.class);
+
+    private static final String SELECT_SQL =
+            "SELECT last_update_id, updated_at FROM update_offset WHERE bot_key = ?";
+    private static final String UPSERT_SQL =
+            "INSERT INTO update_offset (bot_key, last_update_id, updated_at) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE last_update_id = GREATEST(last_update_id, VALUES(last_update_id)), " +
+                    "updated_at = VALUES(updated_at)";
+    // After a renumbering the new ids may be lower than the stored one
+    private static final String OVERWRITE_SQL =
+            "INSERT INTO update_offset (bot_key, last_update_id, updated_at) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE last_update_id = VALUES(last_update_id), updated_at = VALUES(updated_at)";
+
+    // Telegram keeps undelivered updates for a day and renumbers them after a week without any
+    private static final Duration MAX_OFFSET_AGE = Duration.ofHours(24);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String botKey;
+    private final UpdateDedupWindow window;
+    private final boolean polling;
+
+    private final AtomicLong persisted = new AtomicLong(-1);
+    private final AtomicLong lastSeenMillis = new AtomicLong(System.currentTimeMillis());
+    private final LongAdder duplicates = new LongAdder();
+    // Set when the window was reset, until the next flush overwrites the stored id; guarded by this
+    private boolean renumbered;
+
+    @Autowired
+    public UpdateOffsetTracker(JdbcTemplate jdbcTemplate, String botUsername,
+                               @Value("${bot.updates.dedup-window:4096}") int windowSize,
+                               @Value("${bot.ingress.mode:polling}") String ingressMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.botKey = botUsername;
+        this.window = new UpdateDedupWindow(windowSize);
+        this.polling = !"webhook".equalsIgnoreCase(ingressMode);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource("db/update_offset.sql"))
+                    .execute(jdbcTemplate.getDataSource());
+            List<Long> offsets = jdbcTemplate.query(SELECT_SQL, (rs, row) -> {
+                Instant updatedAt = rs.getTimestamp("updated_at").toInstant();
+                return Duration.between(updatedAt, Instant.now()).compareTo(MAX_OFFSET_AGE) < 0
+                        ? rs.getLong("last_update_id") : -1L;
+            }, botKey);
+            long offset = offsets.isEmpty() ? -1 : offsets.get(0);
+            if (offset >= 0) {
+                persisted.set(offset);
+                if (polling) {
+                    window.advanceFloor(offset);
+                }
+                logger.info("Resuming after update {}", offset);
+            }
+        } catch (DataAccessException e) {
+            // Without it we only lose protection against redelivery across the restart
+            logger.warn("Could not load the last update offset, starting without it: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return false when the update was already handled and must be skipped
+     */
+    public boolean accept(Integer updateId) {
+        if (updateId == null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSeenMillis.getAndSet(now) > MAX_OFFSET_AGE.toMillis()) {
+            // After a long quiet period ids may have been renumbered, so the stored id goes too
+            synchronized (this) {
+                window.reset();
+                persisted.set(-1);
+                renumbered = true;
+            }
+        }
+        if (window.markSeen(updateId)) {
+            return true;
+        }
+        duplicates.increment();
+        logger.debug("Skipping duplicate update {}", updateId);
+        return false;
+    }
+
+    /**
+     * Highest update id handled or persisted; polling continues after it.
+     * -1 after a quiet period long enough for ids to be renumbered, until the next update arrives.
+     */
+    public long getLastUpdateId() {
+        if (System.currentTimeMillis() - lastSeenMillis.get() > MAX_OFFSET_AGE.toMillis()) {
+            return -1;
+        }
+        return Math.max(window.getHighest(), persisted.get());
+    }
+
+    @Scheduled(fixedDelayString = "${bot.updates.offset-flush-ms:1000}")
+    public synchronized void flush() {
+        long highest = window.getHighest();
+        long skipped = duplicates.sumThenReset();
+        if (skipped > 0) {
+            logger.info("Skipped {} duplicate update(s)", skipped);
+        }
+        if (highest < 0 || (!renumbered && highest <= persisted.get())) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(renumbered ? OVERWRITE_SQL : UPSERT_SQL, botKey, highest, Timestamp.from(Instant.now()));
+            persisted.set(highest);
+            renumbered = false;
+        } catch (DataAccessException e) {
+            logger.warn("Failed to store update offset {}, retrying: {}", highest, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,212 @@
+package com.NickSishchuck.StezhkaBot.component;
+
+import com.NickSishchuck.StezhkaBot.service.StezhkaBotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Webhook ingress (bot.ingress.mode=webhook): Telegram POSTs each update to an embedded HTTP server.
+ * A request is checked against the secret token and answered 200 before the update is parsed and
+ * handed to the dispatcher, so Telegram never waits on bot logic. The server keeps no state, so
+ * several instances can share one webhook URL behind a load balancer (TLS is terminated in front).
+ */
+@Component
+@ConditionalOnProperty(name = "bot.ingress.mode", havingValue = "webhook")
+public class WebhookServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookServer.class);
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final StezhkaBotService updateConsumer;
+    private final ObjectMapper objectMapper;
+    private final String url;
+    private final int port;
+    private final String path;
+    private final byte[] secretToken;
+    private final boolean register;
+    private final int maxConnections;
+    private final int threads;
+    private final int maxBodyBytes;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Request counters since the last report
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+
+    @Autowired
+    public WebhookServer(StezhkaBotService updateConsumer, ObjectMapper objectMapper,
+                         @Value("${bot.webhook.url:}") String url,
+                         @Value("${bot.webhook.port:8443}") int port,
+                         @Value("${bot.webhook.path:/telegram}") String path,
+                         @Value("${bot.webhook.secret-token:}") String secretToken,
+                         @Value("${bot.webhook.register:true}") boolean register,
+                         @Value("${bot.webhook.max-connections:40}") int maxConnections,
+                         @Value("${bot.webhook.threads:4}") int threads,
+                         @Value("${bot.webhook.max-body-bytes:1048576}") int maxBodyBytes) {
+        if (secretToken.isBlank()) {
+            throw new IllegalStateException("bot.webhook.secret-token must be set in webhook mode");
+        }
+        if (register && url.isBlank()) {
+            throw new IllegalStateException("bot.webhook.url must be set when bot.webhook.register is true");
+        }
+        this.updateConsumer = updateConsumer;
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.port = port;
+        this.path = path;
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+        this.register = register;
+        this.maxConnections = maxConnections;
+        this.threads = Math.max(1, threads);
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Start serving and, unless another instance does it, point Telegram at this webhook
+     */
+    public void start(TelegramClient telegramClient) throws IOException, TelegramApiException {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "webhook-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Webhook server listening on port {} at {}", getPort(), path);
+
+        if (register) {
+            telegramClient.execute(SetWebhook.builder()
+                    .url(url)
+                    .secretToken(new String(secretToken, StandardCharsets.UTF_8))
+                    .maxConnections(maxConnections)
+                    .build());
+            logger.info("Webhook registered at {}", url);
+        }
+    }
+
+    /**
+     * Port the server is bound to; differs from bot.webhook.port only when that is 0 (any free port)
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting updates; requests already being read get up to a second to finish and
+     * up to two more to be handed to the dispatcher.
+     * The webhook stays registered, Telegram keeps the updates until an instance is back.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                    logger.warn("Webhook handlers still running after shutdown");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String token = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+            if (token == null || !MessageDigest.isEqual(secretToken, token.getBytes(StandardCharsets.UTF_8))) {
+                rejected.increment();
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                malformed.increment();
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            }
+            // Acknowledge first: Telegram only needs the 200, and a slow answer makes it retry
+            exchange.sendResponseHeaders(200, -1);
+        } finally {
+            exchange.close();
+        }
+
+        Update update;
+        try {
+            update = objectMapper.readValue(body, Update.class);
+        } catch (IOException e) {
+            // Retrying would not make it readable, so it is dropped (and was already acknowledged)
+            malformed.increment();
+            logger.warn("Dropping unreadable webhook update: {}", e.getMessage());
+            return;
+        }
+        accepted.increment();
+        updateConsumer.consume(List.of(update));
+    }
+
+    /**
+     * @return the body, or null when it is larger than max-body-bytes
+     */
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > maxBodyBytes) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Scheduled(fixedDelayString = "${bot.dispatcher.metrics-interval-ms:60000}",
+            initialDelayString = "${bot.dispatcher.metrics-interval-ms:60000}")
+    public void reportMetrics() {
+        long acceptedCount = accepted.sumThenReset();
+        long rejectedCount = rejected.sumThenReset();
+        long malformedCount = malformed.sumThenReset();
+        if (acceptedCount + rejectedCount + malformedCount > 0) {
+            logger.info("Webhook: {} updates accepted, {} rejected (bad secret), {} malformed",
+                    acceptedCount, rejectedCount, malformedCount);
+        }
+    }
+}
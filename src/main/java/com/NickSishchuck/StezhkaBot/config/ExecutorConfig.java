@@ -0,0 +1,52 @@
+package com.NickSishchuck.StezhkaBot.config;
+
+import com.NickSishchuck.StezhkaBot.utils.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${bot.outbound.pool-size:4}")
+    private int outboundPoolSize;
+
+    /**
+     * Executor for outbound Telegram calls that should not run on the caller's thread.
+     * With virtual threads every send gets its own virtual thread.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService outboundExecutor() {
+        if (useVirtualThreads()) {
+            logger.info("Outbound sends run on virtual threads");
+            return VirtualThreads.newThreadPerTaskExecutor("outbound-");
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(outboundPoolSize, runnable -> {
+            Thread thread = new Thread(runnable, "outbound-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean useVirtualThreads() {
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads, using platform threads",
+                    Runtime.version().feature());
+            return false;
+        }
+        return virtualThreads;
+    }
+}
@@ -0,0 +1,29 @@
+package com.NickSishchuck.StezhkaBot.config;
+
+import com.NickSishchuck.StezhkaBot.utils.SlidingWindowRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Per-flow limits on submitted requests
+ */
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    public SlidingWindowRateLimiter enrollmentRateLimiter(
+            @Value("${bot.rate-limit.enrollment.max-requests:5}") int maxRequests,
+            @Value("${bot.rate-limit.enrollment.window-minutes:30}") long windowMinutes) {
+        return new SlidingWindowRateLimiter(maxRequests, Duration.ofMinutes(windowMinutes));
+    }
+
+    @Bean
+    public SlidingWindowRateLimiter consultationRateLimiter(
+            @Value("${bot.rate-limit.consultation.max-requests:5}") int maxRequests,
+            @Value("${bot.rate-limit.consultation.window-minutes:30}") long windowMinutes) {
+        return new SlidingWindowRateLimiter(maxRequests, Duration.ofMinutes(windowMinutes));
+    }
+}
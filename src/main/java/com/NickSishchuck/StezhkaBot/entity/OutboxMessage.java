@@ -0,0 +1,138 @@
+package com.NickSishchuck.StezhkaBot.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A Telegram message written in the same transaction as the data it announces and delivered later by the relay.
+ * With a message id it is an edit of that message, otherwise a new message.
+ */
+@Entity
+@Table(name = "notification_outbox",
+        indexes = @Index(name = "idx_notification_outbox_pending", columnList = "status, next_attempt_at"))
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+
+    @Column(name = "message_id")
+    private Integer messageId;
+
+    @Column(name = "text", nullable = false, columnDefinition = "TEXT")
+    private String text;
+
+    @Column(name = "parse_mode", length = 20)
+    private String parseMode;
+
+    // InlineKeyboardMarkup as Telegram JSON
+    @Column(name = "reply_markup", columnDefinition = "TEXT")
+    private String replyMarkup;
+
+    // Set for admin notifications, so the sent copy can be linked to its request
+    @Column(name = "request_type", length = 20)
+    @Enumerated(EnumType.STRING)
+    private RequestAdminMessage.RequestType requestType;
+
+    @Column(name = "request_id")
+    private Long requestId;
+
+    @Column(name = "status", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Relay instance currently delivering the message, and until when it may
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    // Constructors
+    public OutboxMessage() {
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+        this.status = OutboxStatus.PENDING;
+    }
+
+    public OutboxMessage(Long chatId, Integer messageId, String text, String parseMode, String replyMarkup) {
+        this();
+        this.chatId = chatId;
+        this.messageId = messageId;
+        this.text = text;
+        this.parseMode = parseMode;
+        this.replyMarkup = replyMarkup;
+    }
+
+    // Enum for status
+    public enum OutboxStatus {
+        PENDING, SENT, FAILED
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+
+    public Integer getMessageId() { return messageId; }
+    public void setMessageId(Integer messageId) { this.messageId = messageId; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getParseMode() { return parseMode; }
+    public void setParseMode(String parseMode) { this.parseMode = parseMode; }
+
+    public String getReplyMarkup() { return replyMarkup; }
+    public void setReplyMarkup(String replyMarkup) { this.replyMarkup = replyMarkup; }
+
+    public RequestAdminMessage.RequestType getRequestType() { return requestType; }
+    public void setRequestType(RequestAdminMessage.RequestType requestType) { this.requestType = requestType; }
+
+    public Long getRequestId() { return requestId; }
+    public void setRequestId(Long requestId) { this.requestId = requestId; }
+
+    public OutboxStatus getStatus() { return status; }
+    public void setStatus(OutboxStatus status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public String getLeaseOwner() { return leaseOwner; }
+    public void setLeaseOwner(String leaseOwner) { this.leaseOwner = leaseOwner; }
+
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+}
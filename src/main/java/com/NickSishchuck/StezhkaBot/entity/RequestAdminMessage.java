@@ -0,0 +1,73 @@
+package com.NickSishchuck.StezhkaBot.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One admin's copy of a request notification: which chat got it under which message id
+ */
+@Entity
+@Table(name = "request_admin_message",
+        indexes = {
+                @Index(name = "idx_request_admin_message_chat_message", columnList = "chat_id, message_id"),
+                @Index(name = "idx_request_admin_message_request", columnList = "request_type, request_id")
+        })
+public class RequestAdminMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "request_type", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private RequestType requestType;
+
+    @Column(name = "request_id", nullable = false)
+    private Long requestId;
+
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+
+    @Column(name = "message_id", nullable = false)
+    private Integer messageId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public RequestAdminMessage() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public RequestAdminMessage(RequestType requestType, Long requestId, Long chatId, Integer messageId) {
+        this();
+        this.requestType = requestType;
+        this.requestId = requestId;
+        this.chatId = chatId;
+        this.messageId = messageId;
+    }
+
+    // Which table request_id points to
+    public enum RequestType {
+        ENROLLMENT, CONSULTATION
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public RequestType getRequestType() { return requestType; }
+    public void setRequestType(RequestType requestType) { this.requestType = requestType; }
+
+    public Long getRequestId() { return requestId; }
+    public void setRequestId(Long requestId) { this.requestId = requestId; }
+
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+
+    public Integer getMessageId() { return messageId; }
+    public void setMessageId(Integer messageId) { this.messageId = messageId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
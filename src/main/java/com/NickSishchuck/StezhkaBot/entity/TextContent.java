@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "text_content")
+@Table(name = "text_content", indexes = @Index(name = "idx_text_content_updated_at", columnList = "updated_at"))
 public class TextContent {
 
     @Id
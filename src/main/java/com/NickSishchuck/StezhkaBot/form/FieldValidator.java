@@ -0,0 +1,39 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import java.util.regex.Pattern;
+
+/**
+ * Check for one text field. Input is already trimmed.
+ */
+@FunctionalInterface
+public interface FieldValidator {
+
+    boolean isValid(String input);
+
+    static FieldValidator length(int min, int max) {
+        return input -> input.length() >= min && input.length() <= max;
+    }
+
+    static FieldValidator intRange(int min, int max) {
+        return input -> {
+            try {
+                int value = Integer.parseInt(input);
+                return value >= min && value <= max;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Whole-input match against a pattern compiled once, plus a minimum length
+     */
+    static FieldValidator pattern(String regex, int minLength) {
+        Pattern pattern = Pattern.compile(regex);
+        return input -> input.length() >= minLength && pattern.matcher(input).matches();
+    }
+
+    static FieldValidator phone() {
+        return pattern("^\\+?[0-9\\s\\-()]+$", 9);
+    }
+}
@@ -0,0 +1,132 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Declarative form: ordered fields, a confirmation summary and the confirm/cancel callbacks.
+ * Built once at startup; keyboards and the key index are prepared in build().
+ */
+public final class FormDefinition {
+
+    private final String id;
+    private final List<FormField> fields;
+    private final Map<String, Integer> indexByKey;
+    private final Function<FormValues, String> summary;
+    private final InlineKeyboardMarkup cancelKeyboard;
+    private final InlineKeyboardMarkup confirmKeyboard;
+
+    private FormDefinition(Builder builder) {
+        this.id = builder.id;
+        this.fields = List.copyOf(builder.fields);
+        this.summary = builder.summary;
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (index.put(fields.get(i).key(), i) != null) {
+                throw new IllegalStateException("Duplicate field " + fields.get(i).key() + " in form " + id);
+            }
+        }
+        this.indexByKey = Map.copyOf(index);
+
+        this.cancelKeyboard = new MenuBuilder()
+                .addButton("❌ Скасувати", builder.cancelCallback)
+                .buildFrozen();
+        this.confirmKeyboard = new MenuBuilder()
+                .addButton("✅ Підтвердити", builder.confirmCallback)
+                .addButton("❌ Скасувати", builder.cancelCallback)
+                .buildFrozen();
+    }
+
+    public static Builder builder(String id) {
+        return new Builder(id);
+    }
+
+    public String getId() { return id; }
+
+    public FormField getField(int index) { return fields.get(index); }
+
+    public int getFieldCount() { return fields.size(); }
+
+    public int indexOf(String key) {
+        Integer index = indexByKey.get(key);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown field " + key + " in form " + id);
+        }
+        return index;
+    }
+
+    public boolean isComplete(FormState state) {
+        return state.getStep() >= fields.size();
+    }
+
+    /**
+     * State saved by a different version of this form cannot be continued
+     */
+    boolean accepts(FormState state) {
+        return id.equals(state.getFormId()) && state.getFieldCount() == fields.size();
+    }
+
+    int nextEmptyField(FormState state) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (state.getValue(i) == null) {
+                return i;
+            }
+        }
+        return fields.size();
+    }
+
+    public String summarize(FormState state) {
+        return summary.apply(new FormValues(this, state));
+    }
+
+    public InlineKeyboardMarkup getCancelKeyboard() { return cancelKeyboard; }
+
+    public InlineKeyboardMarkup getConfirmKeyboard() { return confirmKeyboard; }
+
+    public static final class Builder {
+        private final String id;
+        private final List<FormField> fields = new ArrayList<>();
+        private Function<FormValues, String> summary;
+        private String confirmCallback;
+        private String cancelCallback;
+
+        private Builder(String id) {
+            this.id = id;
+        }
+
+        public Builder text(String key, String prompt, String error, FieldValidator validator) {
+            fields.add(FormField.text(key, prompt, error, validator));
+            return this;
+        }
+
+        public Builder choice(String key, String prompt, Map<String, String> options, InlineKeyboardMarkup keyboard) {
+            fields.add(FormField.choice(key, prompt, options, keyboard));
+            return this;
+        }
+
+        public Builder summary(Function<FormValues, String> summary) {
+            this.summary = summary;
+            return this;
+        }
+
+        public Builder callbacks(String confirmCallback, String cancelCallback) {
+            this.confirmCallback = confirmCallback;
+            this.cancelCallback = cancelCallback;
+            return this;
+        }
+
+        public FormDefinition build() {
+            if (fields.isEmpty() || summary == null || confirmCallback == null || cancelCallback == null) {
+                throw new IllegalStateException("Form " + id + " needs fields, a summary and callbacks");
+            }
+            return new FormDefinition(this);
+        }
+    }
+}
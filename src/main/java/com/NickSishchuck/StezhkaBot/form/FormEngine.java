@@ -0,0 +1,181 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import com.NickSishchuck.StezhkaBot.scheduler.SessionExpiry;
+import com.NickSishchuck.StezhkaBot.state.ActiveFlowIndex;
+import com.NickSishchuck.StezhkaBot.state.ConversationStateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs every registered form. A chat fills in at most one form at a time, so its state lives under
+ * one key and a text message needs a single lookup whichever form it belongs to.
+ * Persistence goes through the conversation-state store; forms expire after 30 minutes without input.
+ */
+@Service
+public class FormEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FormEngine.class);
+    public static final String FLOW_ID = "form";
+    private static final String STATE_NAMESPACE = "form";
+    private static final Duration SESSION_TIMEOUT = Duration.ofMinutes(30);
+
+    private final ConversationStateStore stateStore;
+    private final SessionExpiry sessionExpiry;
+    private final ActiveFlowIndex activeFlows;
+    private final Map<String, FormDefinition> definitions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FormEngine(ConversationStateStore stateStore, SessionExpiry sessionExpiry, ActiveFlowIndex activeFlows) {
+        this.stateStore = stateStore;
+        this.sessionExpiry = sessionExpiry;
+        this.activeFlows = activeFlows;
+
+        sessionExpiry.register(STATE_NAMESPACE, this::expire);
+    }
+
+    public void register(FormDefinition definition) {
+        if (definitions.putIfAbsent(definition.getId(), definition) != null) {
+            throw new IllegalStateException("Form already registered: " + definition.getId());
+        }
+    }
+
+    public FormDefinition getDefinition(String formId) {
+        FormDefinition definition = definitions.get(formId);
+        if (definition == null) {
+            throw new IllegalArgumentException("Unknown form: " + formId);
+        }
+        return definition;
+    }
+
+    /**
+     * Start the form, replacing any form the chat had open
+     *
+     * @param preset values known up front (e.g. a course picked from a program page)
+     */
+    public FormState start(String formId, long chatId, Map<String, String> preset) {
+        FormDefinition definition = getDefinition(formId);
+        FormState state = new FormState(formId, definition.getFieldCount());
+        preset.forEach((key, value) -> state.setValue(definition.indexOf(key), value));
+        state.setStep(definition.nextEmptyField(state));
+
+        save(chatId, state);
+        activeFlows.claim(chatId, FLOW_ID);
+        logger.info("Started {} form for user {}", formId, chatId);
+        return state;
+    }
+
+    /**
+     * The chat's open form of this type, or null
+     */
+    public FormState getState(String formId, long chatId) {
+        FormState state = stateStore.get(STATE_NAMESPACE, chatId, FormState.class);
+        return state != null && state.getFormId().equals(formId) && getDefinition(formId).accepts(state) ? state : null;
+    }
+
+    /**
+     * Fill a CHOICE field from a button
+     *
+     * @return the updated state, or null when the chat has no such form open
+     */
+    public FormState choose(String formId, long chatId, String key, String value) {
+        FormState state = getState(formId, chatId);
+        if (state == null) {
+            return null;
+        }
+        FormDefinition definition = getDefinition(formId);
+        state.setValue(definition.indexOf(key), value);
+        state.setStep(definition.nextEmptyField(state));
+        save(chatId, state);
+        return state;
+    }
+
+    /**
+     * Feed a text message to whatever form the chat has open
+     */
+    public InputResult submit(long chatId, String text) {
+        FormState state = stateStore.get(STATE_NAMESPACE, chatId, FormState.class);
+        if (state == null) {
+            return InputResult.NO_FORM;
+        }
+
+        FormDefinition definition = definitions.get(state.getFormId());
+        if (definition == null || !definition.accepts(state)) {
+            // Saved by a version of the bot that had a different form
+            remove(chatId);
+            return InputResult.NO_FORM;
+        }
+
+        if (definition.isComplete(state)) {
+            return new InputResult(InputStatus.AWAITING_CONFIRMATION, definition, state, null);
+        }
+
+        FormField field = definition.getField(state.getStep());
+        if (field.kind() == FormField.Kind.CHOICE) {
+            return new InputResult(InputStatus.AWAITING_CHOICE, definition, state, field);
+        }
+
+        String value = text.trim();
+        if (!field.validator().isValid(value)) {
+            return new InputResult(InputStatus.INVALID, definition, state, field);
+        }
+
+        state.setValue(state.getStep(), value);
+        state.setStep(definition.nextEmptyField(state));
+        save(chatId, state);
+        return new InputResult(InputStatus.ACCEPTED, definition, state, field);
+    }
+
+    /**
+     * Answers of a form that has every field filled in, or null. The form stays open until finish().
+     */
+    public FormValues getCompleted(String formId, long chatId) {
+        FormState state = getState(formId, chatId);
+        FormDefinition definition = getDefinition(formId);
+        return state != null && definition.isComplete(state) ? new FormValues(definition, state) : null;
+    }
+
+    /**
+     * Close the chat's form of this type after it was submitted or cancelled
+     */
+    public void finish(String formId, long chatId) {
+        if (getState(formId, chatId) != null) {
+            remove(chatId);
+        }
+    }
+
+    private void save(long chatId, FormState state) {
+        stateStore.put(STATE_NAMESPACE, chatId, state);
+        sessionExpiry.touch(STATE_NAMESPACE, chatId, SESSION_TIMEOUT);
+    }
+
+    private void remove(long chatId) {
+        stateStore.remove(STATE_NAMESPACE, chatId);
+        sessionExpiry.cancel(STATE_NAMESPACE, chatId);
+        activeFlows.release(chatId, FLOW_ID);
+    }
+
+    private void expire(long chatId) {
+        if (stateStore.removeIfIdle(STATE_NAMESPACE, chatId, SESSION_TIMEOUT)) {
+            activeFlows.release(chatId, FLOW_ID);
+            logger.info("Form of user {} expired after {} minutes without input", chatId, SESSION_TIMEOUT.toMinutes());
+        }
+    }
+
+    public enum InputStatus {
+        NO_FORM,
+        ACCEPTED,
+        INVALID,
+        AWAITING_CHOICE,
+        AWAITING_CONFIRMATION
+    }
+
+    public record InputResult(InputStatus status, FormDefinition definition, FormState state, FormField field) {
+        static final InputResult NO_FORM = new InputResult(InputStatus.NO_FORM, null, null, null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.Map;
+
+/**
+ * One step of a form. TEXT fields are filled by typing and checked by the validator;
+ * CHOICE fields are filled from a button and carry their own keyboard and option labels.
+ */
+public record FormField(String key, Kind kind, String prompt, String error, FieldValidator validator,
+                        Map<String, String> options, InlineKeyboardMarkup keyboard) {
+
+    public enum Kind {
+        TEXT,
+        CHOICE
+    }
+
+    public static FormField text(String key, String prompt, String error, FieldValidator validator) {
+        return new FormField(key, Kind.TEXT, prompt, error, validator, Map.of(), null);
+    }
+
+    public static FormField choice(String key, String prompt, Map<String, String> options, InlineKeyboardMarkup keyboard) {
+        return new FormField(key, Kind.CHOICE, prompt, null, null, Map.copyOf(options), keyboard);
+    }
+
+    /**
+     * Display label for a stored value; free values are shown as they are
+     */
+    public String label(String value) {
+        return options.getOrDefault(value, value);
+    }
+}
@@ -0,0 +1,34 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import java.io.Serializable;
+
+/**
+ * Per-user progress through a form: which form, the current step and one value slot per field
+ */
+public class FormState implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String formId;
+    private final String[] values;
+    private int step;
+
+    FormState(String formId, int fieldCount) {
+        this.formId = formId;
+        this.values = new String[fieldCount];
+    }
+
+    public String getFormId() { return formId; }
+
+    /**
+     * Index of the field being asked for; equal to the field count once the form awaits confirmation
+     */
+    public int getStep() { return step; }
+
+    void setStep(int step) { this.step = step; }
+
+    String getValue(int index) { return values[index]; }
+
+    void setValue(int index, String value) { values[index] = value; }
+
+    int getFieldCount() { return values.length; }
+}
@@ -0,0 +1,20 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+/**
+ * Read-only view of a form's answers by field key
+ */
+public record FormValues(FormDefinition definition, FormState state) {
+
+    public String get(String key) {
+        return state.getValue(definition.indexOf(key));
+    }
+
+    /**
+     * Option label for CHOICE fields, the value itself otherwise
+     */
+    public String label(String key) {
+        int index = definition.indexOf(key);
+        String value = state.getValue(index);
+        return value == null ? null : definition.getField(index).label(value);
+    }
+}
@@ -0,0 +1,47 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import com.NickSishchuck.StezhkaBot.utils.MessageSender;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+/**
+ * Shows the current step of a form: the field prompt, or the summary with confirm/cancel buttons
+ */
+@Component
+public class FormView {
+
+    private final MessageSender messageSender;
+
+    @Autowired
+    public FormView(MessageSender messageSender) {
+        this.messageSender = messageSender;
+    }
+
+    /**
+     * Edit the message the user tapped when there is one, otherwise send a new message
+     */
+    public void showStep(long chatId, Integer messageId, FormDefinition definition, FormState state) {
+        String text;
+        InlineKeyboardMarkup keyboard;
+
+        if (definition.isComplete(state)) {
+            text = definition.summarize(state);
+            keyboard = definition.getConfirmKeyboard();
+        } else {
+            FormField field = definition.getField(state.getStep());
+            text = field.prompt();
+            keyboard = field.keyboard() != null ? field.keyboard() : definition.getCancelKeyboard();
+        }
+
+        if (messageId != null) {
+            messageSender.editMessage(chatId, messageId, text, keyboard);
+        } else {
+            messageSender.sendMessage(chatId, text, keyboard);
+        }
+    }
+
+    public void showValidationError(long chatId, FormDefinition definition, FormField field) {
+        messageSender.sendMessage(chatId, field.error() + "\n\nСпробуйте ще раз:", definition.getCancelKeyboard());
+    }
+}
@@ -1,82 +1,107 @@
 package com.NickSishchuck.StezhkaBot.handler;
 
+import com.NickSishchuck.StezhkaBot.menu.MenuTree;
+import com.NickSishchuck.StezhkaBot.menu.MenuTreeLoader;
+import com.NickSishchuck.StezhkaBot.service.AdminRegistry;
 import com.NickSishchuck.StezhkaBot.service.AdminStateService;
 import com.NickSishchuck.StezhkaBot.service.ConsultationService;
+import com.NickSishchuck.StezhkaBot.service.DeadLetterLog;
 import com.NickSishchuck.StezhkaBot.service.EnrollmentService;
-import com.NickSishchuck.StezhkaBot.service.StezhkaBotService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.NickSishchuck.StezhkaBot.service.TextContentService;
+import com.NickSishchuck.StezhkaBot.utils.KeyboardRegistry;
 import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
-import com.NickSishchuck.StezhkaBot.utils.MessageSender;
+import com.NickSishchuck.StezhkaBot.utils.AsyncMessageSender;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.Set;
 
 @Component
-public class AdminHandler implements MenuHandler {
+public class AdminHandler implements MenuHandler, TextInputHandler {
 
-    private static final Logger logger = LoggerFactory.getLogger(StezhkaBotService.class);
+    private static final Logger logger = LoggerFactory.getLogger(AdminHandler.class);
     private final TextContentService textContentService;
     private final AdminStateService adminStateService;
     private final EnrollmentService enrollmentService;
     private final ConsultationService consultationService;
-    private TelegramClient telegramClient;
-    private MessageSender messageSender;
-
-    // List of admin user IDs
-    @Value("${bot.admin.user.ids:}")
-    private String adminUserIds;
+    private final DeadLetterLog deadLetterLog;
+    private final AsyncMessageSender messageSender;
+    private final KeyboardRegistry keyboards;
+    private final AdminRegistry adminRegistry;
+    // Navigation screens (menus/admin.json); actions such as editing and statistics stay in code
+    private final MenuTree menu;
 
     @Autowired
     public AdminHandler(TextContentService textContentService, AdminStateService adminStateService,
-                        EnrollmentService enrollmentService, ConsultationService consultationService) {
+                        EnrollmentService enrollmentService, ConsultationService consultationService,
+                        DeadLetterLog deadLetterLog, AsyncMessageSender messageSender, KeyboardRegistry keyboards,
+                        AdminRegistry adminRegistry, MenuTreeLoader menuTreeLoader) {
         this.textContentService = textContentService;
         this.adminStateService = adminStateService;
         this.enrollmentService = enrollmentService;
         this.consultationService = consultationService;
+        this.deadLetterLog = deadLetterLog;
+        this.messageSender = messageSender;
+        this.keyboards = keyboards;
+        this.adminRegistry = adminRegistry;
+        this.menu = menuTreeLoader.load("admin");
+        registerKeyboards();
+    }
+
+    private void registerKeyboards() {
+        keyboards.register("admin.cancel_edit", new MenuBuilder()
+                .addButton("❌ Відмінити", "cancel_edit"));
+
+        keyboards.register("admin.back_main", new MenuBuilder()
+                .addButton("⬅️ Назад", "admin_main"));
+
+        keyboards.register("admin.statistics", new MenuBuilder()
+                .addButton("📭 Недоставлені повідомлення", "admin_dead_letters")
+                .addRow()
+                .addButton("⬅️ Назад", "admin_main"));
+
+        keyboards.register("admin.dead_letters", new MenuBuilder()
+                .addButton("⬅️ Назад", "admin_stats"));
+    }
+
+    @Override
+    public Set<String> getExactCallbacks() {
+        return Set.of("/admin", "cancel_edit");
     }
 
     @Override
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
-        this.messageSender = new MessageSender(telegramClient);
+    public boolean isNavigation() {
+        return false;
     }
 
     @Override
-    public boolean canHandle(String callbackData) {
-        return callbackData.startsWith("admin_") ||
-                callbackData.equals("/admin") ||
-                callbackData.startsWith("text_edit_") ||
-                callbackData.startsWith("admin_vacation") ||
-                callbackData.equals("cancel_edit");
+    public Set<String> getCallbackPrefixes() {
+        return Set.of("admin_", "text_edit_");
     }
 
     @Override
     public void handle(long chatId, String callbackData) {
         // Check if user is admin
-        if (!isAdmin(chatId)) {
+        if (!adminRegistry.isAdmin(chatId)) {
             messageSender.sendMessage(chatId, "❌ Доступ заблоковано",
                     new MenuBuilder().addButton("⬅️ Назад", "main").build());
             return;
         }
 
+        MenuTree.Screen screen = menu.resolve(callbackData);
+        if (screen != null) {
+            messageSender.sendMessage(chatId, screen.render(), screen.keyboard());
+            return;
+        }
+
         switch (callbackData) {
-            case "/admin", "admin_main" -> showAdminMenu(chatId);
-            case "admin_vacation_programs" -> showVacationManagement(chatId);
-            case "admin_content" -> showContentManagement(chatId);
-            case "admin_programs" -> showProgramsManagement(chatId);
-            case "admin_age_groups" -> showAgeGroupsManagement(chatId);
-            case "admin_age_4_6" -> showAge4to6Management(chatId);
-            case "admin_age_6_10" -> showAge6to10Management(chatId);
-            case "admin_age_11_15" -> showAge11to15Management(chatId);
-            case "admin_age_15_18" -> showAge15to18Management(chatId);
-            case "admin_specialists" -> showSpecialistsManagement(chatId);
             case "admin_refresh" -> refreshContent(chatId);
             case "admin_stats" -> showStatistics(chatId);
+            case "admin_dead_letters" -> showDeadLetters(chatId);
             case "cancel_edit" -> cancelEditing(chatId);
             default -> {
                 if (callbackData.startsWith("text_edit_")) {
@@ -87,79 +112,26 @@ public class AdminHandler implements MenuHandler {
         }
     }
 
-    private void showVacationManagement(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🍂 Осінні канікули", "text_edit_PROGRAM_AUTUMN_VACATION_DETAILS")
-                .addButton("❄️ Зимові канікули", "text_edit_PROGRAM_WINTER_VACATION_DETAILS")
-                .addRow()
-                .addButton("🌸 Весінні канікули", "text_edit_PROGRAM_SPRING_VACATION_DETAILS")
-                .addButton("☀️ Літні канікули", "text_edit_PROGRAM_SUMMER_VACATION_DETAILS")
-                .addRow()
-                .addButton("📝 Меню канікул", "text_edit_VACATION_MENU_MESSAGE")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🎄 *Менеджмент канікулярних програм*\n\nОберіть текст для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void editVacationManagement(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🍂 Осінні канікули", "text_edit_PROGRAM_AUTUMN_VACATION_DETAILS")
-                .addButton("❄️ Зимові канікули", "text_edit_PROGRAM_WINTER_VACATION_DETAILS")
-                .addRow()
-                .addButton("🌸 Весінні канікули", "text_edit_PROGRAM_SPRING_VACATION_DETAILS")
-                .addButton("☀️ Літні канікули", "text_edit_PROGRAM_SUMMER_VACATION_DETAILS")
-                .addRow()
-                .addButton("📝 Меню канікул", "text_edit_VACATION_MENU_MESSAGE")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🎄 *Менеджмент канікулярних програм*\n\nОберіть канікулярну програму для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
     @Override
     public void handle(long chatId, int messageId, String callbackData) {
         // Check if user is admin
-        if (!isAdmin(chatId)) {
+        if (!adminRegistry.isAdmin(chatId)) {
             messageSender.editMessage(chatId, messageId, "❌ В доступі відхилено.",
                     new MenuBuilder().addButton("⬅️ Назад", "main").build());
             return;
         }
 
+        MenuTree.Screen screen = menu.resolve(callbackData);
+        if (screen != null) {
+            messageSender.editMessage(chatId, messageId, screen.render(), screen.keyboard());
+            return;
+        }
+
         switch (callbackData) {
-            case "/admin", "admin_main" -> editAdminMenu(chatId, messageId);
-            case "admin_content" -> editContentManagement(chatId, messageId);
-            case "admin_programs" -> editProgramsManagement(chatId, messageId);
-            case "admin_age_groups" -> editAgeGroupsManagement(chatId, messageId);
-            case "admin_age_4_6" -> editAge4to6Management(chatId, messageId);
-            case "admin_age_6_10" -> editAge6to10Management(chatId, messageId);
-            case "admin_age_11_15" -> editAge11to15Management(chatId, messageId);
-            case "admin_age_15_18" -> editAge15to18Management(chatId, messageId);
-            case "admin_specialists" -> editSpecialistsManagement(chatId, messageId);
             case "admin_refresh" -> refreshContent(chatId, messageId);
             case "admin_stats" -> editStatistics(chatId, messageId);
-            case "admin_vacation_programs" -> editVacationManagement(chatId, messageId);
+            case "admin_dead_letters" -> editDeadLetters(chatId, messageId);
             case "cancel_edit" -> cancelEditing(chatId, messageId);
-            case "/requests" -> {
-                // Redirect to enrollment requests - edit current message to show we're redirecting
-                messageSender.editMessage(chatId, messageId,
-                        "📋 Завантаження заявок на зарахування...",
-                        new MenuBuilder().build());
-                // Then show the requests (this will send a new message)
-                showEnrollmentRequests(chatId);
-            }
-            case "/consultations" -> {
-                // Redirect to consultations - edit current message to show we're redirecting
-                messageSender.editMessage(chatId, messageId,
-                        "📞 Завантаження консультацій...",
-                        new MenuBuilder().build());
-                // Then show the consultations (this will send a new message)
-                showConsultations(chatId);
-            }
             default -> {
                 if (callbackData.startsWith("text_edit_")) {
                     String key = callbackData.substring("text_edit_".length());
@@ -169,11 +141,17 @@ public class AdminHandler implements MenuHandler {
         }
     }
 
+    @Override
+    public String getFlowId() {
+        return AdminStateService.FLOW_ID;
+    }
+
     /**
      * Process text input from admin (for text updates)
      */
+    @Override
     public boolean processTextInput(long chatId, String messageText) {
-        if (!isAdmin(chatId)) {
+        if (!adminRegistry.isAdmin(chatId)) {
             return false;
         }
 
@@ -215,9 +193,7 @@ public class AdminHandler implements MenuHandler {
         String currentText = textContentService.getText(textKey);
         adminStateService.startEditing(chatId, textKey, currentText);
 
-        var keyboard = new MenuBuilder()
-                .addButton("❌ Відмінити", "cancel_edit")
-                .build();
+        var keyboard = keyboards.get("admin.cancel_edit");
 
         String message = String.format(
                 "📝 *Редагую: %s*\n\n" +
@@ -236,9 +212,7 @@ public class AdminHandler implements MenuHandler {
         String currentText = textContentService.getText(textKey);
         adminStateService.startEditing(chatId, textKey, currentText);
 
-        var keyboard = new MenuBuilder()
-                .addButton("❌ Відмінити", "cancel_edit")
-                .build();
+        var keyboard = keyboards.get("admin.cancel_edit");
 
         String message = String.format(
                 "📝 *Редагую: %s*\n\n" +
@@ -285,157 +259,6 @@ public class AdminHandler implements MenuHandler {
         }
     }
 
-    private void showAdminMenu(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("📝 Контент Менеджмент", "admin_content")
-                .addButton("🎓 Програми", "admin_programs")
-                .addRow()
-                .addButton("📊 Статистика", "admin_stats")
-                .addButton("🔄 Оновлення кешу", "admin_refresh")
-                .addRow()
-                .addButton("⬅️ Назад на Головну", "main")
-                .build();
-
-        String message = "🔧 Панель адміністратора\n\n/requests; /consultations";
-        messageSender.sendPlainMessage(chatId, message, keyboard);
-    }
-
-    private void editAdminMenu(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("📝 Контент менеджмент", "admin_content")
-                .addButton("🎓 Програми", "admin_programs")
-                .addRow()
-                .addButton("📊 Статистика", "admin_stats")
-                .addButton("🔄 Оновлення кешу", "admin_refresh")
-                .addRow()
-                .addButton("⬅️ Назад на Головну", "main")
-                .build();
-
-        String message = "🔧 Панель адміністратора\n\nОберіть опцію:";
-        messageSender.editPlainMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void showContentManagement(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("📝 Редагувати вітальне повідомлення", "text_edit_WELCOME_MESSAGE")
-                .addButton("📝 Редагувати головне меню", "text_edit_MAIN_MENU_MESSAGE")
-                .addRow()
-                .addButton("📝 Редагувати меню програм", "text_edit_PROGRAMS_MENU_MESSAGE")
-                .addButton("📝 Редагувати FAQ", "text_edit_FAQ_TEXT")
-                .addRow()
-                .addButton("📝 Редагувати контакти", "text_edit_CONTACTS_TEXT")
-                .addButton("📝 Редагувати новини", "text_edit_NEWS_TEXT")
-                .addRow()
-                .addButton("📝 Редагувати вікові групи", "admin_age_groups")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_main")
-                .build();
-
-        String message = "📝 *Менеджмент контенту*\n\nОберіть текст для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void showProgramsManagement(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("👶 Програми 4-6 років", "admin_age_4_6")
-                .addButton("🎒 Програми 6-10 років", "admin_age_6_10")
-                .addRow()
-                .addButton("🧠 Програми 11-15 років", "admin_age_11_15")
-                .addButton("🎯 Програми 15-18 років", "admin_age_15_18")
-                .addRow()
-                .addButton("🎄 Канікулярні програми", "admin_vacation_programs")
-                .addButton("👨‍⚕️ Програми спеціалістів", "admin_specialists")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_main")
-                .build();
-
-        String message = "🎓 *Менеджмент програм*\n\nОберіть категорію для управління:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void showAge4to6Management(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("📚 Редагувати дошкільну програму", "text_edit_PROGRAM_PRESCHOOL_DETAILS")
-                .addRow()
-                .addButton("🗣️ Редагувати логопеда", "text_edit_PROGRAM_SPEECH_THERAPIST_DETAILS")
-                .addButton("🧠 Редагувати нейропсихолога", "text_edit_PROGRAM_NEUROPSYCHOLOGIST_PRESCHOOL_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "👶 *Програми 4-6 років*\n\nОберіть програму для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void showAge6to10Management(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🏫 Редагувати початкову школу", "text_edit_PROGRAM_PRIMARY_DETAILS")
-                .addButton("🇬🇧 Редагувати англійську програму", "text_edit_PROGRAM_ENGLISH_DETAILS")
-                .addRow()
-                .addButton("💰 Редагувати фінансову грамотність", "text_edit_PROGRAM_FINANCIAL_DETAILS")
-                .addButton("🎨 Редагувати творчі програми", "text_edit_PROGRAM_CREATIVE_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🎒 *Програми 6-10 років*\n\nОберіть програму для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void showAge11to15Management(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🧠 Редагувати підліткову психологію", "text_edit_PROGRAM_TEEN_PSYCHOLOGY_DETAILS")
-                .addButton("🇬🇧 Редагувати англійську (середня)", "text_edit_PROGRAM_ENGLISH_MIDDLE_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🧠 *Програми 11-15 років*\n\nОберіть програму для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void showAge15to18Management(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🎯 Редагувати підготовку до НМТ", "text_edit_PROGRAM_NMT_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🎯 *Програми 15-18 років*\n\nОберіть програму для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void showSpecialistsManagement(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("👩‍⚕️ Редагувати психолога", "text_edit_PROGRAM_PSYCHOLOGIST_DETAILS")
-                .addButton("🗣️ Редагувати логопеда", "text_edit_PROGRAM_SPEECH_THERAPIST_DETAILS")
-                .addRow()
-                .addButton("🧠 Редагувати нейропедагога", "text_edit_PROGRAM_NEUROPEDAGOG_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "👨‍⚕️ *Програми спеціалістів*\n\nОберіть програму для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
-    private void showAgeGroupsManagement(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("👶 Редагувати інфо 4-6 років", "text_edit_AGE_4_6_MESSAGE")
-                .addButton("🎒 Редагувати інфо 6-10 років", "text_edit_AGE_6_10_MESSAGE")
-                .addRow()
-                .addButton("🧠 Редагувати інфо 11-15 років", "text_edit_AGE_11_15_MESSAGE")
-                .addButton("🎯 Редагувати інфо 15-18 років", "text_edit_AGE_15_18_MESSAGE")
-                .addRow()
-                .addButton("👨‍⚕️ Редагувати інфо спеціалістів", "text_edit_SPECIALISTS_MESSAGE")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_content")
-                .build();
-
-        String message = "📝 *Інформація про вікові групи*\n\nОберіть інформацію вікової групи для редагування:";
-        messageSender.sendMessage(chatId, message, keyboard);
-    }
-
     /**
      * Escape Markdown special characters
      */
@@ -466,141 +289,15 @@ public class AdminHandler implements MenuHandler {
                 .replace("!", "\\!");
     }
 
-    // Edit methods for all admin panels
-    private void editContentManagement(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("📝 Редагувати вітальне повідомлення", "text_edit_WELCOME_MESSAGE")
-                .addButton("📝 Редагувати головне меню", "text_edit_MAIN_MENU_MESSAGE")
-                .addRow()
-                .addButton("📝 Редагувати меню програм", "text_edit_PROGRAMS_MENU_MESSAGE")
-                .addButton("📝 Редагувати FAQ", "text_edit_FAQ_TEXT")
-                .addRow()
-                .addButton("📝 Редагувати контакти", "text_edit_CONTACTS_TEXT")
-                .addButton("📝 Редагувати новини", "text_edit_NEWS_TEXT")
-                .addRow()
-                .addButton("📝 Редагувати вікові групи", "admin_age_groups")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_main")
-                .build();
-
-        String message = "📝 *Менеджмент контенту*\n\nОберіть текст для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void editProgramsManagement(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("👶 Програми 4-6 років", "admin_age_4_6")
-                .addButton("🎒 Програми 6-10 років", "admin_age_6_10")
-                .addRow()
-                .addButton("🧠 Програми 11-15 років", "admin_age_11_15")
-                .addButton("🎯 Програми 15-18 років", "admin_age_15_18")
-                .addRow()
-                .addButton("🎄 Канікулярні програми", "admin_vacation_programs")
-                .addButton("👨‍⚕️ Програми спеціалістів", "admin_specialists")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_main")
-                .build();
-
-        String message = "🎓 *Менеджмент програм*\n\nОберіть категорію для управління:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void editAge4to6Management(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("📚 Редагувати дошкільну програму", "text_edit_PROGRAM_PRESCHOOL_DETAILS")
-                .addRow()
-                .addButton("🗣️ Редагувати логопеда", "text_edit_PROGRAM_SPEECH_THERAPIST_DETAILS")
-                .addButton("🧠 Редагувати нейропсихолога", "text_edit_PROGRAM_NEUROPSYCHOLOGIST_PRESCHOOL_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "👶 *Програми 4-6 років*\n\nОберіть програму для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void editAge6to10Management(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🏫 Редагувати початкову школу", "text_edit_PROGRAM_PRIMARY_DETAILS")
-                .addButton("🇬🇧 Редагувати англійську програму", "text_edit_PROGRAM_ENGLISH_DETAILS")
-                .addRow()
-                .addButton("💰 Редагувати фінансову грамотність", "text_edit_PROGRAM_FINANCIAL_DETAILS")
-                .addButton("🎨 Редагувати творчі програми", "text_edit_PROGRAM_CREATIVE_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🎒 *Програми 6-10 років*\n\nОберіть програму для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void editAge11to15Management(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🧠 Редагувати підліткову психологію", "text_edit_PROGRAM_TEEN_PSYCHOLOGY_DETAILS")
-                .addButton("🇬🇧 Редагувати англійську (середня)", "text_edit_PROGRAM_ENGLISH_MIDDLE_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🧠 *Програми 11-15 років*\n\nОберіть програму для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void editAge15to18Management(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🎯 Редагувати підготовку до НМТ", "text_edit_PROGRAM_NMT_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "🎯 *Програми 15-18 років*\n\nОберіть програму для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void editSpecialistsManagement(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("👩‍⚕️ Редагувати психолога", "text_edit_PROGRAM_PSYCHOLOGIST_DETAILS")
-                .addButton("🗣️ Редагувати логопеда", "text_edit_PROGRAM_SPEECH_THERAPIST_DETAILS")
-                .addRow()
-                .addButton("🧠 Редагувати нейропедагога", "text_edit_PROGRAM_NEUROPEDAGOG_DETAILS")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_programs")
-                .build();
-
-        String message = "👨‍⚕️ *Програми спеціалістів*\n\nОберіть програму для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
-    private void editAgeGroupsManagement(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("👶 Редагувати інфо 4-6 років", "text_edit_AGE_4_6_MESSAGE")
-                .addButton("🎒 Редагувати інфо 6-10 років", "text_edit_AGE_6_10_MESSAGE")
-                .addRow()
-                .addButton("🧠 Редагувати інфо 11-15 років", "text_edit_AGE_11_15_MESSAGE")
-                .addButton("🎯 Редагувати інфо 15-18 років", "text_edit_AGE_15_18_MESSAGE")
-                .addRow()
-                .addButton("👨‍⚕️ Редагувати інфо спеціалістів", "text_edit_SPECIALISTS_MESSAGE")
-                .addRow()
-                .addButton("⬅️ Назад", "admin_content")
-                .build();
-
-        String message = "📝 *Інформація про вікові групи*\n\nОберіть інформацію вікової групи для редагування:";
-        messageSender.editMessage(chatId, messageId, message, keyboard);
-    }
-
     private void refreshContent(long chatId, int messageId) {
         try {
             textContentService.refreshCache();
 
-            var keyboard = new MenuBuilder()
-                    .addButton("⬅️ Назад", "admin_main")
-                    .build();
+            var keyboard = keyboards.get("admin.back_main");
 
             messageSender.editMessage(chatId, messageId, "✅ Кеш контенту успішно оновлено!", keyboard);
         } catch (Exception e) {
-            var keyboard = new MenuBuilder()
-                    .addButton("⬅️ Назад", "admin_main")
-                    .build();
+            var keyboard = keyboards.get("admin.back_main");
 
             messageSender.editMessage(chatId, messageId, "❌ Не вдалося оновити кеш: " + e.getMessage(), keyboard);
         }
@@ -610,15 +307,11 @@ public class AdminHandler implements MenuHandler {
         try {
             textContentService.refreshCache();
 
-            var keyboard = new MenuBuilder()
-                    .addButton("⬅️ Назад", "admin_main")
-                    .build();
+            var keyboard = keyboards.get("admin.back_main");
 
             messageSender.sendMessage(chatId, "✅ Кеш контенту успішно оновлено!", keyboard);
         } catch (Exception e) {
-            var keyboard = new MenuBuilder()
-                    .addButton("⬅️ Назад", "admin_main")
-                    .build();
+            var keyboard = keyboards.get("admin.back_main");
 
             messageSender.sendMessage(chatId, "❌ Не вдалося оновити кеш: " + e.getMessage(), keyboard);
         }
@@ -632,9 +325,7 @@ public class AdminHandler implements MenuHandler {
                 "📞 *Консультації*\n" +
                 "⏳ Необроблені: " + unprocessedConsultations;
 
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "admin_main")
-                .build();
+        var keyboard = keyboards.get("admin.statistics");
         messageSender.sendMessage(chatId, stats, keyboard);
     }
 
@@ -646,30 +337,41 @@ public class AdminHandler implements MenuHandler {
                 "📞 *Консультації*\n" +
                 "⏳ Необроблені: " + unprocessedConsultations;
 
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "admin_main")
-                .build();
+        var keyboard = keyboards.get("admin.statistics");
         messageSender.editMessage(chatId, messageId, stats, keyboard);
     }
 
-    // Helper methods for redirecting to other handlers
-    private void showEnrollmentRequests(long chatId) {
-        try {
+    private void showDeadLetters(long chatId) {
+        var keyboard = keyboards.get("admin.dead_letters");
+        messageSender.sendPlainMessage(chatId, formatDeadLetters(), keyboard);
+    }
 
-            messageSender.sendMessage(chatId, "📋 Використовуйте команду /requests для перегляду заявок на зарахування.",
-                    new MenuBuilder().addButton("⬅️ Назад до Адмін", "admin_main").build());
-        } catch (Exception e) {
-            logger.error("Failed to show enrollment requests", e);
-        }
+    private void editDeadLetters(long chatId, int messageId) {
+        var keyboard = keyboards.get("admin.dead_letters");
+        messageSender.editPlainMessage(chatId, messageId, formatDeadLetters(), keyboard);
     }
 
-    private void showConsultations(long chatId) {
-        try {
-            messageSender.sendMessage(chatId, "📞 Використовуйте команду /consultations для перегляду консультацій.",
-                    new MenuBuilder().addButton("⬅️ Назад до Адмін", "admin_main").build());
-        } catch (Exception e) {
-            logger.error("Failed to show consultations", e);
+    private String formatDeadLetters() {
+        var deadLetters = deadLetterLog.getRecent(10);
+        if (deadLetters.isEmpty()) {
+            return "📭 Недоставлених повідомлень немає";
         }
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM HH:mm:ss");
+        StringBuilder message = new StringBuilder("📭 Недоставлені повідомлення (всього: ")
+                .append(deadLetterLog.getTotalCount()).append(")\n");
+        for (DeadLetterLog.DeadLetter deadLetter : deadLetters) {
+            message.append("\n⏰ ").append(deadLetter.time().format(formatter))
+                    .append(" | чат ").append(deadLetter.chatId())
+                    .append(" | ").append(deadLetter.method())
+                    .append(" | спроб: ").append(deadLetter.attempts())
+                    .append("\n❌ ").append(deadLetter.error());
+            if (!deadLetter.summary().isEmpty()) {
+                message.append("\n📝 ").append(deadLetter.summary());
+            }
+            message.append("\n");
+        }
+        return message.toString();
     }
 
     private String getBackButtonForTextKey(String textKey) {
@@ -693,21 +395,4 @@ public class AdminHandler implements MenuHandler {
         }
         return "admin_content";
     }
-
-    // Helper method to check if user is admin
-    private boolean isAdmin(long userId) {
-        if (adminUserIds == null || adminUserIds.isEmpty()) {
-            return false; // No admins configured
-        }
-
-        String[] adminIds = adminUserIds.split(",");
-        String userIdStr = String.valueOf(userId);
-
-        for (String adminId : adminIds) {
-            if (adminId.trim().equals(userIdStr)) {
-                return true;
-            }
-        }
-        return false;
-    }
 }
\ No newline at end of file
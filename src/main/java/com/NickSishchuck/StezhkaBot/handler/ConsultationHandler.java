@@ -1,20 +1,28 @@
 package com.NickSishchuck.StezhkaBot.handler;
 
 import com.NickSishchuck.StezhkaBot.entity.ConsultationRequest;
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import com.NickSishchuck.StezhkaBot.form.FieldValidator;
+import com.NickSishchuck.StezhkaBot.form.FormDefinition;
+import com.NickSishchuck.StezhkaBot.form.FormEngine;
+import com.NickSishchuck.StezhkaBot.form.FormState;
+import com.NickSishchuck.StezhkaBot.form.FormView;
 import com.NickSishchuck.StezhkaBot.service.ConsultationService;
+import com.NickSishchuck.StezhkaBot.service.AdminNotifier;
+import com.NickSishchuck.StezhkaBot.service.AdminRegistry;
+import com.NickSishchuck.StezhkaBot.service.NotificationOutbox;
+import com.NickSishchuck.StezhkaBot.service.OutboundScheduler;
 import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
 import com.NickSishchuck.StezhkaBot.utils.MessageSender;
+import com.NickSishchuck.StezhkaBot.utils.TelegramErrors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 import java.util.List;
+import java.util.Set;
 
 @Component
 public class ConsultationHandler implements MenuHandler {
@@ -22,36 +30,68 @@ public class ConsultationHandler implements MenuHandler {
     private static final Logger logger = LoggerFactory.getLogger(ConsultationHandler.class);
 
     private final ConsultationService consultationService;
-    private TelegramClient telegramClient;
-    private MessageSender messageSender;
-
-    @Value("${bot.admin.user.ids:}")
-    private String adminUserIds;
+    private final OutboundScheduler outboundScheduler;
+    private final MessageSender messageSender;
+    private final FormView formView;
+    private final FormDefinition form;
+    private final AdminRegistry adminRegistry;
+    private final AdminNotifier adminNotifier;
+    private final NotificationOutbox outbox;
 
     @Autowired
-    public ConsultationHandler(ConsultationService consultationService) {
+    public ConsultationHandler(ConsultationService consultationService, OutboundScheduler outboundScheduler,
+                               MessageSender messageSender, FormEngine formEngine, FormView formView,
+                               AdminRegistry adminRegistry, AdminNotifier adminNotifier,
+                               NotificationOutbox outbox) {
         this.consultationService = consultationService;
+        this.outboundScheduler = outboundScheduler;
+        this.messageSender = messageSender;
+        this.formView = formView;
+        this.adminRegistry = adminRegistry;
+        this.adminNotifier = adminNotifier;
+        this.outbox = outbox;
+        this.form = buildForm();
+        formEngine.register(form);
+    }
+
+    /**
+     * Consultation form: name and phone
+     */
+    private FormDefinition buildForm() {
+        return FormDefinition.builder(ConsultationService.FORM_ID)
+                .text(ConsultationService.NAME, "👤 *Введіть ваше ім'я та прізвище:*",
+                        "❌ Будь ласка, введіть коректне ім'я та прізвище", FieldValidator.length(2, 100))
+                .text(ConsultationService.PHONE, "📞 *Введіть ваш номер телефону:*",
+                        "❌ Будь ласка, введіть коректний номер телефону", FieldValidator.phone())
+                .summary(values -> String.format(
+                        "📋 *Перевірте дані:*\n\n" +
+                                "👤 *Ім'я:* %s\n" +
+                                "📞 *Телефон:* %s\n\n" +
+                                "Все вірно?",
+                        values.get(ConsultationService.NAME),
+                        values.get(ConsultationService.PHONE)))
+                .callbacks("consultation_confirm", "consultation_cancel")
+                .build();
     }
 
     @Override
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
-        this.messageSender = new MessageSender(telegramClient);
+    public Set<String> getExactCallbacks() {
+        return Set.of("consultations_main", "consultation_confirm", "consultation_cancel", "/consultations");
     }
 
     @Override
-    public boolean canHandle(String callbackData) {
-        return callbackData.equals("consultations_main") ||
-                callbackData.equals("consultation_confirm") ||
-                callbackData.equals("consultation_cancel") ||
-                callbackData.equals("/consultations") ||
-                callbackData.startsWith("process_consultation_") ||
-                callbackData.startsWith("view_consultation_");
+    public boolean isNavigation() {
+        return false;
+    }
+
+    @Override
+    public Set<String> getCallbackPrefixes() {
+        return Set.of("process_consultation_", "view_consultation_");
     }
 
     @Override
     public void handle(long chatId, String callbackData) {
-        if (callbackData.equals("/consultations") && isAdmin(chatId)) {
+        if (callbackData.equals("/consultations") && adminRegistry.isAdmin(chatId)) {
             showUnprocessedConsultations(chatId);
         }
     }
@@ -63,9 +103,9 @@ public class ConsultationHandler implements MenuHandler {
             case "consultation_confirm" -> confirmConsultation(chatId, messageId);
             case "consultation_cancel" -> cancelConsultation(chatId, messageId);
             default -> {
-                if (callbackData.startsWith("process_consultation_") && isAdmin(chatId)) {
+                if (callbackData.startsWith("process_consultation_") && adminRegistry.isAdmin(chatId)) {
                     processConsultation(chatId, messageId, callbackData);
-                } else if (callbackData.startsWith("view_consultation_") && isAdmin(chatId)) {
+                } else if (callbackData.startsWith("view_consultation_") && adminRegistry.isAdmin(chatId)) {
                     String requestId = callbackData.substring("view_consultation_".length());
                     showConsultationDetails(chatId, Long.parseLong(requestId));
                 }
@@ -79,155 +119,49 @@ public class ConsultationHandler implements MenuHandler {
     private void startConsultation(long chatId, int messageId) {
         // Check for recent consultations with new limit system
         if (consultationService.hasRecentConsultation(chatId, 0)) {
-            int currentCount = consultationService.getCurrentRequestCount(chatId);
-            messageSender.editMessage(chatId, messageId,
-                    String.format("⚠️ Ви вже подали максимальну кількість заявок (%d/5). Спробуйте пізніше або зачекайте 30 хвилин.", currentCount),
-                    new MenuBuilder().addButton("⬅️ Назад", "main").build());
+            showLimitReached(chatId, messageId, "main");
             return;
         }
 
-        consultationService.startConsultation(chatId);
-        showConsultationStep(chatId, messageId, ConsultationService.ConsultationStep.NAME);
-    }
-
-    /**
-     * Show consultation step
-     */
-    private void showConsultationStep(long chatId, int messageId, ConsultationService.ConsultationStep step) {
-        String message = switch (step) {
-            case NAME -> "👤 *Введіть ваше ім'я та прізвище:*";
-            case PHONE -> "📞 *Введіть ваш номер телефону:*";
-            case CONFIRM -> formatConfirmationMessage(chatId);
-            default -> "Помилка";
-        };
-
-        var keyboard = new MenuBuilder();
-
-        if (step == ConsultationService.ConsultationStep.CONFIRM) {
-            keyboard.addButton("✅ Підтвердити", "consultation_confirm")
-                    .addButton("❌ Скасувати", "consultation_cancel");
-        } else {
-            keyboard.addButton("❌ Скасувати", "consultation_cancel");
-        }
-
-        messageSender.editMessage(chatId, messageId, message, keyboard.build());
-    }
-
-    /**
-     * Process text input for consultation
-     */
-    public boolean processTextInput(long chatId, String text) {
-        ConsultationService.ConsultationFormState state = consultationService.getConsultationState(chatId);
-        if (state == null || state.getCurrentStep() == ConsultationService.ConsultationStep.CONFIRM) {
-            return false;
-        }
-
-        // Validate input
-        if (!validateInput(state.getCurrentStep(), text)) {
-            showValidationError(chatId, state.getCurrentStep());
-            return true;
-        }
-
-        ConsultationService.ConsultationStep nextStep = consultationService.processConsultationInput(chatId, text);
-
-        if (nextStep != null) {
-            showConsultationStep(chatId, nextStep);
-        }
-
-        return true;
-    }
-
-    /**
-     * Show consultation step in new message
-     */
-    private void showConsultationStep(long chatId, ConsultationService.ConsultationStep step) {
-        String message = switch (step) {
-            case NAME -> "👤 *Введіть ваше ім'я та прізвище:*";
-            case PHONE -> "📞 *Введіть ваш номер телефону:*";
-            case CONFIRM -> formatConfirmationMessage(chatId);
-            default -> "Помилка";
-        };
-
-        var keyboard = new MenuBuilder();
-
-        if (step == ConsultationService.ConsultationStep.CONFIRM) {
-            keyboard.addButton("✅ Підтвердити", "consultation_confirm")
-                    .addButton("❌ Скасувати", "consultation_cancel");
-        } else {
-            keyboard.addButton("❌ Скасувати", "consultation_cancel");
-        }
-
-        messageSender.sendMessage(chatId, message, keyboard.build());
-    }
-
-    /**
-     * Validate user input
-     */
-    private boolean validateInput(ConsultationService.ConsultationStep step, String input) {
-        return switch (step) {
-            case NAME -> input.length() >= 2 && input.length() <= 100;
-            case PHONE -> input.matches("^\\+?[0-9\\s\\-()]+$") && input.length() >= 9;
-            default -> true;
-        };
-    }
-
-    /**
-     * Show validation error
-     */
-    private void showValidationError(long chatId, ConsultationService.ConsultationStep step) {
-        String error = switch (step) {
-            case NAME -> "❌ Будь ласка, введіть коректне ім'я та прізвище";
-            case PHONE -> "❌ Будь ласка, введіть коректний номер телефону";
-            default -> "❌ Некоректні дані";
-        };
-
-        var keyboard = new MenuBuilder()
-                .addButton("❌ Скасувати", "consultation_cancel")
-                .build();
-
-        messageSender.sendMessage(chatId, error + "\n\nСпробуйте ще раз:", keyboard);
-    }
-
-    /**
-     * Format confirmation message
-     */
-    private String formatConfirmationMessage(long chatId) {
-        ConsultationService.ConsultationFormState state = consultationService.getConsultationState(chatId);
-        if (state == null) {
-            return "Помилка";
-        }
-
-        return String.format(
-                "📋 *Перевірте дані:*\n\n" +
-                        "👤 *Ім'я:* %s\n" +
-                        "📞 *Телефон:* %s\n\n" +
-                        "Все вірно?",
-                state.getName(),
-                state.getPhone()
-        );
+        FormState state = consultationService.startConsultation(chatId);
+        formView.showStep(chatId, messageId, form, state);
     }
 
     /**
      * Confirm consultation
      */
     private void confirmConsultation(long chatId, int messageId) {
-        ConsultationRequest request = consultationService.completeConsultation(chatId);
-
-        if (request != null) {
-            messageSender.editMessage(chatId, messageId,
+        // The confirmation and the admin copies are stored with the request and sent by the outbox relay
+        ConsultationRequest request = consultationService.completeConsultation(chatId, saved -> {
+            outbox.edit(chatId, messageId,
                     "✅ *Дякуємо!*\n\nВаша заявка на консультацію прийнята. Ми зв'яжемося з вами найближчим часом.\n\n" +
-                            "Номер заявки: #" + request.getId(),
-                    new MenuBuilder().addButton("⬅️ На головну", "main").build());
-
-            // Notify admin
-            notifyAdminAboutNewConsultation(request);
-        } else {
+                            "Номер заявки: #" + saved.getId(),
+                    null, new MenuBuilder().addButton("⬅️ На головну", "main").build());
+            queueAdminNotification(saved);
+        });
+
+        if (request == null) {
+            if (consultationService.hasRecentConsultation(chatId, 0)) {
+                // Another request took the last slot while this form was open
+                showLimitReached(chatId, messageId, "main");
+                return;
+            }
             messageSender.editMessage(chatId, messageId,
                     "❌ Помилка при збереженні заявки. Спробуйте пізніше.",
                     new MenuBuilder().addButton("⬅️ На головну", "main").build());
         }
     }
 
+    /**
+     * Tell the user they have used up their requests for now
+     */
+    private void showLimitReached(long chatId, int messageId, String backCallback) {
+        messageSender.editMessage(chatId, messageId,
+                String.format("⚠️ Ви вже подали максимальну кількість заявок (%d/%d). Спробуйте пізніше або зачекайте %d хвилин.",
+                        consultationService.getCurrentRequestCount(chatId), consultationService.getRequestLimit(), consultationService.getRequestWindowMinutes()),
+                new MenuBuilder().addButton("⬅️ Назад", backCallback).build());
+    }
+
     /**
      * Cancel consultation
      */
@@ -239,34 +173,16 @@ public class ConsultationHandler implements MenuHandler {
     }
 
     /**
-     * Notify admin about new consultation request
+     * Queue the new consultation request for every admin
      */
-    private void notifyAdminAboutNewConsultation(ConsultationRequest request) {
+    private void queueAdminNotification(ConsultationRequest request) {
         String message = consultationService.formatRequestForAdmin(request);
 
         var keyboardMarkup = new MenuBuilder()
                 .addButton("✅ Опрацьовано", "process_consultation_" + request.getId())
                 .build();
 
-        // Send to all admins
-        for (Long adminId : getAdminIds()) {
-            try {
-                SendMessage sendMessage = SendMessage.builder()
-                        .chatId(adminId)
-                        .text(message)
-                        .parseMode("Markdown")
-                        .replyMarkup(keyboardMarkup)
-                        .build();
-
-                Message sentMessage = telegramClient.execute(sendMessage);
-
-                // Save message ID for future reference
-                consultationService.updateAdminMessageId(request.getId(), sentMessage.getMessageId());
-
-            } catch (TelegramApiException e) {
-                logger.error("Failed to notify admin {} about consultation {}", adminId, request.getId(), e);
-            }
-        }
+        outbox.sendToAdmins(RequestAdminMessage.RequestType.CONSULTATION, request.getId(), message, "Markdown", keyboardMarkup);
     }
 
     /**
@@ -339,40 +255,26 @@ public class ConsultationHandler implements MenuHandler {
         boolean success = consultationService.markAsProcessed(requestId, chatId);
 
         if (success) {
+            // The other admins' copies are marked as handled in one fan-out
+            List<AdminNotifier.Delivery> otherCopies = consultationService.getAdminCopies(requestId).stream()
+                    .filter(copy -> copy.adminId() != chatId || copy.messageId() != messageId)
+                    .toList();
+            adminNotifier.editAll("consultation #" + requestId, otherCopies, "✅ Консультація #" + requestId + " опрацьована");
+
             // Try to delete the message
             try {
-                telegramClient.execute(org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage.builder()
+                outboundScheduler.execute(chatId, org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage.builder()
                         .chatId(chatId)
                         .messageId(messageId)
                         .build());
             } catch (TelegramApiException e) {
-                // If delete fails, just edit the message
-                messageSender.editMessage(chatId, messageId,
-                        "✅ Консультація #" + requestId + " опрацьована",
-                        new MenuBuilder().build());
+                // If delete fails, just edit the message (unless the delete is only late)
+                if (!TelegramErrors.isTimeout(e)) {
+                    messageSender.editMessage(chatId, messageId,
+                            "✅ Консультація #" + requestId + " опрацьована",
+                            new MenuBuilder().build());
+                }
             }
         }
     }
-
-    /**
-     * Check if user is admin
-     */
-    private boolean isAdmin(long userId) {
-        return getAdminIds().contains(userId);
-    }
-
-    /**
-     * Get admin IDs
-     */
-    private List<Long> getAdminIds() {
-        if (adminUserIds == null || adminUserIds.isEmpty()) {
-            return List.of();
-        }
-
-        return java.util.Arrays.stream(adminUserIds.split(","))
-                .map(String::trim)
-                .filter(id -> !id.isEmpty())
-                .map(Long::parseLong)
-                .toList();
-    }
-}
\ No newline at end of file
+}
@@ -1,58 +1,130 @@
 package com.NickSishchuck.StezhkaBot.handler;
 
 import com.NickSishchuck.StezhkaBot.entity.EnrollmentRequest;
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import com.NickSishchuck.StezhkaBot.form.FieldValidator;
+import com.NickSishchuck.StezhkaBot.form.FormDefinition;
+import com.NickSishchuck.StezhkaBot.form.FormEngine;
+import com.NickSishchuck.StezhkaBot.form.FormState;
+import com.NickSishchuck.StezhkaBot.form.FormView;
 import com.NickSishchuck.StezhkaBot.service.EnrollmentService;
+import com.NickSishchuck.StezhkaBot.service.AdminNotifier;
+import com.NickSishchuck.StezhkaBot.service.AdminRegistry;
+import com.NickSishchuck.StezhkaBot.service.NotificationOutbox;
+import com.NickSishchuck.StezhkaBot.service.OutboundScheduler;
 import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
 import com.NickSishchuck.StezhkaBot.utils.MessageSender;
+import com.NickSishchuck.StezhkaBot.utils.TelegramErrors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component
 public class EnrollmentHandler implements MenuHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(EnrollmentHandler.class);
 
-    private final EnrollmentService enrollmentService;
-    private TelegramClient telegramClient;
-    private MessageSender messageSender;
+    // Course keys and the names stored with the request
+    private static final Map<String, String> COURSE_NAMES = Map.ofEntries(
+            Map.entry("preschool", "Підготовка до школи"),
+            Map.entry("neuropsychologist_preschool", "Нейропсихолог (дошкільнята)"),
+            Map.entry("primary", "Початкова школа"),
+            Map.entry("english", "Англійська мова (6-10 років)"),
+            Map.entry("english_middle", "Англійська мова (11-15 років)"),
+            Map.entry("financial", "Фінансова грамотність"),
+            Map.entry("creative", "Творчі гуртки"),
+            Map.entry("teen_psychologist", "Психолог (підлітки)"),
+            Map.entry("teen_psychology", "Психолог (підлітки)"),
+            Map.entry("nmt", "Підготовка до НМТ"),
+            Map.entry("psychologist", "Психолог"),
+            Map.entry("speech_therapist", "Логопед"),
+            Map.entry("neuropedagog", "Нейропедагог"),
+            Map.entry("autumn_vacation", "Осінні канікули"),
+            Map.entry("winter_vacation", "Зимові канікули"),
+            Map.entry("spring_vacation", "Весняні канікули"),
+            Map.entry("summer_vacation", "Літні канікули")
+    );
 
-    @Value("${bot.admin.user.ids:}")
-    private String adminUserIds;
+    private final EnrollmentService enrollmentService;
+    private final OutboundScheduler outboundScheduler;
+    private final MessageSender messageSender;
+    private final FormView formView;
+    private final FormDefinition form;
+    private final AdminRegistry adminRegistry;
+    private final AdminNotifier adminNotifier;
+    private final NotificationOutbox outbox;
 
     @Autowired
-    public EnrollmentHandler(EnrollmentService enrollmentService) {
+    public EnrollmentHandler(EnrollmentService enrollmentService, OutboundScheduler outboundScheduler,
+                             MessageSender messageSender, FormEngine formEngine, FormView formView,
+                             AdminRegistry adminRegistry, AdminNotifier adminNotifier,
+                             NotificationOutbox outbox) {
         this.enrollmentService = enrollmentService;
+        this.outboundScheduler = outboundScheduler;
+        this.messageSender = messageSender;
+        this.formView = formView;
+        this.adminRegistry = adminRegistry;
+        this.adminNotifier = adminNotifier;
+        this.outbox = outbox;
+        this.form = buildForm();
+        formEngine.register(form);
+    }
+
+    /**
+     * Enrollment form: course (button), child, age, parent, phone
+     */
+    private FormDefinition buildForm() {
+        return FormDefinition.builder(EnrollmentService.FORM_ID)
+                .choice(EnrollmentService.COURSE, "🎓 *Оберіть програму для запису:*", COURSE_NAMES, courseKeyboard())
+                .text(EnrollmentService.CHILD_NAME, "👦 *Введіть ім'я та прізвище дитини:*",
+                        "❌ Будь ласка, введіть коректне ім'я та прізвище", FieldValidator.length(2, 100))
+                .text(EnrollmentService.CHILD_AGE, "🎂 *Введіть вік дитини:*",
+                        "❌ Будь ласка, введіть вік від 3 до 18 років", FieldValidator.intRange(3, 18))
+                .text(EnrollmentService.PARENT_NAME, "👨‍👩‍👧 *Введіть ваше ім'я та прізвище:*",
+                        "❌ Будь ласка, введіть коректне ім'я та прізвище", FieldValidator.length(2, 100))
+                .text(EnrollmentService.PARENT_PHONE, "📞 *Введіть ваш номер телефону:*",
+                        "❌ Будь ласка, введіть коректний номер телефону", FieldValidator.phone())
+                .summary(values -> String.format(
+                        "📋 *Перевірте дані:*\n\n" +
+                                "👦 *Дитина:* %s (%s років)\n" +
+                                "👨‍👩‍👧 *Батьки:* %s\n" +
+                                "📞 *Телефон:* %s\n" +
+                                "🎓 *Програма:* %s\n\n" +
+                                "Все вірно?",
+                        values.get(EnrollmentService.CHILD_NAME),
+                        values.get(EnrollmentService.CHILD_AGE),
+                        values.get(EnrollmentService.PARENT_NAME),
+                        values.get(EnrollmentService.PARENT_PHONE),
+                        values.label(EnrollmentService.COURSE)))
+                .callbacks("enrollment_confirm", "enrollment_cancel")
+                .build();
+    }
+
+    @Override
+    public Set<String> getExactCallbacks() {
+        return Set.of("enrollment_general", "enrollment_confirm", "enrollment_cancel", "/requests");
     }
 
     @Override
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
-        this.messageSender = new MessageSender(telegramClient);
+    public boolean isNavigation() {
+        return false;
     }
 
     @Override
-    public boolean canHandle(String callbackData) {
-        return callbackData.startsWith("enroll_") ||
-                callbackData.equals("enrollment_general") ||
-                callbackData.equals("enrollment_confirm") ||
-                callbackData.equals("enrollment_cancel") ||
-                callbackData.equals("/requests") ||
-                callbackData.startsWith("process_request_") ||
-                callbackData.startsWith("view_request_");
+    public Set<String> getCallbackPrefixes() {
+        return Set.of("enroll_", "enrollment_course_", "process_request_", "view_request_");
     }
 
     @Override
     public void handle(long chatId, String callbackData) {
-        if (callbackData.equals("/requests") && isAdmin(chatId)) {
+        if (callbackData.equals("/requests") && adminRegistry.isAdmin(chatId)) {
             showUnprocessedRequests(chatId);
         }
     }
@@ -70,9 +142,9 @@ public class EnrollmentHandler implements MenuHandler {
                 } else if (callbackData.startsWith("enrollment_course_")) {
                     String course = callbackData.substring("enrollment_course_".length());
                     selectCourse(chatId, messageId, course);
-                } else if (callbackData.startsWith("process_request_") && isAdmin(chatId)) {
+                } else if (callbackData.startsWith("process_request_") && adminRegistry.isAdmin(chatId)) {
                     processRequest(chatId, messageId, callbackData);
-                } else if (callbackData.startsWith("view_request_") && isAdmin(chatId)) {
+                } else if (callbackData.startsWith("view_request_") && adminRegistry.isAdmin(chatId)) {
                     String requestId = callbackData.substring("view_request_".length());
                     showRequestDetails(chatId, Long.parseLong(requestId));
                 }
@@ -86,17 +158,12 @@ public class EnrollmentHandler implements MenuHandler {
     private void startEnrollment(long chatId, int messageId, String programType) {
         // Check for recent enrollments with new limit system
         if (enrollmentService.hasRecentEnrollment(chatId, 0)) {
-            int currentCount = enrollmentService.getCurrentRequestCount(chatId);
-            messageSender.editMessage(chatId, messageId,
-                    String.format("⚠️ Ви вже подали максимальну кількість заявок (%d/5). Спробуйте пізніше або зачекайте 30 хвилин.", currentCount),
-                    new MenuBuilder().addButton("⬅️ Назад", "programs_main").build());
+            showLimitReached(chatId, messageId, "programs_main");
             return;
         }
 
-        String courseDisplayName = getCourseDisplayName(programType);
-        enrollmentService.startEnrollment(chatId, programType, courseDisplayName);
-
-        showEnrollmentStep(chatId, messageId, EnrollmentService.EnrollmentStep.CHILD_NAME);
+        FormState state = enrollmentService.startEnrollment(chatId, programType);
+        formView.showStep(chatId, messageId, form, state);
     }
 
     /**
@@ -105,22 +172,19 @@ public class EnrollmentHandler implements MenuHandler {
     private void startGeneralEnrollment(long chatId, int messageId) {
         // Check for recent enrollments with new limit system
         if (enrollmentService.hasRecentEnrollment(chatId, 0)) {
-            int currentCount = enrollmentService.getCurrentRequestCount(chatId);
-            messageSender.editMessage(chatId, messageId,
-                    String.format("⚠️ Ви вже подали максимальну кількість заявок (%d/5). Спробуйте пізніше або зачекайте 30 хвилин.", currentCount),
-                    new MenuBuilder().addButton("⬅️ Назад", "main").build());
+            showLimitReached(chatId, messageId, "main");
             return;
         }
 
-        enrollmentService.startEnrollmentWithoutCourse(chatId);
-        showCourseSelection(chatId, messageId);
+        FormState state = enrollmentService.startEnrollmentWithoutCourse(chatId);
+        formView.showStep(chatId, messageId, form, state);
     }
 
     /**
-     * Show course selection menu
+     * Course selection menu
      */
-    private void showCourseSelection(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
+    private static InlineKeyboardMarkup courseKeyboard() {
+        return new MenuBuilder()
                 // Age 4-6
                 .addButton("📚 Підготовка до школи", "enrollment_course_preschool")
                 .addButton("🧠 Нейропсихолог (дошкільнята)", "enrollment_course_neuropsychologist_preschool")  // NEW
@@ -153,178 +217,57 @@ public class EnrollmentHandler implements MenuHandler {
                 .addButton("☀️ Літні канікули", "enrollment_course_summer_vacation")
                 .addRow()
                 .addButton("❌ Скасувати", "enrollment_cancel")
-                .build();
-
-        messageSender.editMessage(chatId, messageId,
-                "🎓 *Оберіть програму для запису:*", keyboard);
+                .buildFrozen();
     }
 
     /**
      * Handle course selection
      */
     private void selectCourse(long chatId, int messageId, String course) {
-        String courseDisplayName = getCourseDisplayName(course);
-        enrollmentService.setCourse(chatId, course, courseDisplayName);
-        showEnrollmentStep(chatId, messageId, EnrollmentService.EnrollmentStep.CHILD_NAME);
-    }
-
-    /**
-     * Show enrollment step
-     */
-    private void showEnrollmentStep(long chatId, int messageId, EnrollmentService.EnrollmentStep step) {
-        String message = switch (step) {
-            case CHILD_NAME -> "👦 *Введіть ім'я та прізвище дитини:*";
-            case CHILD_AGE -> "🎂 *Введіть вік дитини:*";
-            case PARENT_NAME -> "👨‍👩‍👧 *Введіть ваше ім'я та прізвище:*";
-            case PARENT_PHONE -> "📞 *Введіть ваш номер телефону:*";
-            case CONFIRM -> formatConfirmationMessage(chatId);
-            default -> "Помилка";
-        };
-
-        var keyboard = new MenuBuilder();
-
-        if (step == EnrollmentService.EnrollmentStep.CONFIRM) {
-            keyboard.addButton("✅ Підтвердити", "enrollment_confirm")
-                    .addButton("❌ Скасувати", "enrollment_cancel");
-        } else {
-            keyboard.addButton("❌ Скасувати", "enrollment_cancel");
-        }
-
-        messageSender.editMessage(chatId, messageId, message, keyboard.build());
-    }
-
-    /**
-     * Process text input for enrollment
-     */
-    public boolean processTextInput(long chatId, String text) {
-        EnrollmentService.EnrollmentFormState state = enrollmentService.getEnrollmentState(chatId);
-        if (state == null || state.getCurrentStep() == EnrollmentService.EnrollmentStep.CONFIRM) {
-            return false;
-        }
-
-        // Validate input
-        if (!validateInput(state.getCurrentStep(), text)) {
-            showValidationError(chatId, state.getCurrentStep());
-            return true;
-        }
-
-        EnrollmentService.EnrollmentStep nextStep = enrollmentService.processEnrollmentInput(chatId, text);
-
-        if (nextStep != null) {
-            showEnrollmentStep(chatId, nextStep);
-        }
-
-        return true;
-    }
-
-    /**
-     * Show enrollment step in new message
-     */
-    private void showEnrollmentStep(long chatId, EnrollmentService.EnrollmentStep step) {
-        String message = switch (step) {
-            case CHILD_NAME -> "👦 *Введіть ім'я та прізвище дитини:*";
-            case CHILD_AGE -> "🎂 *Введіть вік дитини:*";
-            case PARENT_NAME -> "👨‍👩‍👧 *Введіть ваше ім'я та прізвище:*";
-            case PARENT_PHONE -> "📞 *Введіть ваш номер телефону:*";
-            case CONFIRM -> formatConfirmationMessage(chatId);
-            default -> "Помилка";
-        };
-
-        var keyboard = new MenuBuilder();
-
-        if (step == EnrollmentService.EnrollmentStep.CONFIRM) {
-            keyboard.addButton("✅ Підтвердити", "enrollment_confirm")
-                    .addButton("❌ Скасувати", "enrollment_cancel");
-        } else {
-            keyboard.addButton("❌ Скасувати", "enrollment_cancel");
-        }
-
-        messageSender.sendMessage(chatId, message, keyboard.build());
-    }
-
-    /**
-     * Validate user input
-     */
-    private boolean validateInput(EnrollmentService.EnrollmentStep step, String input) {
-        return switch (step) {
-            case CHILD_NAME, PARENT_NAME -> input.length() >= 2 && input.length() <= 100;
-            case CHILD_AGE -> {
-                try {
-                    int age = Integer.parseInt(input);
-                    yield age >= 3 && age <= 18;
-                } catch (NumberFormatException e) {
-                    yield false;
-                }
-            }
-            case PARENT_PHONE -> input.matches("^\\+?[0-9\\s\\-()]+$") && input.length() >= 9;
-            default -> true;
-        };
-    }
-
-    /**
-     * Show validation error
-     */
-    private void showValidationError(long chatId, EnrollmentService.EnrollmentStep step) {
-        String error = switch (step) {
-            case CHILD_NAME -> "❌ Будь ласка, введіть коректне ім'я та прізвище";
-            case CHILD_AGE -> "❌ Будь ласка, введіть вік від 3 до 18 років";
-            case PARENT_NAME -> "❌ Будь ласка, введіть коректне ім'я та прізвище";
-            case PARENT_PHONE -> "❌ Будь ласка, введіть коректний номер телефону";
-            default -> "❌ Некоректні дані";
-        };
-
-        var keyboard = new MenuBuilder()
-                .addButton("❌ Скасувати", "enrollment_cancel")
-                .build();
-
-        messageSender.sendMessage(chatId, error + "\n\nСпробуйте ще раз:", keyboard);
-    }
-
-    /**
-     * Format confirmation message
-     */
-    private String formatConfirmationMessage(long chatId) {
-        EnrollmentService.EnrollmentFormState state = enrollmentService.getEnrollmentState(chatId);
+        FormState state = enrollmentService.setCourse(chatId, course);
         if (state == null) {
-            return "Помилка";
+            // The form expired while the course list was open
+            startEnrollment(chatId, messageId, course);
+            return;
         }
-
-        return String.format(
-                "📋 *Перевірте дані:*\n\n" +
-                        "👦 *Дитина:* %s (%s років)\n" +
-                        "👨‍👩‍👧 *Батьки:* %s\n" +
-                        "📞 *Телефон:* %s\n" +
-                        "🎓 *Програма:* %s\n\n" +
-                        "Все вірно?",
-                state.getChildName(),
-                state.getChildAge(),
-                state.getParentName(),
-                state.getParentPhone(),
-                state.getCourseDisplayName()
-        );
+        formView.showStep(chatId, messageId, form, state);
     }
 
     /**
      * Confirm enrollment
      */
     private void confirmEnrollment(long chatId, int messageId) {
-        EnrollmentRequest request = enrollmentService.completeEnrollment(chatId);
-
-        if (request != null) {
-            messageSender.editMessage(chatId, messageId,
+        // The confirmation and the admin copies are stored with the request and sent by the outbox relay
+        EnrollmentRequest request = enrollmentService.completeEnrollment(chatId, saved -> {
+            outbox.edit(chatId, messageId,
                     "✅ *Дякуємо!*\n\nВаша заявка прийнята. Ми зв'яжемося з вами найближчим часом.\n\n" +
-                            "Номер заявки: #" + request.getId(),
-                    new MenuBuilder().addButton("⬅️ На головну", "main").build());
-
-            // Notify admin
-            notifyAdminAboutNewRequest(request);
-        } else {
+                            "Номер заявки: #" + saved.getId(),
+                    null, new MenuBuilder().addButton("⬅️ На головну", "main").build());
+            queueAdminNotification(saved);
+        });
+
+        if (request == null) {
+            if (enrollmentService.hasRecentEnrollment(chatId, 0)) {
+                // Another request took the last slot while this form was open
+                showLimitReached(chatId, messageId, "main");
+                return;
+            }
             messageSender.editMessage(chatId, messageId,
                     "❌ Помилка при збереженні заявки. Спробуйте пізніше.",
                     new MenuBuilder().addButton("⬅️ На головну", "main").build());
         }
     }
 
+    /**
+     * Tell the user they have used up their requests for now
+     */
+    private void showLimitReached(long chatId, int messageId, String backCallback) {
+        messageSender.editMessage(chatId, messageId,
+                String.format("⚠️ Ви вже подали максимальну кількість заявок (%d/%d). Спробуйте пізніше або зачекайте %d хвилин.",
+                        enrollmentService.getCurrentRequestCount(chatId), enrollmentService.getRequestLimit(), enrollmentService.getRequestWindowMinutes()),
+                new MenuBuilder().addButton("⬅️ Назад", backCallback).build());
+    }
+
     /**
      * Cancel enrollment
      */
@@ -336,34 +279,16 @@ public class EnrollmentHandler implements MenuHandler {
     }
 
     /**
-     * Notify admin about new enrollment request
+     * Queue the new enrollment request for every admin
      */
-    private void notifyAdminAboutNewRequest(EnrollmentRequest request) {
+    private void queueAdminNotification(EnrollmentRequest request) {
         String message = enrollmentService.formatRequestForAdmin(request);
 
         var keyboardMarkup = new MenuBuilder()
                 .addButton("✅ Опрацьовано", "process_request_" + request.getId())
                 .build();
 
-        // Send to all admins
-        for (Long adminId : getAdminIds()) {
-            try {
-                SendMessage sendMessage = SendMessage.builder()
-                        .chatId(adminId)
-                        .text(message)
-                        .parseMode("Markdown")
-                        .replyMarkup(keyboardMarkup)
-                        .build();
-
-                Message sentMessage = telegramClient.execute(sendMessage);
-
-                // Save message ID for future reference
-                enrollmentService.updateAdminMessageId(request.getId(), sentMessage.getMessageId());
-
-            } catch (TelegramApiException e) {
-                logger.error("Failed to notify admin {} about enrollment {}", adminId, request.getId(), e);
-            }
-        }
+        outbox.sendToAdmins(RequestAdminMessage.RequestType.ENROLLMENT, request.getId(), message, "Markdown", keyboardMarkup);
     }
 
     /**
@@ -436,65 +361,26 @@ public class EnrollmentHandler implements MenuHandler {
         boolean success = enrollmentService.markAsProcessed(requestId, chatId);
 
         if (success) {
+            // The other admins' copies are marked as handled in one fan-out
+            List<AdminNotifier.Delivery> otherCopies = enrollmentService.getAdminCopies(requestId).stream()
+                    .filter(copy -> copy.adminId() != chatId || copy.messageId() != messageId)
+                    .toList();
+            adminNotifier.editAll("enrollment #" + requestId, otherCopies, "✅ Заявка #" + requestId + " опрацьована");
+
             // Try to delete the message
             try {
-                telegramClient.execute(org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage.builder()
+                outboundScheduler.execute(chatId, org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage.builder()
                         .chatId(chatId)
                         .messageId(messageId)
                         .build());
             } catch (TelegramApiException e) {
-                // If delete fails, just edit the message
-                messageSender.editMessage(chatId, messageId,
-                        "✅ Заявка #" + requestId + " опрацьована",
-                        new MenuBuilder().build());
+                // If delete fails, just edit the message (unless the delete is only late)
+                if (!TelegramErrors.isTimeout(e)) {
+                    messageSender.editMessage(chatId, messageId,
+                            "✅ Заявка #" + requestId + " опрацьована",
+                            new MenuBuilder().build());
+                }
             }
         }
     }
-
-    /**
-     * Get course display name
-     */
-    private String getCourseDisplayName(String courseKey) {
-        return switch (courseKey) {
-            case "preschool" -> "Підготовка до школи";
-            case "neuropsychologist_preschool" -> "Нейропсихолог (дошкільнята)";
-            case "primary" -> "Початкова школа";
-            case "english" -> "Англійська мова (6-10 років)";
-            case "english_middle" -> "Англійська мова (11-15 років)";
-            case "financial" -> "Фінансова грамотність";
-            case "creative" -> "Творчі гуртки";
-            case "teen_psychologist", "teen_psychology" -> "Психолог (підлітки)";
-            case "nmt" -> "Підготовка до НМТ";
-            case "psychologist" -> "Психолог";
-            case "speech_therapist" -> "Логопед";
-            case "neuropedagog" -> "Нейропедагог";
-            case "autumn_vacation" -> "Осінні канікули";
-            case "winter_vacation" -> "Зимові канікули";
-            case "spring_vacation" -> "Весняні канікули";
-            case "summer_vacation" -> "Літні канікули";
-            default -> courseKey;
-        };
-    }
-
-    /**
-     * Check if user is admin
-     */
-    private boolean isAdmin(long userId) {
-        return getAdminIds().contains(userId);
-    }
-
-    /**
-     * Get admin IDs
-     */
-    private List<Long> getAdminIds() {
-        if (adminUserIds == null || adminUserIds.isEmpty()) {
-            return List.of();
-        }
-
-        return java.util.Arrays.stream(adminUserIds.split(","))
-                .map(String::trim)
-                .filter(id -> !id.isEmpty())
-                .map(Long::parseLong)
-                .toList();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package com.NickSishchuck.StezhkaBot.handler;
+
+import com.NickSishchuck.StezhkaBot.form.FormEngine;
+import com.NickSishchuck.StezhkaBot.form.FormView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Text input for whichever form (enrollment, consultation) the user is filling in
+ */
+@Component
+public class FormInputHandler implements TextInputHandler {
+
+    private final FormEngine formEngine;
+    private final FormView formView;
+
+    @Autowired
+    public FormInputHandler(FormEngine formEngine, FormView formView) {
+        this.formEngine = formEngine;
+        this.formView = formView;
+    }
+
+    @Override
+    public String getFlowId() {
+        return FormEngine.FLOW_ID;
+    }
+
+    /**
+     * @return false when the user has no form waiting for text
+     */
+    @Override
+    public boolean processTextInput(long chatId, String text) {
+        FormEngine.InputResult result = formEngine.submit(chatId, text);
+
+        return switch (result.status()) {
+            case NO_FORM, AWAITING_CONFIRMATION -> false;
+            case INVALID -> {
+                formView.showValidationError(chatId, result.definition(), result.field());
+                yield true;
+            }
+            case ACCEPTED, AWAITING_CHOICE -> {
+                formView.showStep(chatId, null, result.definition(), result.state());
+                yield true;
+            }
+        };
+    }
+}
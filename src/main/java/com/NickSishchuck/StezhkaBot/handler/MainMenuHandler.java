@@ -1,36 +1,47 @@
 package com.NickSishchuck.StezhkaBot.handler;
 
 import com.NickSishchuck.StezhkaBot.constants.MenuTexts;
+import com.NickSishchuck.StezhkaBot.utils.KeyboardRegistry;
 import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
 import com.NickSishchuck.StezhkaBot.utils.MessageSender;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.util.Set;
 
 @Component
 public class MainMenuHandler implements MenuHandler {
 
-    private TelegramClient telegramClient;
-    private MessageSender messageSender;
+    private final MessageSender messageSender;
+    private final KeyboardRegistry keyboards;
 
     private final MenuTexts menuTexts;
 
     @Autowired
-    public MainMenuHandler(MenuTexts menuTexts) {
+    public MainMenuHandler(MenuTexts menuTexts, MessageSender messageSender, KeyboardRegistry keyboards) {
         this.menuTexts = menuTexts;
+        this.messageSender = messageSender;
+        this.keyboards = keyboards;
+        registerKeyboards();
     }
 
-    @Override
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
-        this.messageSender = new MessageSender(telegramClient);
+    private void registerKeyboards() {
+        keyboards.register("main.welcome_message", new MenuBuilder()
+                .addButton("🚀 Почати", "main"));
+
+        keyboards.register("main.main_menu", new MenuBuilder()
+                .addButton("🎓 Напрями", "directions_main")
+                .addButton("📞 Записатися на консультацію", "consultations_main")
+                .addRow()
+                .addButton("❓ Часті запитання", "faq_show")
+                .addButton("📋 Контакти та адреса", "contacts_show")
+                .addRow()
+                .addButton("📢 Новини та акції", "news_show"));
     }
 
     @Override
-    public boolean canHandle(String callbackData) {
-        return callbackData.equals("start") ||
-                callbackData.equals("main") ||
-                callbackData.equals("back_main");
+    public Set<String> getExactCallbacks() {
+        return Set.of("start", "main", "back_main");
     }
 
     @Override
@@ -50,45 +61,25 @@ public class MainMenuHandler implements MenuHandler {
     }
 
     private void showWelcomeMessage(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🚀 Почати", "main")
-                .build();
+        var keyboard = keyboards.get("main.welcome_message");
 
         messageSender.sendMessage(chatId, menuTexts.getWelcomeMessage(), keyboard);
     }
 
     private void editWelcomeMessage(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🚀 Почати", "main")
-                .build();
+        var keyboard = keyboards.get("main.welcome_message");
 
         messageSender.editMessage(chatId, messageId, menuTexts.getWelcomeMessage(), keyboard);
     }
 
     private void showMainMenu(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🎓 Напрями", "directions_main")
-                .addButton("📞 Записатися на консультацію", "consultations_main")
-                .addRow()
-                .addButton("❓ Часті запитання", "faq_show")
-                .addButton("📋 Контакти та адреса", "contacts_show")
-                .addRow()
-                .addButton("📢 Новини та акції", "news_show")
-                .build();
+        var keyboard = keyboards.get("main.main_menu");
 
         messageSender.sendMessage(chatId, menuTexts.getMainMenuMessage(), keyboard);
     }
 
     private void editMainMenu(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("🎓 Напрями", "directions_main")
-                .addButton("📞 Записатися на консультацію", "consultations_main")
-                .addRow()
-                .addButton("❓ Часті запитання", "faq_show")
-                .addButton("📋 Контакти та адреса", "contacts_show")
-                .addRow()
-                .addButton("📢 Новини та акції", "news_show")
-                .build();
+        var keyboard = keyboards.get("main.main_menu");
 
         messageSender.editMessage(chatId, messageId, menuTexts.getMainMenuMessage(), keyboard);
     }
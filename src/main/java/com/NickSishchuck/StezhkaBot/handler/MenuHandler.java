@@ -1,10 +1,35 @@
 package com.NickSishchuck.StezhkaBot.handler;
 
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+import java.util.Set;
 
 public interface MenuHandler {
     void handle(long chatId, String callbackData);
     void handle(long chatId, int messageId, String callbackData);
-    boolean canHandle(String callbackData);
-    void setTelegramClient(TelegramClient telegramClient);
-}
\ No newline at end of file
+
+    /**
+     * Callback data values this handler owns exactly
+     */
+    Set<String> getExactCallbacks();
+
+    /**
+     * Callback data prefixes this handler owns (e.g. "program_")
+     */
+    default Set<String> getCallbackPrefixes() {
+        return Set.of();
+    }
+
+    /**
+     * Whether the callbacks only move between menu screens. Navigation taps may be collapsed or
+     * shed under load; handlers whose callbacks submit or change something return false.
+     */
+    default boolean isNavigation() {
+        return true;
+    }
+
+    /**
+     * Whether the callback opens a screen that never changes, so clients may cache the answer
+     */
+    default boolean isStaticScreen(String callbackData) {
+        return false;
+    }
+}
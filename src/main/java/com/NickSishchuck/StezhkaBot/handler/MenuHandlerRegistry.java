@@ -1,58 +1,176 @@
 package com.NickSishchuck.StezhkaBot.handler;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Routes callback data to handlers through a table compiled once at startup:
+ * exact callbacks live in a hash map, prefixes in a trie, and the main menu
+ * handler is resolved up front as the fallback.
+ */
 @Component
 public class MenuHandlerRegistry {
 
+    private static final Logger logger = LoggerFactory.getLogger(MenuHandlerRegistry.class);
+    private static final String FALLBACK_CALLBACK = "main";
+
     private final List<MenuHandler> handlers;
-    private TelegramClient telegramClient;
+    private final Map<String, MenuHandler> exactRoutes = new HashMap<>();
+    private final PrefixTrie prefixRoutes = new PrefixTrie();
+    private final MenuHandler fallbackHandler;
 
     @Autowired
     public MenuHandlerRegistry(List<MenuHandler> handlers) {
         this.handlers = handlers;
-    }
-
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
-        handlers.forEach(handler -> handler.setTelegramClient(telegramClient));
+        compileRoutes();
+        this.fallbackHandler = resolve(FALLBACK_CALLBACK);
+        if (fallbackHandler == null) {
+            logger.warn("No handler declares '{}', unknown callbacks will be ignored", FALLBACK_CALLBACK);
+        }
+        logger.info("Compiled {} exact and {} prefix callback routes for {} handlers",
+                exactRoutes.size(), prefixRoutes.size(), handlers.size());
     }
 
     // For text messages (send new message)
     public void handle(long chatId, String callbackData) {
-        handlers.stream()
-                .filter(handler -> handler.canHandle(callbackData))
-                .findFirst()
-                .ifPresentOrElse(
-                        handler -> handler.handle(chatId, callbackData),
-                        () -> {
-                            // Fallback to main menu if no handler found
-                            handlers.stream()
-                                    .filter(handler -> handler.canHandle("main"))
-                                    .findFirst()
-                                    .ifPresent(handler -> handler.handle(chatId, "main"));
-                        }
-                );
+        MenuHandler handler = resolve(callbackData);
+        if (handler != null) {
+            handler.handle(chatId, callbackData);
+        } else if (fallbackHandler != null) {
+            // Fallback to main menu if no handler found
+            fallbackHandler.handle(chatId, FALLBACK_CALLBACK);
+        }
     }
 
     // For callback queries (edit existing message)
     public void handle(long chatId, int messageId, String callbackData) {
-        handlers.stream()
-                .filter(handler -> handler.canHandle(callbackData))
-                .findFirst()
-                .ifPresentOrElse(
-                        handler -> handler.handle(chatId, messageId, callbackData),
-                        () -> {
-                            // Fallback to main menu if no handler found
-                            handlers.stream()
-                                    .filter(handler -> handler.canHandle("main"))
-                                    .findFirst()
-                                    .ifPresent(handler -> handler.handle(chatId, messageId, "main"));
-                        }
-                );
+        MenuHandler handler = resolve(callbackData);
+        if (handler != null) {
+            handler.handle(chatId, messageId, callbackData);
+        } else if (fallbackHandler != null) {
+            // Fallback to main menu if no handler found
+            fallbackHandler.handle(chatId, messageId, FALLBACK_CALLBACK);
+        }
+    }
+
+    /**
+     * Find the handler owning the callback: exact match first, then the longest declared prefix
+     */
+    public MenuHandler resolve(String callbackData) {
+        if (callbackData == null) {
+            return null;
+        }
+        MenuHandler handler = exactRoutes.get(callbackData);
+        return handler != null ? handler : prefixRoutes.longestMatch(callbackData);
+    }
+
+    /**
+     * Build the routing table and fail startup on ambiguous declarations
+     */
+    private void compileRoutes() {
+        List<String> conflicts = new ArrayList<>();
+        Map<String, MenuHandler> prefixOwners = new HashMap<>();
+
+        for (MenuHandler handler : handlers) {
+            for (String prefix : handler.getCallbackPrefixes()) {
+                if (prefix.isEmpty() || !prefix.chars().allMatch(c -> c < PrefixTrie.ALPHABET)) {
+                    conflicts.add(String.format("%s declares invalid prefix '%s'", name(handler), prefix));
+                    continue;
+                }
+                prefixOwners.forEach((otherPrefix, owner) -> {
+                    if (owner != handler && (prefix.startsWith(otherPrefix) || otherPrefix.startsWith(prefix))) {
+                        conflicts.add(String.format("prefix '%s' of %s overlaps prefix '%s' of %s",
+                                prefix, name(handler), otherPrefix, name(owner)));
+                    }
+                });
+                prefixOwners.putIfAbsent(prefix, handler);
+                prefixRoutes.put(prefix, handler);
+            }
+        }
+
+        for (MenuHandler handler : handlers) {
+            for (String callback : handler.getExactCallbacks()) {
+                MenuHandler previous = exactRoutes.putIfAbsent(callback, handler);
+                if (previous != null && previous != handler) {
+                    conflicts.add(String.format("callback '%s' is claimed by %s and %s",
+                            callback, name(previous), name(handler)));
+                }
+                MenuHandler prefixOwner = prefixRoutes.longestMatch(callback);
+                if (prefixOwner != null && prefixOwner != handler) {
+                    conflicts.add(String.format("callback '%s' of %s is also covered by a prefix of %s",
+                            callback, name(handler), name(prefixOwner)));
+                }
+            }
+        }
+
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("Conflicting callback routes:\n  " + String.join("\n  ", conflicts));
+        }
+    }
+
+    private static String name(MenuHandler handler) {
+        String simpleName = handler.getClass().getSimpleName();
+        return simpleName.isEmpty() ? handler.getClass().getName() : simpleName;
+    }
+
+    /**
+     * Character trie over ASCII callback prefixes; a lookup walks the callback once
+     * and keeps the deepest node that ends a declared prefix.
+     */
+    private static final class PrefixTrie {
+        private static final int ALPHABET = 128;
+
+        private final Node root = new Node();
+        private int size;
+
+        void put(String prefix, MenuHandler handler) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                int c = prefix.charAt(i);
+                if (node.children == null) {
+                    node.children = new Node[ALPHABET];
+                }
+                if (node.children[c] == null) {
+                    node.children[c] = new Node();
+                }
+                node = node.children[c];
+            }
+            if (node.handler == null) {
+                size++;
+            }
+            node.handler = handler;
+        }
+
+        MenuHandler longestMatch(String value) {
+            Node node = root;
+            MenuHandler match = null;
+            for (int i = 0; i < value.length(); i++) {
+                int c = value.charAt(i);
+                if (c >= ALPHABET || node.children == null || node.children[c] == null) {
+                    break;
+                }
+                node = node.children[c];
+                if (node.handler != null) {
+                    match = node.handler;
+                }
+            }
+            return match;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static final class Node {
+            private Node[] children;
+            private MenuHandler handler;
+        }
     }
-}
\ No newline at end of file
+}
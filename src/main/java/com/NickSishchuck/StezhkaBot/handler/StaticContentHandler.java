@@ -1,35 +1,42 @@
 package com.NickSishchuck.StezhkaBot.handler;
 
 import com.NickSishchuck.StezhkaBot.constants.MenuTexts;
+import com.NickSishchuck.StezhkaBot.utils.KeyboardRegistry;
 import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
 import com.NickSishchuck.StezhkaBot.utils.MessageSender;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.util.Set;
 
 @Component
 public class StaticContentHandler implements MenuHandler {
 
-    private TelegramClient telegramClient;
-    private MessageSender messageSender;
+    private final MessageSender messageSender;
+    private final KeyboardRegistry keyboards;
     private final MenuTexts menuTexts;
 
     @Autowired
-    public StaticContentHandler(MenuTexts menuTexts) {
+    public StaticContentHandler(MenuTexts menuTexts, MessageSender messageSender, KeyboardRegistry keyboards) {
         this.menuTexts = menuTexts;
+        this.messageSender = messageSender;
+        this.keyboards = keyboards;
+        registerKeyboards();
+    }
+
+    private void registerKeyboards() {
+        keyboards.register("static.back_main", new MenuBuilder()
+                .addButton("⬅️ Назад", "back_main"));
     }
 
     @Override
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
-        this.messageSender = new MessageSender(telegramClient);
+    public Set<String> getExactCallbacks() {
+        return Set.of("faq_show", "contacts_show", "news_show");
     }
 
     @Override
-    public boolean canHandle(String callbackData) {
-        return callbackData.equals("faq_show") ||
-                callbackData.equals("contacts_show") ||
-                callbackData.equals("news_show");
+    public boolean isStaticScreen(String callbackData) {
+        return getExactCallbacks().contains(callbackData);
     }
 
     @Override
@@ -51,49 +58,37 @@ public class StaticContentHandler implements MenuHandler {
     }
 
     private void showFAQ(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "back_main")
-                .build();
+        var keyboard = keyboards.get("static.back_main");
 
         messageSender.sendMessage(chatId, menuTexts.getFaqText(), keyboard);
     }
 
     private void editFAQ(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "back_main")
-                .build();
+        var keyboard = keyboards.get("static.back_main");
 
         messageSender.editMessage(chatId, messageId, menuTexts.getFaqText(), keyboard);
     }
 
     private void showContacts(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "back_main")
-                .build();
+        var keyboard = keyboards.get("static.back_main");
 
         messageSender.sendMessage(chatId, menuTexts.getContactsText(), keyboard);
     }
 
     private void editContacts(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "back_main")
-                .build();
+        var keyboard = keyboards.get("static.back_main");
 
         messageSender.editMessage(chatId, messageId, menuTexts.getContactsText(), keyboard);
     }
 
     private void showNews(long chatId) {
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "back_main")
-                .build();
+        var keyboard = keyboards.get("static.back_main");
 
         messageSender.sendMessage(chatId, menuTexts.getNewsText(), keyboard);
     }
 
     private void editNews(long chatId, int messageId) {
-        var keyboard = new MenuBuilder()
-                .addButton("⬅️ Назад", "back_main")
-                .build();
+        var keyboard = keyboards.get("static.back_main");
 
         messageSender.editMessage(chatId, messageId, menuTexts.getNewsText(), keyboard);
     }
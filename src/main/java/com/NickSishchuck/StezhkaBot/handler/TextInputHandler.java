@@ -0,0 +1,17 @@
+package com.NickSishchuck.StezhkaBot.handler;
+
+/**
+ * Handler for free text typed while a flow owns the chat (see ActiveFlowIndex)
+ */
+public interface TextInputHandler {
+
+    /**
+     * Flow id this handler claims chats under
+     */
+    String getFlowId();
+
+    /**
+     * @return false when the flow is not expecting text right now
+     */
+    boolean processTextInput(long chatId, String text);
+}
@@ -0,0 +1,33 @@
+package com.NickSishchuck.StezhkaBot.menu;
+
+import java.util.List;
+
+/**
+ * A menu tree as written in src/main/resources/menus/*.json, before {@link MenuTree#compile} checks it.
+ *
+ * <pre>
+ * { "screens": [
+ *     { "id": "age_4_6", "textKey": "AGE_4_6_MESSAGE",
+ *       "rows": [ [ { "label": "📚 Підготовка до школи", "to": "program_preschool" } ],
+ *                 [ { "label": "⬅️ Назад", "to": "directions_main" } ] ] } ] }
+ * </pre>
+ */
+public record MenuDefinition(List<Screen> screens) {
+
+    /**
+     * @param id       callback data that opens the screen
+     * @param aliases  further callbacks opening it (old callback names)
+     * @param textKey  text_content key of the message, or null to use text
+     * @param text     fixed message text
+     * @param rows     keyboard rows
+     */
+    public record Screen(String id, List<String> aliases, String textKey, String text, List<List<Button>> rows) {
+    }
+
+    /**
+     * @param to       id of a screen in the same tree
+     * @param callback callback handled outside the tree (e.g. "back_main", "enroll_nmt"), used when to is not set
+     */
+    public record Button(String label, String to, String callback) {
+    }
+}
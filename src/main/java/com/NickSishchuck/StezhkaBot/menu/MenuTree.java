@@ -0,0 +1,127 @@
+package com.NickSishchuck.StezhkaBot.menu;
+
+import com.NickSishchuck.StezhkaBot.utils.KeyboardRegistry;
+import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A compiled, immutable menu tree: one table lookup takes a callback to its screen, whose keyboard is
+ * frozen (registered in the {@link KeyboardRegistry} as "name.screenId") and whose text is read on render,
+ * so admin edits of the text keys show up without a restart.
+ */
+public final class MenuTree {
+
+    private final String name;
+    private final Map<String, Screen> routes;
+
+    private MenuTree(String name, Map<String, Screen> routes) {
+        this.name = name;
+        this.routes = Map.copyOf(routes);
+    }
+
+    /**
+     * Check the definition and build the routing table; any mistake fails startup
+     *
+     * @param texts looks up a text_content key
+     */
+    public static MenuTree compile(String name, MenuDefinition definition, Function<String, String> texts,
+                                   KeyboardRegistry keyboards) {
+        List<MenuDefinition.Screen> screens = definition.screens() != null ? definition.screens() : List.of();
+        List<String> problems = new ArrayList<>();
+
+        Map<String, MenuDefinition.Screen> byId = new HashMap<>();
+        for (MenuDefinition.Screen screen : screens) {
+            if (screen.id() == null || screen.id().isBlank()) {
+                problems.add("a screen has no id");
+            } else if (byId.putIfAbsent(screen.id(), screen) != null) {
+                problems.add("screen '" + screen.id() + "' is defined twice");
+            }
+        }
+
+        Map<String, Screen> routes = new HashMap<>();
+        for (MenuDefinition.Screen screen : byId.values()) {
+            if ((screen.textKey() == null) == (screen.text() == null)) {
+                problems.add("screen '" + screen.id() + "' needs exactly one of textKey and text");
+                continue;
+            }
+
+            MenuBuilder keyboard = new MenuBuilder();
+            for (List<MenuDefinition.Button> row : screen.rows() != null ? screen.rows() : List.<List<MenuDefinition.Button>>of()) {
+                for (MenuDefinition.Button button : row) {
+                    String callback = button.to() != null ? button.to() : button.callback();
+                    if (button.label() == null || callback == null) {
+                        problems.add("screen '" + screen.id() + "' has a button without label or target");
+                    } else if (button.to() != null && !byId.containsKey(button.to())) {
+                        problems.add("screen '" + screen.id() + "' links to unknown screen '" + button.to() + "'");
+                    } else {
+                        keyboard.addButton(button.label(), callback);
+                    }
+                }
+                keyboard.addRow();
+            }
+
+            String keyboardId = name + "." + screen.id();
+            keyboards.register(keyboardId, keyboard);
+            String textKey = screen.textKey();
+            String text = screen.text();
+            Supplier<String> renderer = textKey != null ? () -> texts.apply(textKey) : () -> text;
+            Screen compiled = new Screen(screen.id(), renderer, keyboards.get(keyboardId));
+
+            List<String> callbacks = new ArrayList<>();
+            callbacks.add(screen.id());
+            if (screen.aliases() != null) {
+                callbacks.addAll(screen.aliases());
+            }
+            for (String callback : callbacks) {
+                Screen existing = routes.putIfAbsent(callback, compiled);
+                if (existing != null) {
+                    problems.add("callback '" + callback + "' opens both '" + existing.id() + "' and '" + screen.id() + "'");
+                }
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Menu tree '" + name + "' is invalid: " + String.join("; ", problems));
+        }
+        return new MenuTree(name, routes);
+    }
+
+    /**
+     * @return the screen the callback opens, or null when it is not part of this tree
+     */
+    public Screen resolve(String callbackData) {
+        return routes.get(callbackData);
+    }
+
+    /**
+     * Every callback that opens a screen, aliases included
+     */
+    public Set<String> getCallbacks() {
+        return routes.keySet();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    /**
+     * A compiled screen: its text is rendered on every call, the keyboard is shared
+     */
+    public record Screen(String id, Supplier<String> renderer, InlineKeyboardMarkup keyboard) {
+        public String render() {
+            return renderer.get();
+        }
+    }
+}
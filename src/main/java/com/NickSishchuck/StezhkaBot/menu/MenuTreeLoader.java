@@ -0,0 +1,49 @@
+package com.NickSishchuck.StezhkaBot.menu;
+
+import com.NickSishchuck.StezhkaBot.service.TextContentService;
+import com.NickSishchuck.StezhkaBot.utils.KeyboardRegistry;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads menu trees from classpath:menus/{name}.json and compiles them at startup
+ */
+@Component
+public class MenuTreeLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(MenuTreeLoader.class);
+
+    private final ObjectMapper objectMapper;
+    private final TextContentService textContentService;
+    private final KeyboardRegistry keyboards;
+
+    @Autowired
+    public MenuTreeLoader(ObjectMapper objectMapper, TextContentService textContentService, KeyboardRegistry keyboards) {
+        // Unknown fields are typos in a hand-written file, not a newer format
+        this.objectMapper = objectMapper.copy().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.textContentService = textContentService;
+        this.keyboards = keyboards;
+    }
+
+    public MenuTree load(String name) {
+        String path = "menus/" + name + ".json";
+        MenuDefinition definition;
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            definition = objectMapper.readValue(in, MenuDefinition.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read menu tree " + path + ": " + e.getMessage(), e);
+        }
+
+        MenuTree tree = MenuTree.compile(name, definition, textContentService::getText, keyboards);
+        logger.info("Menu tree '{}' compiled: {} callbacks", name, tree.size());
+        return tree;
+    }
+}
@@ -21,6 +21,4 @@ public interface ConsultationRequestRepository extends JpaRepository<Consultatio
     // Count unprocessed requests
     long countByStatus(ConsultationRequest.ConsultationStatus status);
 
-    // Find by admin message ID
-    Optional<ConsultationRequest> findByAdminMessageId(Integer adminMessageId);
 }
\ No newline at end of file
@@ -22,8 +22,6 @@ public interface EnrollmentRequestRepository extends JpaRepository<EnrollmentReq
     // Count unprocessed requests
     long countByStatus(EnrollmentRequest.EnrollmentStatus status);
 
-    // Find by admin message ID
-    Optional<EnrollmentRequest> findByAdminMessageId(Integer adminMessageId);
 
     // Statistics queries
     @Query("SELECT COUNT(e) FROM EnrollmentRequest e WHERE e.createdAt >= :startDate")
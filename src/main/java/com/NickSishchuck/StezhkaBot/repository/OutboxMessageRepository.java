@@ -0,0 +1,59 @@
+package com.NickSishchuck.StezhkaBot.repository;
+
+import com.NickSishchuck.StezhkaBot.entity.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Lease up to `limit` due messages (oldest first) to one relay; expired leases are taken over
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE notification_outbox SET lease_owner = :owner, lease_until = :until " +
+            "WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "AND (lease_until IS NULL OR lease_until < :now) " +
+            "ORDER BY id LIMIT :limit", nativeQuery = true)
+    int claim(@Param("owner") String owner, @Param("until") LocalDateTime until,
+              @Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Write a delivery result and release the lease, only if the relay still holds it
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = :status, m.attempts = :attempts, m.messageId = :messageId, " +
+            "m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError, m.sentAt = :sentAt, " +
+            "m.leaseOwner = NULL, m.leaseUntil = NULL WHERE m.id = :id AND m.leaseOwner = :owner")
+    int settle(@Param("id") Long id, @Param("owner") String owner,
+               @Param("status") OutboxMessage.OutboxStatus status, @Param("attempts") int attempts,
+               @Param("messageId") Integer messageId, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+               @Param("lastError") String lastError, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * @return 0 when the message is no longer leased to owner and nothing was written
+     */
+    default int settle(OutboxMessage message, String owner) {
+        return settle(message.getId(), owner, message.getStatus(), message.getAttempts(), message.getMessageId(),
+                message.getNextAttemptAt(), message.getLastError(), message.getSentAt());
+    }
+
+    // Messages currently leased to a relay
+    List<OutboxMessage> findByLeaseOwnerAndStatusAndLeaseUntilAfterOrderByIdAsc(
+            String leaseOwner, OutboxMessage.OutboxStatus status, LocalDateTime now);
+
+    long countByStatus(OutboxMessage.OutboxStatus status);
+
+    // Oldest undelivered message, for the relay lag
+    Optional<OutboxMessage> findFirstByStatusOrderByIdAsc(OutboxMessage.OutboxStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxMessage m WHERE m.status = :status AND m.createdAt < :before")
+    int deleteByStatusBefore(@Param("status") OutboxMessage.OutboxStatus status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,19 @@
+package com.NickSishchuck.StezhkaBot.repository;
+
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RequestAdminMessageRepository extends JpaRepository<RequestAdminMessage, Long> {
+
+    // Every admin's copy of a request notification
+    List<RequestAdminMessage> findByRequestTypeAndRequestId(RequestAdminMessage.RequestType requestType, Long requestId);
+
+    // The request behind a notification message (uses the chat_id, message_id index)
+    Optional<RequestAdminMessage> findFirstByChatIdAndMessageIdAndRequestType(
+            Long chatId, Integer messageId, RequestAdminMessage.RequestType requestType);
+}
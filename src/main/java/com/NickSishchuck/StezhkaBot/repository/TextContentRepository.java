@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +19,9 @@ public interface TextContentRepository extends JpaRepository<TextContent, Long>
     Optional<TextContent> findByTextKey(String textKey);
 
     boolean existsByTextKey(String textKey);
+
+    /**
+     * Rows changed since the given watermark (incremental cache refresh)
+     */
+    List<TextContent> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
\ No newline at end of file
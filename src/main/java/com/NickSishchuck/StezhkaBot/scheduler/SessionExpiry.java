@@ -0,0 +1,97 @@
+package com.NickSishchuck.StezhkaBot.scheduler;
+
+import com.NickSishchuck.StezhkaBot.utils.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Expires idle sessions (forms in progress, admin edits, rate-limit windows) on a shared timing wheel.
+ * A service registers a handler for its namespace and touches a chat whenever its session starts or
+ * changes; the handler runs once the chat has not been touched for the given timeout.
+ */
+@Component
+public class SessionExpiry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionExpiry.class);
+
+    private final long tickMillis;
+    private final HashedTimingWheel<SessionKey> wheel;
+    private final Map<String, LongConsumer> handlers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SessionExpiry(@Value("${bot.sessions.tick-ms:1000}") long tickMillis,
+                         @Value("${bot.sessions.wheel-size:512}") int wheelSize) {
+        this.tickMillis = Math.max(10, tickMillis);
+        this.wheel = new HashedTimingWheel<>(Duration.ofMillis(this.tickMillis), wheelSize, System.nanoTime());
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the handler called with the chat id when a session in this namespace expires
+     */
+    public void register(String namespace, LongConsumer onExpire) {
+        if (handlers.putIfAbsent(namespace, onExpire) != null) {
+            throw new IllegalStateException("Session namespace already registered: " + namespace);
+        }
+    }
+
+    /**
+     * (Re)start the chat's timeout in this namespace
+     */
+    public void touch(String namespace, long chatId, Duration timeout) {
+        wheel.schedule(new SessionKey(namespace, chatId), System.nanoTime() + timeout.toNanos());
+    }
+
+    public void cancel(String namespace, long chatId) {
+        wheel.cancel(new SessionKey(namespace, chatId));
+    }
+
+    public int getScheduledCount() {
+        return wheel.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private void tick() {
+        List<SessionKey> expired = wheel.advance(System.nanoTime());
+        for (SessionKey key : expired) {
+            LongConsumer handler = handlers.get(key.namespace());
+            if (handler == null) {
+                continue;
+            }
+            try {
+                handler.accept(key.chatId());
+            } catch (RuntimeException e) {
+                // Keep the ticker alive; the session gets a new timeout the next time it is touched
+                logger.error("Failed to expire {} session for chat {}", key.namespace(), key.chatId(), e);
+            }
+        }
+    }
+
+    private record SessionKey(String namespace, long chatId) {
+    }
+}
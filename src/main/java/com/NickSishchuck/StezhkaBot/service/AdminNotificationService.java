@@ -2,27 +2,28 @@ package com.NickSishchuck.StezhkaBot.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class AdminNotificationService {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminNotificationService.class);
 
-    private String adminUserIds = "1006790528";
+    private final OutboundScheduler outboundScheduler;
+    private final AdminRegistry adminRegistry;
+    private final AdminNotifier adminNotifier;
 
-    private TelegramClient telegramClient;
-
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
+    @Autowired
+    public AdminNotificationService(OutboundScheduler outboundScheduler, AdminRegistry adminRegistry,
+                                    AdminNotifier adminNotifier) {
+        this.outboundScheduler = outboundScheduler;
+        this.adminRegistry = adminRegistry;
+        this.adminNotifier = adminNotifier;
     }
 
     /**
@@ -42,9 +43,9 @@ public class AdminNotificationService {
     }
 
     /**
-     * Send shutdown notification to all admins
+     * Send shutdown notification to all admins; the future completes once it is out
      */
-    public void sendShutdownNotification(String botUsername) {
+    public CompletableFuture<Void> sendShutdownNotification(String botUsername) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
         String message = String.format(
                 "🔴 Bot Going Offline\n\n" +
@@ -56,7 +57,7 @@ public class AdminNotificationService {
                 timestamp, botUsername
         );
 
-        sendToAllAdmins(message, "shutdown");
+        return sendToAllAdmins(message, "shutdown");
     }
 
     /**
@@ -111,63 +112,16 @@ public class AdminNotificationService {
     }
 
     /**
-     * Send message to all admin users
-     */
-    private void sendToAllAdmins(String message, String type) {
-        if (telegramClient == null) {
-            logger.warn("TelegramClient not available for {} notification", type);
-            return;
-        }
-
-        List<Long> adminIds = getAdminUserIds();
-        if (adminIds.isEmpty()) {
-            logger.info("No admin users configured for {} notifications", type);
-            return;
-        }
-
-        for (Long adminId : adminIds) {
-            try {
-                SendMessage sendMessage = SendMessage.builder()
-                        .chatId(adminId)
-                        .text(message)
-                        .build();
-
-                telegramClient.execute(sendMessage);
-                logger.info("Sent {} notification to admin {}", type, adminId);
-
-                // Small delay to avoid rate limiting
-                Thread.sleep(100);
-
-            } catch (Exception e) {
-                logger.error("Failed to send {} notification to admin {}: {}", type, adminId, e.getMessage());
-            }
-        }
-    }
-
-    /**
-     * Parse admin user IDs from configuration
+     * Send message to all admin users in parallel; the outbound scheduler keeps the sends within Telegram limits
      */
-    private List<Long> getAdminUserIds() {
-        if (adminUserIds == null || adminUserIds.trim().isEmpty()) {
-            return List.of();
-        }
-
-        try {
-            return Arrays.stream(adminUserIds.split(","))
-                    .map(String::trim)
-                    .filter(id -> !id.isEmpty())
-                    .map(Long::parseLong)
-                    .toList();
-        } catch (NumberFormatException e) {
-            logger.error("Invalid admin user ID format: {}", adminUserIds, e);
-            return List.of();
-        }
+    private CompletableFuture<Void> sendToAllAdmins(String message, String type) {
+        return adminNotifier.broadcast(type, message, null, null).thenAccept(deliveries -> { });
     }
 
     /**
      * Check if admin notifications are configured
      */
     public boolean areAdminNotificationsConfigured() {
-        return !getAdminUserIds().isEmpty() && telegramClient != null;
+        return adminRegistry.hasAdmins() && outboundScheduler.isReady();
     }
 }
\ No newline at end of file
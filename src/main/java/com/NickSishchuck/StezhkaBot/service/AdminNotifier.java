@@ -0,0 +1,152 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import com.NickSishchuck.StezhkaBot.utils.RenderedMessageCache;
+import com.NickSishchuck.StezhkaBot.utils.TelegramErrors;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends one message to every admin without blocking the caller.
+ * All sends are queued on the outbound scheduler at once, so admins are served in parallel (each has
+ * its own chat lane) while the global limit still applies. The returned future completes with the
+ * message id each admin received once every send has finished; editAll() later updates those copies
+ * the same way, skipping copies that already show the text.
+ */
+@Service
+public class AdminNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminNotifier.class);
+
+    private final OutboundScheduler outboundScheduler;
+    private final AdminRegistry adminRegistry;
+    private final ExecutorService outboundExecutor;
+    private final RenderedMessageCache renderedMessages;
+
+    /**
+     * A notification that reached an admin
+     */
+    public record Delivery(long adminId, int messageId) {
+    }
+
+    @Autowired
+    public AdminNotifier(OutboundScheduler outboundScheduler, AdminRegistry adminRegistry,
+                         @Qualifier("outboundExecutor") ExecutorService outboundExecutor,
+                         RenderedMessageCache renderedMessages) {
+        this.outboundScheduler = outboundScheduler;
+        this.adminRegistry = adminRegistry;
+        this.outboundExecutor = outboundExecutor;
+        this.renderedMessages = renderedMessages;
+    }
+
+    /**
+     * Queue the message for every admin
+     *
+     * @param type      what is being sent, for the logs
+     * @param parseMode null for plain text
+     * @return deliveries of the admins that got the message; failed sends are logged and left out
+     */
+    public CompletableFuture<List<Delivery>> broadcast(String type, String text, String parseMode,
+                                                       InlineKeyboardMarkup keyboard) {
+        if (!outboundScheduler.isReady()) {
+            logger.warn("TelegramClient not available for {} notification", type);
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        long[] adminIds = adminRegistry.getAdminIds();
+        if (adminIds.length == 0) {
+            logger.info("No admin users configured for {} notifications", type);
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        List<Delivery> deliveries = Collections.synchronizedList(new ArrayList<>(adminIds.length));
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[adminIds.length];
+        for (int i = 0; i < adminIds.length; i++) {
+            long adminId = adminIds[i];
+            SendMessage sendMessage = SendMessage.builder()
+                    .chatId(adminId)
+                    .text(text)
+                    .parseMode(parseMode)
+                    .replyMarkup(keyboard)
+                    .build();
+
+            sends[i] = outboundScheduler.submit(adminId, sendMessage)
+                    .handle((Message sent, Throwable error) -> {
+                        if (error != null) {
+                            logger.error("Failed to send {} notification to admin {}: {}", type, adminId, error.getMessage());
+                        } else {
+                            deliveries.add(new Delivery(adminId, sent.getMessageId()));
+                            renderedMessages.remember(adminId, sent.getMessageId(), text, keyboard, parseMode);
+                            logger.debug("Sent {} notification to admin {}", type, adminId);
+                        }
+                        return null;
+                    });
+        }
+
+        // Completed off the sending thread, so callers' follow-up work does not hold up a chat lane
+        return CompletableFuture.allOf(sends).thenApplyAsync(done -> {
+            logger.info("{} notification delivered to {}/{} admin(s)", type, deliveries.size(), adminIds.length);
+            return List.copyOf(deliveries);
+        }, outboundExecutor);
+    }
+
+    /**
+     * Replace the text of the given admin copies (and drop their buttons), all queued at once
+     *
+     * @return number of copies that now show the text
+     */
+    public CompletableFuture<Integer> editAll(String type, List<Delivery> copies, String text) {
+        if (copies.isEmpty() || !outboundScheduler.isReady()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        AtomicInteger edited = new AtomicInteger();
+        CompletableFuture<?>[] edits = new CompletableFuture<?>[copies.size()];
+        for (int i = 0; i < copies.size(); i++) {
+            Delivery copy = copies.get(i);
+            if (renderedMessages.isUnchanged(copy.adminId(), copy.messageId(), text, null, null)) {
+                edited.incrementAndGet();
+                edits[i] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+
+            EditMessageText editMessage = EditMessageText.builder()
+                    .chatId(copy.adminId())
+                    .messageId(copy.messageId())
+                    .text(text)
+                    .build();
+
+            edits[i] = outboundScheduler.submit(copy.adminId(), editMessage)
+                    .handle((result, error) -> {
+                        // "Not modified" means another instance or a retry already did it
+                        if (error == null || TelegramErrors.isNotModified(error)) {
+                            edited.incrementAndGet();
+                            renderedMessages.remember(copy.adminId(), copy.messageId(), text, null, null);
+                        } else {
+                            renderedMessages.forget(copy.adminId(), copy.messageId());
+                            logger.warn("Failed to update {} message {} of admin {}: {}",
+                                    type, copy.messageId(), copy.adminId(), TelegramErrors.unwrap(error).getMessage());
+                        }
+                        return null;
+                    });
+        }
+
+        return CompletableFuture.allOf(edits).thenApplyAsync(done -> {
+            logger.info("{} updated for {}/{} admin copies", type, edited.get(), copies.size());
+            return edited.get();
+        }, outboundExecutor);
+    }
+}
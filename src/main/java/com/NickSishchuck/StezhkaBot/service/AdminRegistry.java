@@ -0,0 +1,107 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.utils.LongHashSet;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * The one place that knows who the admins are.
+ * Ids come from bot.admin.user.ids, read once at startup, and, when bot.admin.db.enabled is set, the
+ * admin_user table, which reload() re-reads so admins can be added or removed without a restart.
+ * Both are merged into an immutable set that reload() swaps atomically, so checks never parse or lock.
+ */
+@Service
+public class AdminRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminRegistry.class);
+    private static final String ADMIN_IDS_PROPERTY = "bot.admin.user.ids";
+    private static final String SELECT_ADMINS_SQL = "SELECT user_id FROM admin_user";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean databaseEnabled;
+
+    // Property sources do not change at runtime, so these are parsed once
+    private final long[] configuredIds;
+
+    private volatile LongHashSet adminIds = LongHashSet.of();
+
+    @Autowired
+    public AdminRegistry(JdbcTemplate jdbcTemplate,
+                         @Value("${" + ADMIN_IDS_PROPERTY + ":}") String configuredIds,
+                         @Value("${bot.admin.db.enabled:false}") boolean databaseEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseEnabled = databaseEnabled;
+        this.configuredIds = parseIds(configuredIds);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (databaseEnabled) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/admin_user.sql"))
+                    .execute(jdbcTemplate.getDataSource());
+        }
+        reload();
+    }
+
+    public boolean isAdmin(long userId) {
+        return adminIds.contains(userId);
+    }
+
+    public long[] getAdminIds() {
+        return adminIds.toArray();
+    }
+
+    public boolean hasAdmins() {
+        return !adminIds.isEmpty();
+    }
+
+    /**
+     * Re-read the admin_user table and merge it with the configured ids. When the table cannot be read
+     * the current list is kept rather than locking everyone out.
+     */
+    @Scheduled(fixedDelayString = "${bot.admin.reload-interval-ms:60000}",
+            initialDelayString = "${bot.admin.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        long[] stored = new long[0];
+        if (databaseEnabled) {
+            try {
+                List<Long> rows = jdbcTemplate.queryForList(SELECT_ADMINS_SQL, Long.class);
+                stored = rows.stream().mapToLong(Long::longValue).toArray();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to load admins from admin_user, keeping {}: {}", adminIds, e.getMessage());
+                return;
+            }
+        }
+
+        LongHashSet loaded = LongHashSet.of(LongStream.concat(Arrays.stream(configuredIds), Arrays.stream(stored)).toArray());
+        if (!loaded.equals(adminIds)) {
+            adminIds = loaded;
+            logger.info("Loaded {} admin(s): {}", loaded.size(), loaded);
+        }
+    }
+
+    private static long[] parseIds(String ids) {
+        try {
+            return Arrays.stream(ids.split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .mapToLong(Long::parseLong)
+                    .toArray();
+        } catch (NumberFormatException e) {
+            logger.error("Invalid admin user ID format in {}, no configured admins", ADMIN_IDS_PROPERTY, e);
+            return new long[0];
+        }
+    }
+}
@@ -1,27 +1,48 @@
 package com.NickSishchuck.StezhkaBot.service;
 
+import com.NickSishchuck.StezhkaBot.scheduler.SessionExpiry;
+import com.NickSishchuck.StezhkaBot.state.ActiveFlowIndex;
+import com.NickSishchuck.StezhkaBot.state.ConversationStateStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.Serializable;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AdminStateService {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminStateService.class);
+    private static final String STATE_NAMESPACE = "admin_edit";
+    public static final String FLOW_ID = "admin_edit";
+    private static final Duration SESSION_TIMEOUT = Duration.ofMinutes(30);
 
-    // Store active editing sessions
-    private final Map<Long, EditingState> activeEditingSessions = new ConcurrentHashMap<>();
+    // Active editing sessions
+    private final ConversationStateStore stateStore;
+    private final SessionExpiry sessionExpiry;
+    private final ActiveFlowIndex activeFlows;
+
+    @Autowired
+    public AdminStateService(ConversationStateStore stateStore, SessionExpiry sessionExpiry,
+                             ActiveFlowIndex activeFlows) {
+        this.stateStore = stateStore;
+        this.sessionExpiry = sessionExpiry;
+        this.activeFlows = activeFlows;
+
+        sessionExpiry.register(STATE_NAMESPACE, this::expireSession);
+    }
 
     /**
      * Start text editing session
      */
     public void startEditing(Long adminId, String textKey, String currentValue) {
         EditingState state = new EditingState(textKey, currentValue);
-        activeEditingSessions.put(adminId, state);
+        stateStore.put(STATE_NAMESPACE, adminId, state);
+        sessionExpiry.touch(STATE_NAMESPACE, adminId, SESSION_TIMEOUT);
+        activeFlows.claim(adminId, FLOW_ID);
         logger.info("Admin {} started editing text key: {}", adminId, textKey);
     }
 
@@ -29,15 +50,18 @@ public class AdminStateService {
      * Get editing state for admin
      */
     public EditingState getEditingState(Long adminId) {
-        return activeEditingSessions.get(adminId);
+        return stateStore.get(STATE_NAMESPACE, adminId, EditingState.class);
     }
 
     /**
      * Clear editing state
      */
     public void clearEditingState(Long adminId) {
-        EditingState removed = activeEditingSessions.remove(adminId);
+        EditingState removed = getEditingState(adminId);
         if (removed != null) {
+            stateStore.remove(STATE_NAMESPACE, adminId);
+            sessionExpiry.cancel(STATE_NAMESPACE, adminId);
+            activeFlows.release(adminId, FLOW_ID);
             logger.info("Cleared editing state for admin {}, was editing: {}", adminId, removed.getTextKey());
         }
     }
@@ -46,23 +70,25 @@ public class AdminStateService {
      * Check if admin is in editing mode
      */
     public boolean isEditing(Long adminId) {
-        return activeEditingSessions.containsKey(adminId);
+        return getEditingState(adminId) != null;
     }
 
     /**
-     * Clean up old editing sessions (called periodically)
+     * Drop an editing session that has been open for SESSION_TIMEOUT
      */
-    public void cleanupOldSessions() {
-        LocalDateTime timeout = LocalDateTime.now().minusMinutes(30);
-        activeEditingSessions.entrySet().removeIf(entry ->
-                entry.getValue().getStartedAt().isBefore(timeout)
-        );
+    private void expireSession(long adminId) {
+        if (stateStore.removeIfIdle(STATE_NAMESPACE, adminId, SESSION_TIMEOUT)) {
+            activeFlows.release(adminId, FLOW_ID);
+            logger.info("Editing session of admin {} expired", adminId);
+        }
     }
 
     /**
      * Editing state class
      */
-    public static class EditingState {
+    public static class EditingState implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private final String textKey;
         private final String previousValue;
         private final LocalDateTime startedAt;
@@ -77,4 +103,4 @@ public class AdminStateService {
         public String getPreviousValue() { return previousValue; }
         public LocalDateTime getStartedAt() { return startedAt; }
     }
-}
\ No newline at end of file
+}
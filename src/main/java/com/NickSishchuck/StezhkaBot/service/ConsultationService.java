@@ -1,108 +1,119 @@
 package com.NickSishchuck.StezhkaBot.service;
 
 import com.NickSishchuck.StezhkaBot.entity.ConsultationRequest;
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import com.NickSishchuck.StezhkaBot.form.FormEngine;
+import com.NickSishchuck.StezhkaBot.form.FormState;
+import com.NickSishchuck.StezhkaBot.form.FormValues;
 import com.NickSishchuck.StezhkaBot.repository.ConsultationRequestRepository;
+import com.NickSishchuck.StezhkaBot.repository.RequestAdminMessageRepository;
+import com.NickSishchuck.StezhkaBot.scheduler.SessionExpiry;
+import com.NickSishchuck.StezhkaBot.utils.SlidingWindowRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.ArrayList;
+import java.util.function.Consumer;
 
 @Service
 public class ConsultationService {
 
     private static final Logger logger = LoggerFactory.getLogger(ConsultationService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
-    private static final int MAX_REQUESTS_PER_USER = 5;
+    private static final String REQUESTS_NAMESPACE = "consultation_requests";
+
+    public static final String FORM_ID = "consultation";
+    public static final String NAME = "name";
+    public static final String PHONE = "phone";
 
     private final ConsultationRequestRepository consultationRepository;
 
-    // Temporary storage for consultation forms in progress
-    private final Map<Long, ConsultationFormState> activeConsultations = new ConcurrentHashMap<>();
+    // Each admin's copy of a request notification
+    private final RequestAdminMessageRepository adminMessageRepository;
+
+    // Consultation forms in progress
+    private final FormEngine formEngine;
+    private final SessionExpiry sessionExpiry;
 
-    // Track consultation requests count per user with timestamps
-    private final Map<Long, List<LocalDateTime>> userRequestCounts = new ConcurrentHashMap<>();
+    // Submitted consultation requests per user within the rate-limit window
+    private final SlidingWindowRateLimiter rateLimiter;
 
     @Autowired
-    public ConsultationService(ConsultationRequestRepository consultationRepository) {
+    public ConsultationService(ConsultationRequestRepository consultationRepository,
+                               RequestAdminMessageRepository adminMessageRepository,
+                               FormEngine formEngine, SessionExpiry sessionExpiry,
+                               @Qualifier("consultationRateLimiter") SlidingWindowRateLimiter rateLimiter) {
         this.consultationRepository = consultationRepository;
-    }
+        this.adminMessageRepository = adminMessageRepository;
+        this.formEngine = formEngine;
+        this.sessionExpiry = sessionExpiry;
+        this.rateLimiter = rateLimiter;
 
-    /**
-     * Start new consultation request
-     */
-    public void startConsultation(Long userId) {
-        ConsultationFormState state = new ConsultationFormState();
-        state.setCurrentStep(ConsultationStep.NAME);
-        state.setStartedAt(LocalDateTime.now());
-
-        activeConsultations.put(userId, state);
-        logger.info("Started consultation request for user {}", userId);
+        sessionExpiry.register(REQUESTS_NAMESPACE,
+                userId -> rateLimiter.evictIfIdle(userId, System.currentTimeMillis()));
     }
 
     /**
-     * Get current consultation state for user
+     * Start new consultation request
      */
-    public ConsultationFormState getConsultationState(Long userId) {
-        return activeConsultations.get(userId);
+    public FormState startConsultation(Long userId) {
+        return formEngine.start(FORM_ID, userId, Map.of());
     }
 
     /**
-     * Process user input for consultation
+     * Complete consultation request and save to database.
+     * onSaved runs in the same transaction, so the notifications it queues in the outbox commit with the request
+     *
+     * @return the saved request, or null when no completed form is open or the user has reached the request limit
      */
-    public ConsultationStep processConsultationInput(Long userId, String input) {
-        ConsultationFormState state = activeConsultations.get(userId);
-        if (state == null) {
+    @Transactional
+    public ConsultationRequest completeConsultation(Long userId, Consumer<ConsultationRequest> onSaved) {
+        FormValues values = formEngine.getCompleted(FORM_ID, userId);
+        if (values == null) {
             return null;
         }
 
-        switch (state.getCurrentStep()) {
-            case NAME -> {
-                state.setName(input.trim());
-                state.setCurrentStep(ConsultationStep.PHONE);
-            }
-            case PHONE -> {
-                state.setPhone(input.trim());
-                state.setCurrentStep(ConsultationStep.CONFIRM);
-            }
-        }
-
-        return state.getCurrentStep();
-    }
-
-    /**
-     * Complete consultation request and save to database
-     */
-    @Transactional
-    public ConsultationRequest completeConsultation(Long userId) {
-        ConsultationFormState state = activeConsultations.get(userId);
-        if (state == null) {
+        // The slot is taken here rather than checked when the form opened, so repeated submissions cannot outrun the limit
+        long submittedAt = System.currentTimeMillis();
+        if (!rateLimiter.tryAcquire(userId, submittedAt)) {
+            logger.info("User {} has reached the maximum consultation requests limit ({}) at submission", userId, rateLimiter.getLimit());
             return null;
         }
+        // A request that is not committed does not count against the limit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    rateLimiter.release(userId, submittedAt);
+                }
+            }
+        });
+        // Forget the user once the window has passed without new requests
+        sessionExpiry.touch(REQUESTS_NAMESPACE, userId, rateLimiter.getWindow());
 
         // Create consultation request
         ConsultationRequest request = new ConsultationRequest(
-                state.getName(),
-                state.getPhone(),
+                values.get(NAME),
+                values.get(PHONE),
                 userId
         );
 
         // Save to database
         ConsultationRequest saved = consultationRepository.save(request);
-
-        // Track this request for rate limiting
-        trackUserRequest(userId);
+        onSaved.accept(saved);
 
         // Clean up temporary state
-        activeConsultations.remove(userId);
+        formEngine.finish(FORM_ID, userId);
 
         logger.info("Completed consultation request for user {} - Request ID: {}", userId, saved.getId());
 
@@ -113,7 +124,7 @@ public class ConsultationService {
      * Cancel consultation request
      */
     public void cancelConsultation(Long userId) {
-        activeConsultations.remove(userId);
+        formEngine.finish(FORM_ID, userId);
         logger.info("Cancelled consultation request for user {}", userId);
     }
 
@@ -121,52 +132,14 @@ public class ConsultationService {
      * Check if user has exceeded the consultation request limit
      */
     public boolean hasRecentConsultation(Long userId, int hoursAgo) {
-        // Clean up old entries first
-        cleanupOldUserRequests(userId);
-
-        // Check current count
-        List<LocalDateTime> userRequests = userRequestCounts.getOrDefault(userId, new ArrayList<>());
-
-        if (userRequests.size() >= MAX_REQUESTS_PER_USER) {
-            logger.info("User {} has reached the maximum consultation requests limit ({}/{})",
-                    userId, userRequests.size(), MAX_REQUESTS_PER_USER);
+        if (rateLimiter.isLimited(userId, System.currentTimeMillis())) {
+            logger.info("User {} has reached the maximum consultation requests limit ({})", userId, rateLimiter.getLimit());
             return true;
         }
 
         return false;
     }
 
-    /**
-     * Track a user's consultation request
-     */
-    private void trackUserRequest(Long userId) {
-        userRequestCounts.computeIfAbsent(userId, k -> new ArrayList<>()).add(LocalDateTime.now());
-        logger.debug("Tracked consultation request for user {}. Current count: {}",
-                userId, userRequestCounts.get(userId).size());
-    }
-
-    /**
-     * Clean up old requests for a specific user (older than 30 minutes)
-     */
-    private void cleanupOldUserRequests(Long userId) {
-        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(30);
-        List<LocalDateTime> userRequests = userRequestCounts.get(userId);
-
-        if (userRequests != null) {
-            int originalSize = userRequests.size();
-            userRequests.removeIf(timestamp -> timestamp.isBefore(cutoff));
-
-            if (userRequests.isEmpty()) {
-                userRequestCounts.remove(userId);
-            }
-
-            if (originalSize != userRequests.size()) {
-                logger.debug("Cleaned up old requests for user {}. Removed: {}, Remaining: {}",
-                        userId, originalSize - userRequests.size(), userRequests.size());
-            }
-        }
-    }
-
     /**
      * Get all unprocessed consultation requests
      */
@@ -193,33 +166,27 @@ public class ConsultationService {
     }
 
     /**
-     * Mark request as processed by admin message ID
+     * Mark request as processed by one of its admin notification messages
      */
     @Transactional
     public boolean markAsProcessedByMessageId(Integer messageId, Long adminUserId) {
-        Optional<ConsultationRequest> requestOpt = consultationRepository.findByAdminMessageId(messageId);
-        if (requestOpt.isPresent()) {
-            ConsultationRequest request = requestOpt.get();
-            request.setStatus(ConsultationRequest.ConsultationStatus.PROCESSED);
-            request.setProcessedAt(LocalDateTime.now());
-            request.setProcessedBy(adminUserId);
-            consultationRepository.save(request);
-            logger.info("Consultation request {} marked as processed by admin {} via message {}",
-                    request.getId(), adminUserId, messageId);
-            return true;
+        Optional<RequestAdminMessage> copy = adminMessageRepository.findFirstByChatIdAndMessageIdAndRequestType(
+                adminUserId, messageId, RequestAdminMessage.RequestType.CONSULTATION);
+        if (copy.isEmpty()) {
+            return false;
         }
-        return false;
+        logger.info("Consultation request {} processed via message {}", copy.get().getRequestId(), messageId);
+        return markAsProcessed(copy.get().getRequestId(), adminUserId);
     }
 
     /**
-     * Update admin message ID for request
+     * Every admin's copy of the request notification
      */
-    @Transactional
-    public void updateAdminMessageId(Long requestId, Integer messageId) {
-        consultationRepository.findById(requestId).ifPresent(request -> {
-            request.setAdminMessageId(messageId);
-            consultationRepository.save(request);
-        });
+    public List<AdminNotifier.Delivery> getAdminCopies(Long requestId) {
+        return adminMessageRepository.findByRequestTypeAndRequestId(RequestAdminMessage.RequestType.CONSULTATION, requestId)
+                .stream()
+                .map(copy -> new AdminNotifier.Delivery(copy.getChatId(), copy.getMessageId()))
+                .toList();
     }
 
     /**
@@ -230,33 +197,18 @@ public class ConsultationService {
     }
 
     /**
-     * Clean up old consultation states and user request counts (called periodically)
+     * Get current request count for user (for debugging/admin purposes)
      */
-    public void cleanupAbandonedConsultations() {
-        LocalDateTime timeout = LocalDateTime.now().minusMinutes(30);
-
-        // Clean up abandoned consultation forms
-        activeConsultations.entrySet().removeIf(entry ->
-                entry.getValue().getStartedAt().isBefore(timeout)
-        );
-
-        // Clean up old user request counts
-        userRequestCounts.entrySet().removeIf(entry -> {
-            List<LocalDateTime> requests = entry.getValue();
-            requests.removeIf(timestamp -> timestamp.isBefore(timeout));
-            return requests.isEmpty();
-        });
+    public int getCurrentRequestCount(Long userId) {
+        return rateLimiter.count(userId, System.currentTimeMillis());
+    }
 
-        logger.debug("Cleaned up abandoned consultations and old request counts");
+    public int getRequestLimit() {
+        return rateLimiter.getLimit();
     }
 
-    /**
-     * Get current request count for user (for debugging/admin purposes)
-     */
-    public int getCurrentRequestCount(Long userId) {
-        cleanupOldUserRequests(userId);
-        List<LocalDateTime> requests = userRequestCounts.get(userId);
-        return requests != null ? requests.size() : 0;
+    public long getRequestWindowMinutes() {
+        return rateLimiter.getWindow().toMinutes();
     }
 
     /**
@@ -275,36 +227,4 @@ public class ConsultationService {
                 request.getId()
         );
     }
-
-    /**
-     * Consultation form state
-     */
-    public static class ConsultationFormState {
-        private String name;
-        private String phone;
-        private ConsultationStep currentStep;
-        private LocalDateTime startedAt;
-
-        // Getters and setters
-        public String getName() { return name; }
-        public void setName(String name) { this.name = name; }
-
-        public String getPhone() { return phone; }
-        public void setPhone(String phone) { this.phone = phone; }
-
-        public ConsultationStep getCurrentStep() { return currentStep; }
-        public void setCurrentStep(ConsultationStep currentStep) { this.currentStep = currentStep; }
-
-        public LocalDateTime getStartedAt() { return startedAt; }
-        public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
-    }
-
-    /**
-     * Consultation steps enum
-     */
-    public enum ConsultationStep {
-        NAME,
-        PHONE,
-        CONFIRM
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded in-memory log of outbound messages that could not be delivered.
+ * Oldest entries are overwritten once the ring is full.
+ */
+@Service
+public class DeadLetterLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterLog.class);
+
+    private final DeadLetter[] ring;
+    private int next;
+    private long total;
+
+    public DeadLetterLog(@Value("${bot.outbound.dead-letter-capacity:100}") int capacity) {
+        this.ring = new DeadLetter[Math.max(1, capacity)];
+    }
+
+    public void record(long chatId, String method, String summary, String error, int attempts) {
+        DeadLetter deadLetter = new DeadLetter(LocalDateTime.now(), chatId, method, summary, error, attempts);
+        synchronized (this) {
+            ring[next] = deadLetter;
+            next = (next + 1) % ring.length;
+            total++;
+        }
+        logger.warn("Dead letter: {} to chat {} failed after {} attempts: {}", method, chatId, attempts, error);
+    }
+
+    /**
+     * Most recent entries first
+     */
+    public synchronized List<DeadLetter> getRecent(int limit) {
+        List<DeadLetter> recent = new ArrayList<>();
+        for (int i = 1; i <= ring.length && recent.size() < limit; i++) {
+            DeadLetter deadLetter = ring[Math.floorMod(next - i, ring.length)];
+            if (deadLetter == null) {
+                break;
+            }
+            recent.add(deadLetter);
+        }
+        return recent;
+    }
+
+    public synchronized long getTotalCount() {
+        return total;
+    }
+
+    public record DeadLetter(LocalDateTime time, long chatId, String method, String summary, String error, int attempts) {
+    }
+}
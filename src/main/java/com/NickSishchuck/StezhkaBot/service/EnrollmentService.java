@@ -1,150 +1,143 @@
 package com.NickSishchuck.StezhkaBot.service;
 
 import com.NickSishchuck.StezhkaBot.entity.EnrollmentRequest;
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import com.NickSishchuck.StezhkaBot.form.FormEngine;
+import com.NickSishchuck.StezhkaBot.form.FormState;
+import com.NickSishchuck.StezhkaBot.form.FormValues;
 import com.NickSishchuck.StezhkaBot.repository.EnrollmentRequestRepository;
+import com.NickSishchuck.StezhkaBot.repository.RequestAdminMessageRepository;
+import com.NickSishchuck.StezhkaBot.scheduler.SessionExpiry;
+import com.NickSishchuck.StezhkaBot.utils.SlidingWindowRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.ArrayList;
+import java.util.function.Consumer;
 
 @Service
 public class EnrollmentService {
 
     private static final Logger logger = LoggerFactory.getLogger(EnrollmentService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
-    private static final int MAX_REQUESTS_PER_USER = 5;
+    private static final String REQUESTS_NAMESPACE = "enrollment_requests";
+
+    public static final String FORM_ID = "enrollment";
+    public static final String COURSE = "course";
+    public static final String CHILD_NAME = "childName";
+    public static final String CHILD_AGE = "childAge";
+    public static final String PARENT_NAME = "parentName";
+    public static final String PARENT_PHONE = "parentPhone";
 
     private final EnrollmentRequestRepository enrollmentRepository;
 
-    // Temporary storage for enrollment forms in progress
-    private final Map<Long, EnrollmentFormState> activeEnrollments = new ConcurrentHashMap<>();
+    // Each admin's copy of a request notification
+    private final RequestAdminMessageRepository adminMessageRepository;
 
-    // Track enrollment requests count per user with timestamps
-    private final Map<Long, List<LocalDateTime>> userRequestCounts = new ConcurrentHashMap<>();
+    // Enrollment forms in progress
+    private final FormEngine formEngine;
+    private final SessionExpiry sessionExpiry;
 
-    @Value("${bot.admin.user.ids:}")
-    private String adminUserIds;
+    // Submitted enrollment requests per user within the rate-limit window
+    private final SlidingWindowRateLimiter rateLimiter;
 
     @Autowired
-    public EnrollmentService(EnrollmentRequestRepository enrollmentRepository) {
+    public EnrollmentService(EnrollmentRequestRepository enrollmentRepository,
+                             RequestAdminMessageRepository adminMessageRepository,
+                             FormEngine formEngine, SessionExpiry sessionExpiry,
+                             @Qualifier("enrollmentRateLimiter") SlidingWindowRateLimiter rateLimiter) {
         this.enrollmentRepository = enrollmentRepository;
+        this.adminMessageRepository = adminMessageRepository;
+        this.formEngine = formEngine;
+        this.sessionExpiry = sessionExpiry;
+        this.rateLimiter = rateLimiter;
+
+        sessionExpiry.register(REQUESTS_NAMESPACE,
+                userId -> rateLimiter.evictIfIdle(userId, System.currentTimeMillis()));
     }
 
     /**
      * Start new enrollment process
      */
-    public void startEnrollment(Long userId, String course, String courseDisplayName) {
-        EnrollmentFormState state = new EnrollmentFormState();
-        state.setCourse(course);
-        state.setCourseDisplayName(courseDisplayName);
-        state.setCurrentStep(EnrollmentStep.CHILD_NAME);
-        state.setStartedAt(LocalDateTime.now());
-
-        activeEnrollments.put(userId, state);
-        logger.info("Started enrollment for user {} for course {}", userId, course);
+    public FormState startEnrollment(Long userId, String course) {
+        logger.info("Starting enrollment for user {} for course {}", userId, course);
+        return formEngine.start(FORM_ID, userId, Map.of(COURSE, course));
     }
 
     /**
      * Start enrollment without pre-selected course
      */
-    public void startEnrollmentWithoutCourse(Long userId) {
-        EnrollmentFormState state = new EnrollmentFormState();
-        state.setCurrentStep(EnrollmentStep.SELECT_COURSE);
-        state.setStartedAt(LocalDateTime.now());
-
-        activeEnrollments.put(userId, state);
-        logger.info("Started enrollment for user {} without course", userId);
+    public FormState startEnrollmentWithoutCourse(Long userId) {
+        return formEngine.start(FORM_ID, userId, Map.of());
     }
 
     /**
-     * Get current enrollment state for user
+     * Set course for enrollment
+     *
+     * @return the updated form, or null when the user has no enrollment open
      */
-    public EnrollmentFormState getEnrollmentState(Long userId) {
-        return activeEnrollments.get(userId);
+    public FormState setCourse(Long userId, String course) {
+        return formEngine.choose(FORM_ID, userId, COURSE, course);
     }
 
     /**
-     * Process user input for enrollment
+     * Complete enrollment and save to database.
+     * onSaved runs in the same transaction, so the notifications it queues in the outbox commit with the request
+     *
+     * @return the saved request, or null when no completed form is open or the user has reached the request limit
      */
-    public EnrollmentStep processEnrollmentInput(Long userId, String input) {
-        EnrollmentFormState state = activeEnrollments.get(userId);
-        if (state == null) {
+    @Transactional
+    public EnrollmentRequest completeEnrollment(Long userId, Consumer<EnrollmentRequest> onSaved) {
+        FormValues values = formEngine.getCompleted(FORM_ID, userId);
+        if (values == null) {
             return null;
         }
 
-        switch (state.getCurrentStep()) {
-            case CHILD_NAME -> {
-                state.setChildName(input.trim());
-                state.setCurrentStep(EnrollmentStep.CHILD_AGE);
-            }
-            case CHILD_AGE -> {
-                state.setChildAge(input.trim());
-                state.setCurrentStep(EnrollmentStep.PARENT_NAME);
-            }
-            case PARENT_NAME -> {
-                state.setParentName(input.trim());
-                state.setCurrentStep(EnrollmentStep.PARENT_PHONE);
-            }
-            case PARENT_PHONE -> {
-                state.setParentPhone(input.trim());
-                state.setCurrentStep(EnrollmentStep.CONFIRM);
-            }
-        }
-
-        return state.getCurrentStep();
-    }
-
-    /**
-     * Set course for enrollment
-     */
-    public void setCourse(Long userId, String course, String courseDisplayName) {
-        EnrollmentFormState state = activeEnrollments.get(userId);
-        if (state != null) {
-            state.setCourse(course);
-            state.setCourseDisplayName(courseDisplayName);
-            state.setCurrentStep(EnrollmentStep.CHILD_NAME);
-        }
-    }
-
-    /**
-     * Complete enrollment and save to database
-     */
-    @Transactional
-    public EnrollmentRequest completeEnrollment(Long userId) {
-        EnrollmentFormState state = activeEnrollments.get(userId);
-        if (state == null) {
+        // The slot is taken here rather than checked when the form opened, so repeated submissions cannot outrun the limit
+        long submittedAt = System.currentTimeMillis();
+        if (!rateLimiter.tryAcquire(userId, submittedAt)) {
+            logger.info("User {} has reached the maximum enrollment requests limit ({}) at submission", userId, rateLimiter.getLimit());
             return null;
         }
+        // A request that is not committed does not count against the limit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    rateLimiter.release(userId, submittedAt);
+                }
+            }
+        });
+        // Forget the user once the window has passed without new requests
+        sessionExpiry.touch(REQUESTS_NAMESPACE, userId, rateLimiter.getWindow());
 
         // Create enrollment request
         EnrollmentRequest request = new EnrollmentRequest(
-                state.getChildName(),
-                state.getChildAge(),
-                state.getParentName(),
-                state.getParentPhone(),
-                state.getCourse(),
-                state.getCourseDisplayName(),
+                values.get(CHILD_NAME),
+                values.get(CHILD_AGE),
+                values.get(PARENT_NAME),
+                values.get(PARENT_PHONE),
+                values.get(COURSE),
+                values.label(COURSE),
                 userId
         );
 
         // Save to database
         EnrollmentRequest saved = enrollmentRepository.save(request);
-
-        // Track this request for rate limiting
-        trackUserRequest(userId);
+        onSaved.accept(saved);
 
         // Clean up temporary state
-        activeEnrollments.remove(userId);
+        formEngine.finish(FORM_ID, userId);
 
         logger.info("Completed enrollment for user {} - Request ID: {}", userId, saved.getId());
 
@@ -155,7 +148,7 @@ public class EnrollmentService {
      * Cancel enrollment
      */
     public void cancelEnrollment(Long userId) {
-        activeEnrollments.remove(userId);
+        formEngine.finish(FORM_ID, userId);
         logger.info("Cancelled enrollment for user {}", userId);
     }
 
@@ -163,52 +156,14 @@ public class EnrollmentService {
      * Check if user has exceeded the enrollment request limit
      */
     public boolean hasRecentEnrollment(Long userId, int hoursAgo) {
-        // Clean up old entries first
-        cleanupOldUserRequests(userId);
-
-        // Check current count
-        List<LocalDateTime> userRequests = userRequestCounts.getOrDefault(userId, new ArrayList<>());
-
-        if (userRequests.size() >= MAX_REQUESTS_PER_USER) {
-            logger.info("User {} has reached the maximum enrollment requests limit ({}/{})",
-                    userId, userRequests.size(), MAX_REQUESTS_PER_USER);
+        if (rateLimiter.isLimited(userId, System.currentTimeMillis())) {
+            logger.info("User {} has reached the maximum enrollment requests limit ({})", userId, rateLimiter.getLimit());
             return true;
         }
 
         return false;
     }
 
-    /**
-     * Track a user's enrollment request
-     */
-    private void trackUserRequest(Long userId) {
-        userRequestCounts.computeIfAbsent(userId, k -> new ArrayList<>()).add(LocalDateTime.now());
-        logger.debug("Tracked enrollment request for user {}. Current count: {}",
-                userId, userRequestCounts.get(userId).size());
-    }
-
-    /**
-     * Clean up old requests for a specific user (older than 30 minutes)
-     */
-    private void cleanupOldUserRequests(Long userId) {
-        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(30);
-        List<LocalDateTime> userRequests = userRequestCounts.get(userId);
-
-        if (userRequests != null) {
-            int originalSize = userRequests.size();
-            userRequests.removeIf(timestamp -> timestamp.isBefore(cutoff));
-
-            if (userRequests.isEmpty()) {
-                userRequestCounts.remove(userId);
-            }
-
-            if (originalSize != userRequests.size()) {
-                logger.debug("Cleaned up old requests for user {}. Removed: {}, Remaining: {}",
-                        userId, originalSize - userRequests.size(), userRequests.size());
-            }
-        }
-    }
-
     /**
      * Get all unprocessed enrollment requests
      */
@@ -235,33 +190,27 @@ public class EnrollmentService {
     }
 
     /**
-     * Mark request as processed by admin message ID
+     * Mark request as processed by one of its admin notification messages
      */
     @Transactional
     public boolean markAsProcessedByMessageId(Integer messageId, Long adminUserId) {
-        Optional<EnrollmentRequest> requestOpt = enrollmentRepository.findByAdminMessageId(messageId);
-        if (requestOpt.isPresent()) {
-            EnrollmentRequest request = requestOpt.get();
-            request.setStatus(EnrollmentRequest.EnrollmentStatus.PROCESSED);
-            request.setProcessedAt(LocalDateTime.now());
-            request.setProcessedBy(adminUserId);
-            enrollmentRepository.save(request);
-            logger.info("Request {} marked as processed by admin {} via message {}",
-                    request.getId(), adminUserId, messageId);
-            return true;
+        Optional<RequestAdminMessage> copy = adminMessageRepository.findFirstByChatIdAndMessageIdAndRequestType(
+                adminUserId, messageId, RequestAdminMessage.RequestType.ENROLLMENT);
+        if (copy.isEmpty()) {
+            return false;
         }
-        return false;
+        logger.info("Request {} processed via message {}", copy.get().getRequestId(), messageId);
+        return markAsProcessed(copy.get().getRequestId(), adminUserId);
     }
 
     /**
-     * Update admin message ID for request
+     * Every admin's copy of the request notification
      */
-    @Transactional
-    public void updateAdminMessageId(Long requestId, Integer messageId) {
-        enrollmentRepository.findById(requestId).ifPresent(request -> {
-            request.setAdminMessageId(messageId);
-            enrollmentRepository.save(request);
-        });
+    public List<AdminNotifier.Delivery> getAdminCopies(Long requestId) {
+        return adminMessageRepository.findByRequestTypeAndRequestId(RequestAdminMessage.RequestType.ENROLLMENT, requestId)
+                .stream()
+                .map(copy -> new AdminNotifier.Delivery(copy.getChatId(), copy.getMessageId()))
+                .toList();
     }
 
     /**
@@ -285,33 +234,18 @@ public class EnrollmentService {
     }
 
     /**
-     * Clean up old enrollment states and user request counts (called periodically)
+     * Get current request count for user (for debugging/admin purposes)
      */
-    public void cleanupAbandonedEnrollments() {
-        LocalDateTime timeout = LocalDateTime.now().minusMinutes(30);
-
-        // Clean up abandoned enrollment forms
-        activeEnrollments.entrySet().removeIf(entry ->
-                entry.getValue().getStartedAt().isBefore(timeout)
-        );
-
-        // Clean up old user request counts
-        userRequestCounts.entrySet().removeIf(entry -> {
-            List<LocalDateTime> requests = entry.getValue();
-            requests.removeIf(timestamp -> timestamp.isBefore(timeout));
-            return requests.isEmpty();
-        });
+    public int getCurrentRequestCount(Long userId) {
+        return rateLimiter.count(userId, System.currentTimeMillis());
+    }
 
-        logger.debug("Cleaned up abandoned enrollments and old request counts");
+    public int getRequestLimit() {
+        return rateLimiter.getLimit();
     }
 
-    /**
-     * Get current request count for user (for debugging/admin purposes)
-     */
-    public int getCurrentRequestCount(Long userId) {
-        cleanupOldUserRequests(userId);
-        List<LocalDateTime> requests = userRequestCounts.get(userId);
-        return requests != null ? requests.size() : 0;
+    public long getRequestWindowMinutes() {
+        return rateLimiter.getWindow().toMinutes();
     }
 
     /**
@@ -335,55 +269,4 @@ public class EnrollmentService {
                 request.getId()
         );
     }
-
-    /**
-     * Enrollment form state
-     */
-    public static class EnrollmentFormState {
-        private String childName;
-        private String childAge;
-        private String parentName;
-        private String parentPhone;
-        private String course;
-        private String courseDisplayName;
-        private EnrollmentStep currentStep;
-        private LocalDateTime startedAt;
-
-        // Getters and setters
-        public String getChildName() { return childName; }
-        public void setChildName(String childName) { this.childName = childName; }
-
-        public String getChildAge() { return childAge; }
-        public void setChildAge(String childAge) { this.childAge = childAge; }
-
-        public String getParentName() { return parentName; }
-        public void setParentName(String parentName) { this.parentName = parentName; }
-
-        public String getParentPhone() { return parentPhone; }
-        public void setParentPhone(String parentPhone) { this.parentPhone = parentPhone; }
-
-        public String getCourse() { return course; }
-        public void setCourse(String course) { this.course = course; }
-
-        public String getCourseDisplayName() { return courseDisplayName; }
-        public void setCourseDisplayName(String courseDisplayName) { this.courseDisplayName = courseDisplayName; }
-
-        public EnrollmentStep getCurrentStep() { return currentStep; }
-        public void setCurrentStep(EnrollmentStep currentStep) { this.currentStep = currentStep; }
-
-        public LocalDateTime getStartedAt() { return startedAt; }
-        public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
-    }
-
-    /**
-     * Enrollment steps enum
-     */
-    public enum EnrollmentStep {
-        SELECT_COURSE,
-        CHILD_NAME,
-        CHILD_AGE,
-        PARENT_NAME,
-        PARENT_PHONE,
-        CONFIRM
-    }
-}
\ No newline at end of file
+}
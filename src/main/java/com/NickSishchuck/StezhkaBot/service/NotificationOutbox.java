@@ -0,0 +1,98 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.entity.OutboxMessage;
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import com.NickSishchuck.StezhkaBot.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queues Telegram messages in the caller's transaction: they are stored with the data they announce
+ * and delivered by the {@link OutboxRelay} once it commits, or not at all if it rolls back.
+ */
+@Service
+public class NotificationOutbox {
+
+    private final OutboxMessageRepository outboxRepository;
+    private final AdminRegistry adminRegistry;
+    private final OutboxRelay relay;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public NotificationOutbox(OutboxMessageRepository outboxRepository, AdminRegistry adminRegistry,
+                              OutboxRelay relay, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.adminRegistry = adminRegistry;
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Queue a new message
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void send(long chatId, String text, String parseMode, InlineKeyboardMarkup keyboard) {
+        enqueue(List.of(new OutboxMessage(chatId, null, text, parseMode, toJson(keyboard))));
+    }
+
+    /**
+     * Queue an edit of a message; if it can no longer be edited a new message is sent instead
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void edit(long chatId, int messageId, String text, String parseMode, InlineKeyboardMarkup keyboard) {
+        enqueue(List.of(new OutboxMessage(chatId, messageId, text, parseMode, toJson(keyboard))));
+    }
+
+    /**
+     * Queue a copy for every admin; the delivered copies are recorded for the request
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendToAdmins(RequestAdminMessage.RequestType requestType, Long requestId,
+                             String text, String parseMode, InlineKeyboardMarkup keyboard) {
+        String replyMarkup = toJson(keyboard);
+        List<OutboxMessage> messages = new ArrayList<>();
+        for (long adminId : adminRegistry.getAdminIds()) {
+            OutboxMessage message = new OutboxMessage(adminId, null, text, parseMode, replyMarkup);
+            message.setRequestType(requestType);
+            message.setRequestId(requestId);
+            messages.add(message);
+        }
+        enqueue(messages);
+    }
+
+    private void enqueue(List<OutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        outboxRepository.saveAll(messages);
+
+        // Deliver right after the commit instead of at the next poll
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                relay.wake();
+            }
+        });
+    }
+
+    private String toJson(InlineKeyboardMarkup keyboard) {
+        if (keyboard == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(keyboard);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Keyboard cannot be stored in the outbox", e);
+        }
+    }
+}
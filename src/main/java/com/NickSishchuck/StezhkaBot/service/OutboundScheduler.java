@@ -0,0 +1,471 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.config.ExecutorConfig;
+import com.NickSishchuck.StezhkaBot.utils.TelegramErrors;
+import com.NickSishchuck.StezhkaBot.utils.TokenBucket;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single gateway for every outbound Telegram call.
+ * Sends are queued per chat and released by one scheduler thread once both the global
+ * bucket (~30 msg/s) and the chat bucket (~1 msg/s, 20 msg/min for groups) have a token.
+ * Each chat has at most one request in flight, so messages keep their order.
+ * Calls failing with 429 or 5xx are parked on the scheduler's delay queue and retried
+ * after retry_after or a capped, jittered backoff; undeliverable ones go to the {@link DeadLetterLog}.
+ * The blocking {@code execute} variants give up waiting after blocking-timeout-ms, so a chat parked by
+ * flood control cannot hold an update thread through all its retries; the call itself stays queued.
+ */
+@Service
+public class OutboundScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundScheduler.class);
+    private static final long LANE_EVICTION_INTERVAL_SECONDS = 60;
+
+    // Chat sends submitted by the current thread inside trackChatSends, null outside of it
+    private static final ThreadLocal<List<CompletableFuture<?>>> trackedSends = new ThreadLocal<>();
+
+    private final TokenBucket globalBucket;
+    private final int chatPerSecond;
+    private final int groupPerMinute;
+    private final int burst;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long blockingTimeoutMs;
+    private final DeadLetterLog deadLetterLog;
+    private final ExecutorService outboundExecutor;
+    private final boolean virtualThreads;
+    private final Map<Long, ChatLane> lanes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile TelegramClient telegramClient;
+
+    // Queue wait metrics
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @Autowired
+    public OutboundScheduler(ExecutorConfig executorConfig,
+                             @Qualifier("outboundExecutor") ExecutorService outboundExecutor,
+                             @Value("${bot.outbound.global-per-second:30}") int globalPerSecond,
+                             @Value("${bot.outbound.chat-per-second:1}") int chatPerSecond,
+                             @Value("${bot.outbound.group-per-minute:20}") int groupPerMinute,
+                             @Value("${bot.outbound.burst:3}") int burst,
+                             @Value("${bot.outbound.retry.max-attempts:5}") int maxAttempts,
+                             @Value("${bot.outbound.retry.base-delay-ms:500}") long baseDelayMs,
+                             @Value("${bot.outbound.retry.max-delay-ms:30000}") long maxDelayMs,
+                             @Value("${bot.outbound.blocking-timeout-ms:5000}") long blockingTimeoutMs,
+                             DeadLetterLog deadLetterLog) {
+        this.outboundExecutor = outboundExecutor;
+        this.virtualThreads = executorConfig.useVirtualThreads();
+        this.globalBucket = new TokenBucket(globalPerSecond, Duration.ofSeconds(1), globalPerSecond);
+        this.chatPerSecond = chatPerSecond;
+        this.groupPerMinute = groupPerMinute;
+        this.burst = burst;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.blockingTimeoutMs = Math.max(1, blockingTimeoutMs);
+        this.deadLetterLog = deadLetterLog;
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "outbound-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+        scheduler.scheduleWithFixedDelay(this::evictIdleLanes,
+                LANE_EVICTION_INTERVAL_SECONDS, LANE_EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void setTelegramClient(TelegramClient telegramClient) {
+        this.telegramClient = telegramClient;
+    }
+
+    public boolean isReady() {
+        return telegramClient != null;
+    }
+
+    /**
+     * Queue a call addressed to a chat; it goes out once the chat and global limits allow
+     */
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> submit(long chatId, Method method) {
+        PendingSend<T> pending = new PendingSend<>(chatId, method);
+        queued.incrementAndGet();
+
+        ChatLane lane = lanes.compute(chatId, (id, existing) -> {
+            ChatLane target = existing != null ? existing : new ChatLane(id);
+            target.queue.add(pending);
+            return target;
+        });
+
+        if (lane.active.compareAndSet(false, true)) {
+            schedule(lane, 0);
+        }
+        List<CompletableFuture<?>> tracking = trackedSends.get();
+        if (tracking != null) {
+            tracking.add(pending.future);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Run work on this thread and return a future that completes once every chat send it submitted
+     * has been answered or has failed (at once if it submitted none). Sends submitted later from
+     * other threads, e.g. by a continuation, are not included.
+     */
+    public CompletableFuture<Void> trackChatSends(Runnable work) {
+        List<CompletableFuture<?>> outer = trackedSends.get();
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        trackedSends.set(sends);
+        try {
+            work.run();
+        } finally {
+            if (outer != null) {
+                outer.addAll(sends);
+                trackedSends.set(outer);
+            } else {
+                trackedSends.remove();
+            }
+        }
+        return CompletableFuture.allOf(sends.stream()
+                .map(send -> send.handle((result, error) -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Send a call that is not a chat message (e.g. AnswerCallbackQuery); it is neither rate limited nor retried
+     */
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> submit(Method method) {
+        sentCount.increment();
+        return dispatch(method);
+    }
+
+    /**
+     * Blocking variant of {@link #submit(long, BotApiMethod)}.
+     * Waits at most blocking-timeout-ms; after that it throws an exception for which
+     * {@link TelegramErrors#isTimeout} is true while the call stays queued and is still delivered.
+     */
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(long chatId, Method method) throws TelegramApiException {
+        return await(submit(chatId, method), blockingTimeoutMs);
+    }
+
+    /**
+     * Blocking variant of {@link #submit(BotApiMethod)}, with the same time limit
+     */
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method) throws TelegramApiException {
+        return await(submit(method), blockingTimeoutMs);
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    /**
+     * Log how long sends waited for a token
+     */
+    @Scheduled(fixedDelayString = "${bot.outbound.metrics-interval-ms:60000}")
+    public void reportMetrics() {
+        long sent = sentCount.sumThenReset();
+        long waited = totalWaitNanos.sumThenReset();
+        long maxWait = maxWaitNanos.getAndSet(0);
+
+        if (sent == 0 && queued.get() == 0) {
+            logger.debug("Outbound scheduler idle");
+            return;
+        }
+
+        logger.info("Outbound: {} sent, {} queued, {} chat lanes, queue wait avg {} ms / max {} ms",
+                sent, queued.get(), lanes.size(),
+                sent > 0 ? TimeUnit.NANOSECONDS.toMillis(waited / sent) : 0,
+                TimeUnit.NANOSECONDS.toMillis(maxWait));
+    }
+
+    /**
+     * Wait until every queued send (retries included) is done, then stop the scheduler.
+     * Sends submitted afterwards fail right away.
+     *
+     * @return false when sends were still queued or in flight at the deadline
+     */
+    public boolean drain(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            // A send in flight reschedules its lane when done, so the scheduler is stopped only once all are settled
+            while (queued.get() + inFlight.get() > 0 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            scheduler.shutdown();
+            return scheduler.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                    && queued.get() + inFlight.get() == 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!drain(Duration.ofSeconds(5))) {
+            scheduler.shutdownNow();
+        }
+
+        if (queued.get() > 0) {
+            logger.warn("Outbound scheduler stopped with {} unsent messages", queued.get());
+            lanes.values().forEach(this::failAll);
+        }
+    }
+
+    private void schedule(ChatLane lane, long delayNanos) {
+        try {
+            scheduler.schedule(() -> drain(lane), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            failAll(lane);
+        }
+    }
+
+    /**
+     * Runs on the scheduler thread: release the head of the lane if both buckets allow it
+     */
+    private void drain(ChatLane lane) {
+        PendingSend<?> pending = lane.queue.peek();
+        if (pending == null) {
+            release(lane);
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        // Only this thread takes chat tokens, so checking first and taking later is safe
+        long chatWait = lane.bucket.delay(now);
+        if (chatWait > 0) {
+            schedule(lane, chatWait);
+            return;
+        }
+
+        long globalWait = globalBucket.tryAcquire(now);
+        if (globalWait > 0) {
+            schedule(lane, globalWait);
+            return;
+        }
+
+        lane.bucket.tryAcquire(now);
+        lane.queue.poll();
+        queued.decrementAndGet();
+        recordWait(now - pending.enqueuedAt);
+        pending.attempts++;
+
+        inFlight.incrementAndGet();
+        send(lane, pending);
+    }
+
+    private <T extends Serializable> void send(ChatLane lane, PendingSend<T> pending) {
+        dispatch(pending.method).whenComplete((result, error) -> {
+            try {
+                settle(lane, pending, result, error);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private <T extends Serializable> void settle(ChatLane lane, PendingSend<T> pending, T result, Throwable error) {
+        if (error == null) {
+            pending.future.complete(result);
+            // Next message of this chat only after the previous one is done
+            schedule(lane, 0);
+            return;
+        }
+
+        Throwable cause = TelegramErrors.unwrap(error);
+        boolean retryable = TelegramErrors.isRetryable(cause);
+        if (retryable && pending.attempts < maxAttempts) {
+            long delay = retryDelayNanos(cause, pending.attempts);
+            logger.warn("Telegram call to chat {} failed ({}), retry {} in {} ms",
+                    pending.chatId, cause.getMessage(), pending.attempts, TimeUnit.NANOSECONDS.toMillis(delay));
+            // Back to the head of the lane: the whole chat waits, so order is kept
+            lane.queue.addFirst(pending);
+            queued.incrementAndGet();
+            schedule(lane, delay);
+            return;
+        }
+
+        // Failed edits fall back to a send in the senders, so only lost messages are dead-lettered
+        if (retryable || pending.method instanceof SendMessage) {
+            deadLetterLog.record(pending.chatId, pending.method.getClass().getSimpleName(),
+                    describe(pending.method), cause.getMessage(), pending.attempts);
+        }
+        pending.future.completeExceptionally(cause);
+        schedule(lane, 0);
+    }
+
+    /**
+     * Delay before the next attempt: retry_after when Telegram sent one, otherwise
+     * exponential backoff capped at max-delay with "equal jitter" (half fixed, half random)
+     */
+    private long retryDelayNanos(Throwable error, int attempt) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int retryAfter = TelegramErrors.retryAfterSeconds(error);
+        if (retryAfter > 0) {
+            // A little jitter keeps chats parked by the same flood from waking up together
+            return TimeUnit.SECONDS.toNanos(retryAfter) + TimeUnit.MILLISECONDS.toNanos(random.nextLong(250));
+        }
+
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return TimeUnit.MILLISECONDS.toNanos(ceiling / 2 + random.nextLong(ceiling / 2 + 1));
+    }
+
+    private static String describe(BotApiMethod<?> method) {
+        String text = null;
+        if (method instanceof SendMessage sendMessage) {
+            text = sendMessage.getText();
+        } else if (method instanceof EditMessageText editMessageText) {
+            text = editMessageText.getText();
+        }
+        if (text == null) {
+            return "";
+        }
+        return text.length() > 80 ? text.substring(0, 80) + "…" : text;
+    }
+
+    private void release(ChatLane lane) {
+        lane.active.set(false);
+        // A submit may have slipped in between the empty check and the flag reset
+        if (!lane.queue.isEmpty() && lane.active.compareAndSet(false, true)) {
+            schedule(lane, 0);
+        }
+    }
+
+    private <T extends Serializable> CompletableFuture<T> dispatch(BotApiMethod<T> method) {
+        TelegramClient client = telegramClient;
+        if (client == null) {
+            return CompletableFuture.failedFuture(new TelegramApiException("Telegram client is not initialized"));
+        }
+
+        if (virtualThreads) {
+            // One virtual thread per blocking call
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return client.execute(method);
+                } catch (TelegramApiException e) {
+                    throw new CompletionException(e);
+                }
+            }, outboundExecutor);
+        }
+
+        try {
+            return client.executeAsync(method);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        sentCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void evictIdleLanes() {
+        long now = System.nanoTime();
+        for (Long chatId : lanes.keySet()) {
+            lanes.computeIfPresent(chatId, (id, lane) ->
+                    !lane.active.get() && lane.queue.isEmpty() && lane.bucket.isIdle(now) ? null : lane);
+        }
+    }
+
+    private void failAll(ChatLane lane) {
+        PendingSend<?> pending;
+        while ((pending = lane.queue.poll()) != null) {
+            queued.decrementAndGet();
+            pending.future.completeExceptionally(new TelegramApiException("Outbound scheduler is shut down"));
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, long timeoutMs) throws TelegramApiException {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new TelegramApiException("No answer from Telegram within " + timeoutMs + " ms, the call is still queued", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TelegramApiException("Interrupted while waiting for Telegram", e);
+        } catch (ExecutionException e) {
+            Throwable cause = TelegramErrors.unwrap(e);
+            if (cause instanceof TelegramApiException telegramApiException) {
+                throw telegramApiException;
+            }
+            throw new TelegramApiException(cause);
+        }
+    }
+
+    /**
+     * Per-chat FIFO with its own bucket; active while scheduled or in flight
+     */
+    private final class ChatLane {
+        private final Deque<PendingSend<?>> queue = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean active = new AtomicBoolean();
+        private final TokenBucket bucket;
+
+        ChatLane(long chatId) {
+            // Negative ids are groups and channels
+            this.bucket = chatId < 0
+                    ? new TokenBucket(groupPerMinute, Duration.ofMinutes(1), burst)
+                    : new TokenBucket(chatPerSecond, Duration.ofSeconds(1), burst);
+        }
+    }
+
+    private static final class PendingSend<T extends Serializable> {
+        private final long chatId;
+        private final BotApiMethod<T> method;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+        private int attempts;
+
+        PendingSend(long chatId, BotApiMethod<T> method) {
+            this.chatId = chatId;
+            this.method = method;
+        }
+    }
+}
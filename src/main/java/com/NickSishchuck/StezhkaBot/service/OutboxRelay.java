@@ -0,0 +1,365 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.entity.OutboxMessage;
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import com.NickSishchuck.StezhkaBot.repository.OutboxMessageRepository;
+import com.NickSishchuck.StezhkaBot.repository.RequestAdminMessageRepository;
+import com.NickSishchuck.StezhkaBot.utils.RenderedMessageCache;
+import com.NickSishchuck.StezhkaBot.utils.TelegramErrors;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers the notification outbox (at least once).
+ * Batches of due messages are leased to this instance, queued on the outbound scheduler together, and
+ * marked sent or rescheduled once the batch has finished; a lease left behind by a dead instance
+ * expires and the messages are picked up again. Runs every poll-interval-ms and right after a commit
+ * that added messages.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(10);
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxMessageRepository outboxRepository;
+    private final RequestAdminMessageRepository adminMessageRepository;
+    private final OutboundScheduler outboundScheduler;
+    private final RenderedMessageCache renderedMessages;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final long retentionHours;
+
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicBoolean wakeQueued = new AtomicBoolean();
+    private final ScheduledExecutorService relayThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Delivery metrics since the last report
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder totalLagMillis = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    @Autowired
+    public OutboxRelay(OutboxMessageRepository outboxRepository,
+                       RequestAdminMessageRepository adminMessageRepository,
+                       OutboundScheduler outboundScheduler,
+                       RenderedMessageCache renderedMessages,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${bot.outbox.poll-interval-ms:1000}") long pollIntervalMs,
+                       @Value("${bot.outbox.batch-size:50}") int batchSize,
+                       @Value("${bot.outbox.lease-seconds:120}") long leaseSeconds,
+                       @Value("${bot.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${bot.outbox.retry-delay-ms:5000}") long retryDelayMs,
+                       @Value("${bot.outbox.retention-hours:72}") long retentionHours) {
+        this.outboxRepository = outboxRepository;
+        this.adminMessageRepository = adminMessageRepository;
+        this.outboundScheduler = outboundScheduler;
+        this.renderedMessages = renderedMessages;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pollIntervalMs = Math.max(100, pollIntervalMs);
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseSeconds = Math.max(10, leaseSeconds);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMs = Math.max(100, retryDelayMs);
+        this.retentionHours = retentionHours;
+    }
+
+    @PostConstruct
+    public void start() {
+        relayThread.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a drain as soon as possible; wakes arriving while one is queued are merged into it
+     */
+    public void wake() {
+        if (wakeQueued.compareAndSet(false, true)) {
+            try {
+                relayThread.execute(() -> {
+                    wakeQueued.set(false);
+                    drain();
+                });
+            } catch (RuntimeException e) {
+                // Shutting down: the messages stay in the outbox for the next start
+                wakeQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Stop polling and let the batch in progress finish and settle, so no leased rows are left behind.
+     * Rows still pending stay in the outbox for the next instance.
+     *
+     * @return false when a batch was still running at the deadline
+     */
+    public boolean stop(Duration timeout) {
+        relayThread.shutdown();
+        try {
+            return relayThread.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!stop(Duration.ofSeconds(5))) {
+            relayThread.shutdownNow();
+        }
+    }
+
+    private void drain() {
+        if (!outboundScheduler.isReady()) {
+            return;
+        }
+        try {
+            while (relayBatch() == batchSize && !relayThread.isShutdown()) {
+                // A full batch: there may be more waiting
+            }
+        } catch (RuntimeException e) {
+            logger.error("Outbox relay failed, retrying at the next poll", e);
+        }
+    }
+
+    /**
+     * Lease, deliver and settle one batch
+     *
+     * @return number of messages leased
+     */
+    private int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        if (outboxRepository.claim(owner, now.plusSeconds(leaseSeconds), now, batchSize) == 0) {
+            return 0;
+        }
+        List<OutboxMessage> batch = outboxRepository.findByLeaseOwnerAndStatusAndLeaseUntilAfterOrderByIdAsc(
+                owner, OutboxMessage.OutboxStatus.PENDING, now);
+
+        List<RequestAdminMessage> adminCopies = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(batch.size());
+        for (OutboxMessage message : batch) {
+            deliveries.add(deliver(message, adminCopies));
+        }
+
+        // Settle well inside the lease, before another instance may take the rows over
+        long waitSeconds = leaseSeconds / 2;
+        try {
+            CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).get(waitSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Outbox batch still in flight after {} s, unfinished messages are retried when the lease expires",
+                    waitSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Never happens: each delivery settles its own failure
+        }
+
+        // Messages still in flight keep their lease and are not touched
+        List<OutboxMessage> settled = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (deliveries.get(i).isDone()) {
+                settled.add(batch.get(i));
+            }
+        }
+        List<RequestAdminMessage> copies = List.copyOf(adminCopies);
+        transactionTemplate.executeWithoutResult(status -> {
+            adminMessageRepository.saveAll(copies);
+            for (OutboxMessage message : settled) {
+                // Only while the lease is still ours: a relay that took the row over owns its state now
+                if (outboxRepository.settle(message, owner) == 0) {
+                    logger.warn("Outbox message {} was taken over by another relay, its result here is dropped",
+                            message.getId());
+                }
+            }
+        });
+        return batch.size();
+    }
+
+    private CompletableFuture<Void> deliver(OutboxMessage message, List<RequestAdminMessage> adminCopies) {
+        long chatId = message.getChatId();
+        InlineKeyboardMarkup keyboard;
+        try {
+            keyboard = message.getReplyMarkup() == null ? null
+                    : objectMapper.readValue(message.getReplyMarkup(), InlineKeyboardMarkup.class);
+        } catch (JsonProcessingException e) {
+            giveUp(message, "Unreadable reply_markup: " + e.getOriginalMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        boolean isEdit = message.getMessageId() != null;
+        CompletableFuture<?> call;
+        if (isEdit) {
+            int messageId = message.getMessageId();
+            if (renderedMessages.isUnchanged(chatId, messageId, message.getText(), keyboard, message.getParseMode())) {
+                markSent(message);
+                return CompletableFuture.completedFuture(null);
+            }
+            EditMessageText edit = EditMessageText.builder()
+                    .chatId(chatId)
+                    .messageId(messageId)
+                    .text(message.getText())
+                    .parseMode(message.getParseMode())
+                    .replyMarkup(keyboard)
+                    .build();
+            call = outboundScheduler.submit(chatId, edit).thenRun(() ->
+                    renderedMessages.remember(chatId, messageId, message.getText(), keyboard, message.getParseMode()));
+        } else {
+            SendMessage send = SendMessage.builder()
+                    .chatId(chatId)
+                    .text(message.getText())
+                    .parseMode(message.getParseMode())
+                    .replyMarkup(keyboard)
+                    .build();
+            call = outboundScheduler.submit(chatId, send).thenAccept(sent -> {
+                renderedMessages.remember(chatId, sent.getMessageId(), message.getText(), keyboard, message.getParseMode());
+                if (message.getRequestType() != null) {
+                    adminCopies.add(new RequestAdminMessage(message.getRequestType(), message.getRequestId(),
+                            chatId, sent.getMessageId()));
+                }
+            });
+        }
+
+        return call.handle((result, error) -> {
+            if (error == null || (isEdit && TelegramErrors.isNotModified(error))) {
+                markSent(message);
+            } else {
+                markFailed(message, TelegramErrors.unwrap(error));
+            }
+            return null;
+        });
+    }
+
+    private void markSent(OutboxMessage message) {
+        LocalDateTime now = LocalDateTime.now();
+        message.setStatus(OutboxMessage.OutboxStatus.SENT);
+        message.setSentAt(now);
+        message.setAttempts(message.getAttempts() + 1);
+        message.setLeaseOwner(null);
+        message.setLeaseUntil(null);
+
+        long lag = Duration.between(message.getCreatedAt(), now).toMillis();
+        sentCount.increment();
+        totalLagMillis.add(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    private void markFailed(OutboxMessage message, Throwable cause) {
+        message.setAttempts(message.getAttempts() + 1);
+        message.setLastError(truncate(cause.getMessage()));
+        message.setLeaseOwner(null);
+        message.setLeaseUntil(null);
+
+        if (message.getMessageId() != null && TelegramErrors.isEditImpossible(cause)) {
+            // Only when Telegram says the message is gone or too old; after anything else, including a
+            // network error, the edit may still have landed and a new message could be a duplicate
+            renderedMessages.forget(message.getChatId(), message.getMessageId());
+            message.setMessageId(null);
+            message.setNextAttemptAt(LocalDateTime.now());
+            return;
+        }
+        if (message.getAttempts() >= maxAttempts) {
+            giveUp(message, message.getLastError());
+            return;
+        }
+
+        long delay = Math.min(MAX_RETRY_DELAY.toMillis(), retryDelayMs << Math.min(20, message.getAttempts() - 1));
+        message.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        logger.warn("Outbox message {} to chat {} failed ({}), attempt {} of {}, next in {} ms",
+                message.getId(), message.getChatId(), cause.getMessage(), message.getAttempts(), maxAttempts, delay);
+    }
+
+    private void giveUp(OutboxMessage message, String reason) {
+        message.setStatus(OutboxMessage.OutboxStatus.FAILED);
+        message.setLastError(truncate(reason));
+        message.setLeaseOwner(null);
+        message.setLeaseUntil(null);
+        failedCount.increment();
+        logger.error("Outbox message {} to chat {} dropped after {} attempt(s): {}",
+                message.getId(), message.getChatId(), message.getAttempts(), reason);
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * How far the relay is behind: undelivered messages and the age of the oldest, plus the
+     * create-to-send lag of the messages delivered since the last report
+     */
+    @Scheduled(fixedDelayString = "${bot.outbox.metrics-interval-ms:60000}",
+            initialDelayString = "${bot.outbox.metrics-interval-ms:60000}")
+    public void reportMetrics() {
+        long pending = outboxRepository.countByStatus(OutboxMessage.OutboxStatus.PENDING);
+        long oldestAgeMs = outboxRepository.findFirstByStatusOrderByIdAsc(OutboxMessage.OutboxStatus.PENDING)
+                .map(message -> Duration.between(message.getCreatedAt(), LocalDateTime.now()).toMillis())
+                .orElse(0L);
+        long sent = sentCount.sumThenReset();
+        long failed = failedCount.sumThenReset();
+        long totalLag = totalLagMillis.sumThenReset();
+        long maxLag = maxLagMillis.getAndSet(0);
+
+        if (pending == 0 && sent == 0 && failed == 0) {
+            return;
+        }
+        logger.info("Outbox: {} pending (oldest {} ms), {} sent (avg lag {} ms, max {} ms), {} failed",
+                pending, oldestAgeMs, sent, sent == 0 ? 0 : totalLag / sent, maxLag, failed);
+    }
+
+    /**
+     * Delivered messages are only kept for a while, for troubleshooting
+     */
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 3_600_000)
+    public void purgeSent() {
+        int removed = outboxRepository.deleteByStatusBefore(OutboxMessage.OutboxStatus.SENT,
+                LocalDateTime.now().minusHours(retentionHours));
+        if (removed > 0) {
+            logger.info("Removed {} delivered outbox messages older than {} hours", removed, retentionHours);
+        }
+    }
+}
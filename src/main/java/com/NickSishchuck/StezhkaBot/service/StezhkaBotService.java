@@ -1,19 +1,32 @@
 package com.NickSishchuck.StezhkaBot.service;
 
+import com.NickSishchuck.StezhkaBot.component.UpdateDispatcher;
+import com.NickSishchuck.StezhkaBot.component.UpdateDispatcher.Lane;
+import com.NickSishchuck.StezhkaBot.component.UpdateOffsetTracker;
 import com.NickSishchuck.StezhkaBot.handler.AdminHandler;
 import com.NickSishchuck.StezhkaBot.handler.ConsultationHandler;
 import com.NickSishchuck.StezhkaBot.handler.EnrollmentHandler;
+import com.NickSishchuck.StezhkaBot.handler.MenuHandler;
 import com.NickSishchuck.StezhkaBot.handler.MenuHandlerRegistry;
+import com.NickSishchuck.StezhkaBot.handler.TextInputHandler;
+import com.NickSishchuck.StezhkaBot.state.ActiveFlowIndex;
+import com.NickSishchuck.StezhkaBot.utils.LatencyRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class StezhkaBotService implements LongPollingUpdateConsumer {
@@ -23,44 +36,121 @@ public class StezhkaBotService implements LongPollingUpdateConsumer {
     private final AdminHandler adminHandler;
     private final EnrollmentHandler enrollmentHandler;
     private final ConsultationHandler consultationHandler;
+    private final ActiveFlowIndex activeFlows;
+    private final Map<String, TextInputHandler> textInputHandlers = new HashMap<>();
+    private final AtomicLong routedTexts = new AtomicLong();
+    private final AtomicLong declinedTexts = new AtomicLong();
+    private final AtomicLong unroutedTexts = new AtomicLong();
     private final String botUsername;
     private final MenuHandlerRegistry handlerRegistry;
-    private TelegramClient telegramClient;
+    private final UpdateDispatcher updateDispatcher;
+    private final UpdateOffsetTracker offsetTracker;
+    private final OutboundScheduler outboundScheduler;
+    private final AdminRegistry adminRegistry;
+    private final int staticCacheSeconds;
+    private final LatencyRecorder tapToRender = new LatencyRecorder();
 
     @Autowired
     public StezhkaBotService(String botUsername, MenuHandlerRegistry handlerRegistry,
                              AdminHandler adminHandler, EnrollmentHandler enrollmentHandler,
-                             ConsultationHandler consultationHandler) {
+                             ConsultationHandler consultationHandler, List<TextInputHandler> textInputHandlers,
+                             ActiveFlowIndex activeFlows, UpdateDispatcher updateDispatcher,
+                             UpdateOffsetTracker offsetTracker, OutboundScheduler outboundScheduler,
+                             AdminRegistry adminRegistry,
+                             @Value("${bot.callbacks.static-cache-seconds:0}") int staticCacheSeconds) {
         this.botUsername = botUsername;
         this.handlerRegistry = handlerRegistry;
         this.adminHandler = adminHandler;
         this.enrollmentHandler = enrollmentHandler;
         this.consultationHandler = consultationHandler;
-    }
-
-    public void setTelegramClient(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
-        handlerRegistry.setTelegramClient(telegramClient);
-        adminHandler.setTelegramClient(telegramClient);
-        enrollmentHandler.setTelegramClient(telegramClient);
-        consultationHandler.setTelegramClient(telegramClient);
+        this.activeFlows = activeFlows;
+        for (TextInputHandler handler : textInputHandlers) {
+            if (this.textInputHandlers.put(handler.getFlowId(), handler) != null) {
+                throw new IllegalStateException("Duplicate text input flow: " + handler.getFlowId());
+            }
+        }
+        this.updateDispatcher = updateDispatcher;
+        this.offsetTracker = offsetTracker;
+        this.outboundScheduler = outboundScheduler;
+        this.adminRegistry = adminRegistry;
+        this.staticCacheSeconds = Math.max(0, staticCacheSeconds);
     }
 
     @Override
     public void consume(List<Update> updates) {
+        // Updates of one chat stay in order, different chats are handled in parallel
         for (Update update : updates) {
-            try {
-                if (update.hasMessage() && update.getMessage().hasText()) {
-                    handleTextMessage(update.getMessage());
-                } else if (update.hasCallbackQuery()) {
-                    handleCallbackQuery(update);
-                }
-            } catch (Exception e) {
-                logger.error("Error processing update", e);
+            // Redelivered after a restart or a webhook retry
+            if (!offsetTracker.accept(update.getUpdateId())) {
+                continue;
+            }
+            long chatId = resolveChatId(update);
+            long receivedAt = System.nanoTime();
+
+            if (update.hasCallbackQuery()) {
+                // Sent from here rather than a dispatcher lane, so it never waits behind a running handler
+                answerCallbackQuery(update.getCallbackQuery());
+            }
+
+            Lane lane = laneFor(update, chatId);
+            int screenId = lane == Lane.MENU && update.hasCallbackQuery() ? resolveMessageId(update) : 0;
+            if (!updateDispatcher.dispatch(chatId, lane, screenId, () -> processUpdate(update, receivedAt))) {
+                logger.debug("Shed menu update {} from chat {}", update.getUpdateId(), chatId);
             }
         }
     }
 
+    /**
+     * Admins get their own lane; form input and the callbacks of non-navigation handlers go ahead
+     * of plain menu navigation, which is the only traffic shed under load
+     */
+    private Lane laneFor(Update update, long chatId) {
+        if (adminRegistry.isAdmin(chatId)) {
+            return Lane.ADMIN;
+        }
+        if (update.hasCallbackQuery()) {
+            MenuHandler handler = handlerRegistry.resolve(update.getCallbackQuery().getData());
+            return handler != null && !handler.isNavigation() ? Lane.FORM : Lane.MENU;
+        }
+        if (update.hasMessage() && update.getMessage().hasText()) {
+            boolean command = update.getMessage().getText().startsWith("/");
+            // Runs on the ingress thread, so only what the state store has cached is consulted
+            return !command && activeFlows.mayHaveOwner(chatId) ? Lane.FORM : Lane.MENU;
+        }
+        return Lane.MENU;
+    }
+
+    private void processUpdate(Update update, long receivedAt) {
+        try {
+            if (update.hasMessage() && update.getMessage().hasText()) {
+                handleTextMessage(update.getMessage());
+            } else if (update.hasCallbackQuery()) {
+                // Handlers may only queue their edit, so the tap ends when Telegram has answered it
+                outboundScheduler.trackChatSends(() -> handleCallbackQuery(update))
+                        .thenRun(() -> tapToRender.record(System.nanoTime() - receivedAt));
+            }
+        } catch (Exception e) {
+            logger.error("Error processing update", e);
+        }
+    }
+
+    private long resolveChatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return 0L;
+    }
+
+    private int resolveMessageId(Update update) {
+        if (update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getMessageId();
+        }
+        return 0;
+    }
+
     private void handleTextMessage(Message message) {
         String messageText = message.getText();
         long chatId = message.getChatId();
@@ -89,26 +179,51 @@ public class StezhkaBotService implements LongPollingUpdateConsumer {
             return;
         }
 
-        // Check if admin is editing text
-        boolean adminEditHandled = adminHandler.processTextInput(chatId, messageText);
-        if (adminEditHandled) {
+        // Hand the text to the flow that is waiting for it (admin edit, form), if any
+        if (routeToActiveFlow(chatId, messageText)) {
             return;
         }
 
-        // Check if user is in enrollment process
-        boolean enrollmentHandled = enrollmentHandler.processTextInput(chatId, messageText);
-        if (enrollmentHandled) {
-            return;
+        // For now, just redirect unknown messages to main menu
+        unroutedTexts.incrementAndGet();
+        handlerRegistry.handle(chatId, "main");
+    }
+
+    private boolean routeToActiveFlow(long chatId, String messageText) {
+        String flowId = activeFlows.owner(chatId);
+        if (flowId == null) {
+            return false;
         }
 
-        // Check if user is in consultation process
-        boolean consultationHandled = consultationHandler.processTextInput(chatId, messageText);
-        if (consultationHandled) {
-            return;
+        TextInputHandler handler = textInputHandlers.get(flowId);
+        if (handler == null) {
+            // Claimed by a flow this version of the bot does not have
+            activeFlows.release(chatId, flowId);
+            return false;
         }
 
-        // For now, just redirect unknown messages to main menu
-        handlerRegistry.handle(chatId, "main");
+        if (handler.processTextInput(chatId, messageText)) {
+            routedTexts.incrementAndGet();
+            return true;
+        }
+
+        // The flow is open but not expecting text (e.g. a form waiting for confirmation)
+        declinedTexts.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Log how free text was routed since the last report
+     */
+    @Scheduled(fixedDelayString = "${bot.dispatcher.metrics-interval-ms:60000}")
+    public void reportTextRouting() {
+        long routed = routedTexts.getAndSet(0);
+        long declined = declinedTexts.getAndSet(0);
+        long unrouted = unroutedTexts.getAndSet(0);
+        if (routed + declined + unrouted > 0) {
+            logger.info("Text routing: {} to active flows, {} declined by their flow, {} fell back to main menu",
+                    routed, declined, unrouted);
+        }
     }
 
     private void handleCallbackQuery(Update update) {
@@ -119,35 +234,48 @@ public class StezhkaBotService implements LongPollingUpdateConsumer {
 
         logger.info("Received callback from {}: {}", firstName, callbackData);
 
-        // Answer callback query to remove loading indicator
-        try {
-            telegramClient.execute(org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery.builder()
-                    .callbackQueryId(update.getCallbackQuery().getId())
-                    .build());
-        } catch (Exception e) {
-            logger.warn("Failed to answer callback query", e);
-        }
+        // Single routing table lookup (admin, enrollment and consultation handlers included)
+        handlerRegistry.handle(chatId, messageId, callbackData);
+    }
 
-        // Handle admin callbacks
-        if (adminHandler.canHandle(callbackData)) {
-            adminHandler.handle(chatId, messageId, callbackData);
-            return;
+    /**
+     * Answer the callback query to remove the loading indicator (also for taps shed from the menu lane).
+     * Runs on the ingress thread: one routing lookup, and the answer is not awaited. Taps opening a static
+     * screen may be cached by the client for bot.callbacks.static-cache-seconds.
+     */
+    private void answerCallbackQuery(CallbackQuery query) {
+        Integer cacheTime = null;
+        if (staticCacheSeconds > 0) {
+            MenuHandler handler = handlerRegistry.resolve(query.getData());
+            if (handler != null && handler.isStaticScreen(query.getData())) {
+                cacheTime = staticCacheSeconds;
+            }
         }
 
-        // Handle enrollment callbacks
-        if (enrollmentHandler.canHandle(callbackData)) {
-            enrollmentHandler.handle(chatId, messageId, callbackData);
-            return;
-        }
+        AnswerCallbackQuery answer = AnswerCallbackQuery.builder()
+                .callbackQueryId(query.getId())
+                .cacheTime(cacheTime)
+                .build();
+        outboundScheduler.submit(answer).whenComplete((ok, error) -> {
+            if (error != null) {
+                logger.warn("Failed to answer callback query: {}", error.getMessage());
+            }
+        });
+    }
 
-        // Handle consultation callbacks
-        if (consultationHandler.canHandle(callbackData)) {
-            consultationHandler.handle(chatId, messageId, callbackData);
-            return;
+    /**
+     * Log the time from receiving a callback to Telegram answering the sends its handler queued.
+     * Sends made later from other threads (the outbox relay's request confirmations, an edit's
+     * fallback message) are not waited for, so those taps count until their handler returned.
+     */
+    @Scheduled(fixedDelayString = "${bot.dispatcher.metrics-interval-ms:60000}")
+    public void reportCallbackLatency() {
+        LatencyRecorder.Snapshot latency = tapToRender.snapshotAndReset();
+        if (latency.count() > 0) {
+            logger.info("Callback tap-to-render: {} taps, p50 {} ms, p99 {} ms, max {} ms",
+                    latency.count(), String.format("%.1f", latency.p50Millis()),
+                    String.format("%.1f", latency.p99Millis()), String.format("%.1f", latency.maxMillis()));
         }
-
-        // Delegate to appropriate handler using edit method for callback queries
-        handlerRegistry.handle(chatId, messageId, callbackData);
     }
 
     public String getBotUsername() {
@@ -6,27 +6,44 @@ import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 
+/**
+ * Serves bot texts from an immutable snapshot behind one volatile reference.
+ * Reloads and edits build a new snapshot off to the side and publish it in one write,
+ * so readers never block and never see a partial or empty cache.
+ * A background poller merges rows changed on other instances, using updated_at as a watermark.
+ */
 @Service
 public class TextContentService {
 
     private static final Logger logger = LoggerFactory.getLogger(TextContentService.class);
 
+    private static final LocalDateTime EMPTY_TABLE_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final TextContentRepository textContentRepository;
-    private final Map<String, String> textCache = new ConcurrentHashMap<>();
+    private final Duration pollOverlap;
+    private volatile TextSnapshot snapshot = new TextSnapshot(0, Map.of());
+    // Newest updated_at seen so far; null until the first full load succeeded
+    private volatile LocalDateTime watermark;
 
     @Autowired
     private AdminNotificationService notificationService;
 
     @Autowired
-    public TextContentService(TextContentRepository textContentRepository) {
+    public TextContentService(TextContentRepository textContentRepository,
+                              @Value("${bot.texts.poll-overlap-ms:5000}") long pollOverlapMs) {
         this.textContentRepository = textContentRepository;
+        this.pollOverlap = Duration.ofMillis(pollOverlapMs);
     }
 
     /**
@@ -35,24 +52,41 @@ public class TextContentService {
     @PostConstruct
     public void loadAllTexts() {
         try {
-            logger.info("Loading text content from database...");
+            reload();
+        } catch (Exception e) {
+            logger.error("Failed to load text content from database. Keeping the current texts.", e);
+        }
+    }
 
-            List<TextContent> allTexts = textContentRepository.findAll();
+    /**
+     * Merge rows changed since the last watermark into the snapshot.
+     * The query looks back by a small overlap, so rows written by another node with a slightly
+     * skewed clock or committed late are not missed; re-reading a row is harmless.
+     */
+    @Scheduled(fixedDelayString = "${bot.texts.poll-interval-ms:5000}",
+            initialDelayString = "${bot.texts.poll-interval-ms:5000}")
+    public synchronized void pollChanges() {
+        LocalDateTime since = watermark;
+        if (since == null) {
+            // Startup load failed, retry it in full
+            loadAllTexts();
+            return;
+        }
 
-            if (allTexts.isEmpty()) {
-                logger.warn("No text content found in database. Initializing with default values...");
+        try {
+            List<TextContent> changed = textContentRepository.findByUpdatedAtGreaterThanEqual(since.minus(pollOverlap));
+            if (changed.isEmpty()) {
                 return;
             }
 
-            // Load into cache
-            for (TextContent content : allTexts) {
-                textCache.put(content.getTextKey(), content.getTextValue());
-            }
-
-            logger.info("Successfully loaded {} text entries from database", textCache.size());
+            int merged = merge(changed);
+            advanceWatermark(newestUpdate(changed, since));
 
+            if (merged > 0) {
+                logger.info("Merged {} changed text entries (version {})", merged, snapshot.version());
+            }
         } catch (Exception e) {
-            logger.error("Failed to load text content from database. Using fallback values.", e);
+            logger.warn("Failed to poll text content changes: {}", e.getMessage());
         }
     }
 
@@ -60,7 +94,7 @@ public class TextContentService {
      * Get text by key name
      */
     public String getText(String key) {
-        String text = textCache.get(key);
+        String text = snapshot.texts().get(key);
         if (text == null) {
             logger.warn("Text key '{}' not found in cache. Returning key as fallback.", key);
             return key; // Return key as fallback
@@ -81,7 +115,7 @@ public class TextContentService {
             textContentRepository.save(content);
 
             // Update cache
-            textCache.put(key, newValue);
+            publish(key, newValue);
 
             logger.info("Successfully updated text key '{}' with new value", key);
             return true;
@@ -107,7 +141,7 @@ public class TextContentService {
             textContentRepository.save(content);
 
             // Update cache
-            textCache.put(key, value);
+            publish(key, value);
 
             logger.info("Successfully created new text key '{}'", key);
             return true;
@@ -120,17 +154,125 @@ public class TextContentService {
 
     /**
      * Refresh cache from database
+     *
+     * @throws org.springframework.dao.DataAccessException when the texts cannot be read; the current ones stay in use
      */
     public void refreshCache() {
         logger.info("Refreshing text content cache...");
-        textCache.clear();
-        loadAllTexts();
+        reload();
     }
 
     /**
      * Get all cached texts (for debugging/admin purposes)
      */
     public Map<String, String> getAllTexts() {
-        return Map.copyOf(textCache);
+        return snapshot.texts();
+    }
+
+    /**
+     * Version of the current snapshot; it grows with every publish, so renderers can
+     * use it to invalidate anything they derived from the texts
+     */
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    public TextSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Full load. The lock is held from the query to the publish (as in pollChanges), so rows read here
+     * can never be published over a newer poll or edit that ran in between
+     */
+    private synchronized void reload() {
+        logger.info("Loading text content from database...");
+
+        List<TextContent> allTexts = textContentRepository.findAll();
+
+        if (allTexts.isEmpty()) {
+            logger.warn("No text content found in database. Initializing with default values...");
+            advanceWatermark(EMPTY_TABLE_WATERMARK);
+            return;
+        }
+
+        // Build the new snapshot aside; readers keep using the old one until it is published
+        Map<String, String> texts = new HashMap<>();
+        for (TextContent content : allTexts) {
+            if (content.getTextValue() != null) {
+                texts.put(content.getTextKey(), content.getTextValue());
+            }
+        }
+        TextSnapshot published = publish(texts);
+        advanceWatermark(newestUpdate(allTexts, EMPTY_TABLE_WATERMARK));
+
+        logger.info("Successfully loaded {} text entries from database (version {})",
+                published.texts().size(), published.version());
+    }
+
+    /**
+     * The watermark only moves forward; moving it back would re-merge rows already seen
+     */
+    private synchronized void advanceWatermark(LocalDateTime newest) {
+        if (watermark == null || newest.isAfter(watermark)) {
+            watermark = newest;
+        }
+    }
+
+    private synchronized TextSnapshot publish(Map<String, String> texts) {
+        snapshot = new TextSnapshot(snapshot.version() + 1, Map.copyOf(texts));
+        return snapshot;
+    }
+
+    /**
+     * Copy-on-write merge of changed rows; publishes only when a value actually differs
+     */
+    private synchronized int merge(List<TextContent> changed) {
+        Map<String, String> current = snapshot.texts();
+        Map<String, String> texts = null;
+        int merged = 0;
+
+        for (TextContent content : changed) {
+            String value = content.getTextValue();
+            if (value == null || value.equals(current.get(content.getTextKey()))) {
+                continue;
+            }
+            if (texts == null) {
+                texts = new HashMap<>(current);
+            }
+            texts.put(content.getTextKey(), value);
+            merged++;
+        }
+
+        if (texts != null) {
+            publish(texts);
+        }
+        return merged;
+    }
+
+    private static LocalDateTime newestUpdate(List<TextContent> contents, LocalDateTime floor) {
+        LocalDateTime newest = floor;
+        for (TextContent content : contents) {
+            LocalDateTime updatedAt = content.getUpdatedAt();
+            if (updatedAt != null && updatedAt.isAfter(newest)) {
+                newest = updatedAt;
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Copy-on-write update of a single key
+     */
+    private synchronized void publish(String key, String value) {
+        Map<String, String> texts = new HashMap<>(snapshot.texts());
+        texts.put(key, value);
+        publish(texts);
+    }
+
+    /**
+     * Immutable view of all texts at one point in time
+     */
+    public record TextSnapshot(long version, Map<String, String> texts) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.NickSishchuck.StezhkaBot.state;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which flow (a form, an admin text edit) owns a chat's next text message.
+ * Flows claim the chat when they start waiting for text and release it when they end,
+ * so routing a message is one lookup instead of asking every flow in turn.
+ * The latest claim wins.
+ */
+@Component
+public class ActiveFlowIndex {
+
+    private static final String STATE_NAMESPACE = "active_flow";
+    // Stands in for an owner the store would have to load
+    private static final String NOT_CACHED = "";
+
+    private final ConversationStateStore stateStore;
+
+    @Autowired
+    public ActiveFlowIndex(ConversationStateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
+    public void claim(long chatId, String flowId) {
+        stateStore.put(STATE_NAMESPACE, chatId, flowId);
+    }
+
+    /**
+     * Release the chat if this flow still owns it; a newer claim by another flow is kept
+     */
+    public void release(long chatId, String flowId) {
+        if (flowId.equals(owner(chatId))) {
+            stateStore.remove(STATE_NAMESPACE, chatId);
+        }
+    }
+
+    /**
+     * @return the owning flow id, or null when no flow is waiting for text from this chat
+     */
+    public String owner(long chatId) {
+        return stateStore.get(STATE_NAMESPACE, chatId, String.class);
+    }
+
+    /**
+     * Like {@link #owner} != null, but never waits for the store's database: a chat whose owner
+     * is not cached counts as owned, so callers that must not block lean towards the flow
+     */
+    public boolean mayHaveOwner(long chatId) {
+        return stateStore.peek(STATE_NAMESPACE, chatId, String.class, NOT_CACHED) != null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.NickSishchuck.StezhkaBot.state;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Storage for half-finished conversations (enrollment and consultation forms, admin edits),
+ * keyed by namespace and chat id.
+ * States are mutable objects: after changing one in place, put it back so the store sees the change.
+ */
+public interface ConversationStateStore {
+
+    <S extends Serializable> S get(String namespace, long chatId, Class<S> type);
+
+    /**
+     * Like {@link #get}, but never waits for a database: a store that would have to load the state
+     * returns ifNotCached instead. Meant for routing decisions on threads that must not block.
+     */
+    default <S extends Serializable> S peek(String namespace, long chatId, Class<S> type, S ifNotCached) {
+        return get(namespace, chatId, type);
+    }
+
+    void put(String namespace, long chatId, Serializable state);
+
+    void remove(String namespace, long chatId);
+
+    /**
+     * Drop the chat's state unless it was written within maxIdle (for example on another instance)
+     *
+     * @return true when a state was removed
+     */
+    boolean removeIfIdle(String namespace, long chatId, Duration maxIdle);
+
+    /**
+     * Write out buffered changes; stores that write through have nothing to do
+     */
+    default void flush() {
+    }
+}
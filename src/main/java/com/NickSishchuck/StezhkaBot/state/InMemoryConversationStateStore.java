@@ -0,0 +1,54 @@
+package com.NickSishchuck.StezhkaBot.state;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default store: plain maps inside this JVM. Nothing survives a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "bot.state.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryConversationStateStore implements ConversationStateStore {
+
+    private final Map<String, Map<Long, StoredState>> namespaces = new ConcurrentHashMap<>();
+
+    @Override
+    public <S extends Serializable> S get(String namespace, long chatId, Class<S> type) {
+        StoredState stored = namespace(namespace).get(chatId);
+        return stored != null ? type.cast(stored.state()) : null;
+    }
+
+    @Override
+    public void put(String namespace, long chatId, Serializable state) {
+        namespace(namespace).put(chatId, new StoredState(state, Instant.now()));
+    }
+
+    @Override
+    public void remove(String namespace, long chatId) {
+        namespace(namespace).remove(chatId);
+    }
+
+    @Override
+    public boolean removeIfIdle(String namespace, long chatId, Duration maxIdle) {
+        Instant cutoff = Instant.now().minus(maxIdle);
+        boolean[] removed = new boolean[1];
+        namespace(namespace).computeIfPresent(chatId, (id, stored) -> {
+            removed[0] = stored.writtenAt().isBefore(cutoff);
+            return removed[0] ? null : stored;
+        });
+        return removed[0];
+    }
+
+    private Map<Long, StoredState> namespace(String namespace) {
+        return namespaces.computeIfAbsent(namespace, name -> new ConcurrentHashMap<>());
+    }
+
+    private record StoredState(Serializable state, Instant writtenAt) {
+    }
+}
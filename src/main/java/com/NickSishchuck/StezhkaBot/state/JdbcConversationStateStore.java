@@ -0,0 +1,298 @@
+package com.NickSishchuck.StezhkaBot.state;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversation state in the conversation_state table, so forms survive restarts and can be
+ * continued on another instance.
+ * Writes go to a local cache and are flushed in batches every flush-interval; repeated writes to the
+ * same chat in between collapse into one row update. Reads are served from the cache and fall through
+ * to the database once an entry is older than cache-ttl.
+ */
+@Component
+@ConditionalOnProperty(name = "bot.state.store", havingValue = "jdbc")
+public class JdbcConversationStateStore implements ConversationStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcConversationStateStore.class);
+
+    private static final String SELECT_SQL =
+            "SELECT state_data FROM conversation_state WHERE namespace = ? AND chat_id = ?";
+    private static final String UPSERT_SQL =
+            "INSERT INTO conversation_state (namespace, chat_id, state_data, updated_at) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE state_data = VALUES(state_data), updated_at = VALUES(updated_at)";
+    private static final String DELETE_SQL =
+            "DELETE FROM conversation_state WHERE namespace = ? AND chat_id = ?";
+    private static final String DELETE_IDLE_SQL =
+            "DELETE FROM conversation_state WHERE namespace = ? AND chat_id = ? AND updated_at < ?";
+    private static final String DELETE_STALE_SQL =
+            "DELETE FROM conversation_state WHERE updated_at < ?";
+
+    // Only our own state classes and the JDK types they hold may be deserialized
+    private static final ObjectInputFilter STATE_FILTER = ObjectInputFilter.Config.createFilter(
+            "com.NickSishchuck.StezhkaBot.**;java.time.*;java.lang.*;java.util.*;!*");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long flushIntervalMillis;
+    private final long cacheTtlNanos;
+    private final int batchSize;
+    private final boolean initializeSchema;
+    private final Duration retention;
+
+    private final Map<StateKey, CachedState> cache = new ConcurrentHashMap<>();
+    private final Map<StateKey, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "state-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public JdbcConversationStateStore(JdbcTemplate jdbcTemplate,
+                                      @Value("${bot.state.jdbc.flush-interval-ms:500}") long flushIntervalMillis,
+                                      @Value("${bot.state.jdbc.cache-ttl-ms:5000}") long cacheTtlMillis,
+                                      @Value("${bot.state.jdbc.batch-size:200}") int batchSize,
+                                      @Value("${bot.state.jdbc.initialize-schema:true}") boolean initializeSchema,
+                                      @Value("${bot.state.jdbc.retention-hours:24}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushIntervalMillis = Math.max(10, flushIntervalMillis);
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cacheTtlMillis));
+        this.batchSize = Math.max(1, batchSize);
+        this.initializeSchema = initializeSchema;
+        this.retention = Duration.ofHours(Math.max(1, retentionHours));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (initializeSchema) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/conversation_state.sql"))
+                    .execute(jdbcTemplate.getDataSource());
+        }
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::purgeStale, 1, 1, TimeUnit.HOURS);
+        logger.info("JDBC conversation state store started (flush every {} ms)", flushIntervalMillis);
+    }
+
+    @Override
+    public <S extends Serializable> S get(String namespace, long chatId, Class<S> type) {
+        StateKey key = new StateKey(namespace, chatId);
+        long now = System.nanoTime();
+
+        CachedState cached = cache.get(key);
+        if (cached != null && (now - cached.cachedAt() < cacheTtlNanos || pending.containsKey(key))) {
+            return type.cast(cached.state());
+        }
+
+        List<byte[]> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> rs.getBytes(1), namespace, chatId);
+        Serializable state = rows.isEmpty() ? null : deserialize(key, rows.get(0));
+        // Absent states are cached too: most text messages come from chats that are not in any form.
+        // A put or remove that ran during the query is newer than the row we read and is kept.
+        CachedState loaded = new CachedState(state, now);
+        CachedState current = cache.compute(key, (k, existing) ->
+                existing != null && (existing.cachedAt() >= now || pending.containsKey(k)) ? existing : loaded);
+        return type.cast(current.state());
+    }
+
+    @Override
+    public <S extends Serializable> S peek(String namespace, long chatId, Class<S> type, S ifNotCached) {
+        StateKey key = new StateKey(namespace, chatId);
+        CachedState cached = cache.get(key);
+        if (cached != null && (System.nanoTime() - cached.cachedAt() < cacheTtlNanos || pending.containsKey(key))) {
+            return type.cast(cached.state());
+        }
+        return ifNotCached;
+    }
+
+    @Override
+    public void put(String namespace, long chatId, Serializable state) {
+        StateKey key = new StateKey(namespace, chatId);
+        // Serialized on the caller's thread so later in-place changes cannot race with the flush
+        byte[] data = serialize(state);
+        cache.put(key, new CachedState(state, System.nanoTime()));
+        pending.put(key, new PendingWrite(data, Instant.now()));
+    }
+
+    @Override
+    public void remove(String namespace, long chatId) {
+        StateKey key = new StateKey(namespace, chatId);
+        cache.put(key, new CachedState(null, System.nanoTime()));
+        pending.put(key, new PendingWrite(null, Instant.now()));
+    }
+
+    @Override
+    public boolean removeIfIdle(String namespace, long chatId, Duration maxIdle) {
+        StateKey key = new StateKey(namespace, chatId);
+        Instant cutoff = Instant.now().minus(maxIdle);
+
+        PendingWrite write = pending.get(key);
+        if (write != null && !write.isDelete() && !write.writtenAt().isBefore(cutoff)) {
+            return false;
+        }
+        if (write != null) {
+            pending.remove(key, write);
+        }
+
+        // The updated_at check keeps a state that another instance has touched since
+        int removed = jdbcTemplate.update(DELETE_IDLE_SQL, namespace, chatId, Timestamp.from(cutoff));
+        if (removed > 0) {
+            // Cached as absent rather than evicted, so a load that raced with the delete cannot bring it back
+            cache.put(key, new CachedState(null, System.nanoTime()));
+        } else {
+            cache.remove(key);
+        }
+        return removed > 0;
+    }
+
+    /**
+     * Write all pending changes. Entries rewritten while the batch was running stay pending for the next round.
+     */
+    @Override
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<StateKey, PendingWrite>> upserts = new ArrayList<>();
+        List<Map.Entry<StateKey, PendingWrite>> deletes = new ArrayList<>();
+        for (Map.Entry<StateKey, PendingWrite> entry : pending.entrySet()) {
+            Map.Entry<StateKey, PendingWrite> snapshot = Map.entry(entry.getKey(), entry.getValue());
+            (snapshot.getValue().isDelete() ? deletes : upserts).add(snapshot);
+        }
+
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts, batchSize, (ps, entry) -> {
+                ps.setString(1, entry.getKey().namespace());
+                ps.setLong(2, entry.getKey().chatId());
+                ps.setBytes(3, entry.getValue().data());
+                ps.setTimestamp(4, Timestamp.from(entry.getValue().writtenAt()));
+            });
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes, batchSize, (ps, entry) -> {
+                ps.setString(1, entry.getKey().namespace());
+                ps.setLong(2, entry.getKey().chatId());
+            });
+        }
+
+        upserts.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+        deletes.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+        logger.debug("Flushed {} conversation state writes and {} deletes", upserts.size(), deletes.size());
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (DataAccessException e) {
+            logger.error("Lost {} unflushed conversation states on shutdown: {}", pending.size(), e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Writes stay pending and are retried on the next tick
+            logger.warn("Failed to flush {} conversation states: {}", pending.size(), e.getMessage());
+        }
+        evictExpired();
+    }
+
+    /**
+     * Session timeouts live in memory, so rows left behind by an instance that went away are removed here
+     */
+    private void purgeStale() {
+        try {
+            int removed = jdbcTemplate.update(DELETE_STALE_SQL, Timestamp.from(Instant.now().minus(retention)));
+            if (removed > 0) {
+                logger.info("Removed {} conversation states older than {}", removed, retention);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to purge stale conversation states: {}", e.getMessage());
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        cache.entrySet().removeIf(entry ->
+                now - entry.getValue().cachedAt() >= cacheTtlNanos && !pending.containsKey(entry.getKey()));
+    }
+
+    private static byte[] serialize(Serializable state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize " + state.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Serializable deserialize(StateKey key, byte[] data) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            in.setObjectInputFilter(STATE_FILTER);
+            return (Serializable) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // Usually a state class that changed incompatibly between deploys; the user starts over
+            logger.warn("Dropping unreadable {} state for chat {}: {}", key.namespace(), key.chatId(), e.getMessage());
+            pending.putIfAbsent(key, new PendingWrite(null, Instant.now()));
+            return null;
+        }
+    }
+
+    private record StateKey(String namespace, long chatId) {
+    }
+
+    private record CachedState(Serializable state, long cachedAt) {
+    }
+
+    /**
+     * Serialized state to write, or a delete when data is null.
+     * The array is compared by reference, so a newer write never matches an older snapshot.
+     */
+    private record PendingWrite(byte[] data, Instant writtenAt) {
+
+        boolean isDelete() {
+            return data == null;
+        }
+    }
+}
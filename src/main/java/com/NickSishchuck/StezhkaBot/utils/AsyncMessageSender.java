@@ -0,0 +1,174 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import com.NickSishchuck.StezhkaBot.service.OutboundScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link MessageSender}. Every call only queues the request
+ * on the outbound scheduler and returns at once; the edit -> send fallback runs as a continuation.
+ * Like the blocking sender, failures are logged and never propagate: a failed send
+ * completes with null, so callers can chain further messages safely.
+ */
+@Component
+public class AsyncMessageSender {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncMessageSender.class);
+    private final OutboundScheduler outboundScheduler;
+    private final RenderedMessageCache renderedMessages;
+
+    @Autowired
+    public AsyncMessageSender(OutboundScheduler outboundScheduler, RenderedMessageCache renderedMessages) {
+        this.outboundScheduler = outboundScheduler;
+        this.renderedMessages = renderedMessages;
+    }
+
+    public CompletableFuture<Message> sendMessage(long chatId, String text, InlineKeyboardMarkup keyboard) {
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId)
+                .text(text)
+                .replyMarkup(keyboard)
+                .build();
+
+        return send(message, chatId, keyboard, "Message");
+    }
+
+    public CompletableFuture<Message> sendPlainMessage(long chatId, String text, InlineKeyboardMarkup keyboard) {
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId)
+                .text(text)
+                .replyMarkup(keyboard)
+                // No parseMode - sends as plain text, no MarkdownV2 parsing
+                .build();
+
+        return send(message, chatId, keyboard, "Plain message");
+    }
+
+    public CompletableFuture<Message> sendMarkdownMessage(long chatId, String text, InlineKeyboardMarkup keyboard) {
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId)
+                .text(text)
+                .replyMarkup(keyboard)
+                .parseMode("MarkdownV2")
+                .build();
+
+        return send(message, chatId, keyboard, "Markdown message");
+    }
+
+    public CompletableFuture<Void> editMessage(long chatId, int messageId, String text, InlineKeyboardMarkup keyboard) {
+        EditMessageText editMessage = EditMessageText.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .text(text)
+                .replyMarkup(keyboard)
+                .build();
+
+        return edit(editMessage, chatId, "Message", () -> sendMessage(chatId, text, keyboard));
+    }
+
+    public CompletableFuture<Void> editPlainMessage(long chatId, int messageId, String text, InlineKeyboardMarkup keyboard) {
+        EditMessageText editMessage = EditMessageText.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .text(text)
+                .replyMarkup(keyboard)
+                // No parseMode - edits as plain text
+                .build();
+
+        return edit(editMessage, chatId, "Plain message", () -> sendPlainMessage(chatId, text, keyboard));
+    }
+
+    public CompletableFuture<Void> editMarkdownMessage(long chatId, int messageId, String text, InlineKeyboardMarkup keyboard) {
+        EditMessageText editMessage = EditMessageText.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .text(text)
+                .replyMarkup(keyboard)
+                .parseMode("MarkdownV2")
+                .build();
+
+        return edit(editMessage, chatId, "Markdown message", () -> sendMarkdownMessage(chatId, text, keyboard));
+    }
+
+    public CompletableFuture<Void> editKeyboard(long chatId, int messageId, InlineKeyboardMarkup keyboard) {
+        EditMessageReplyMarkup editKeyboard = EditMessageReplyMarkup.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .replyMarkup(keyboard)
+                .build();
+
+        return outboundScheduler.submit(chatId, editKeyboard)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        renderedMessages.rememberKeyboard(chatId, messageId, keyboard);
+                        logger.info("Keyboard edited successfully in chat {}", chatId);
+                    } else if (!TelegramErrors.isNotModified(error)) {
+                        logger.error("Failed to edit keyboard in chat {}: {}", chatId, rootMessage(error));
+                    }
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Message> send(SendMessage message, long chatId, InlineKeyboardMarkup keyboard, String kind) {
+        return outboundScheduler.submit(chatId, message)
+                .handle((sent, error) -> {
+                    if (error != null) {
+                        logger.error("Failed to send {} to chat {}", kind.toLowerCase(), chatId, TelegramErrors.unwrap(error));
+                        return null;
+                    }
+                    if (sent != null && sent.getMessageId() != null) {
+                        renderedMessages.remember(chatId, sent.getMessageId(), message.getText(), keyboard, message.getParseMode());
+                    }
+                    logger.info("{} sent successfully to chat {}", kind, chatId);
+                    return sent;
+                });
+    }
+
+    private CompletableFuture<Void> edit(EditMessageText editMessage, long chatId, String kind,
+                                         Supplier<CompletableFuture<Message>> fallback) {
+        int messageId = editMessage.getMessageId();
+        String text = editMessage.getText();
+        InlineKeyboardMarkup keyboard = editMessage.getReplyMarkup();
+        String parseMode = editMessage.getParseMode();
+
+        if (renderedMessages.isUnchanged(chatId, messageId, text, keyboard, parseMode)) {
+            logger.debug("{} {} in chat {} is unchanged, edit skipped", kind, messageId, chatId);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return outboundScheduler.submit(chatId, editMessage)
+                .<Void>thenApply(result -> {
+                    renderedMessages.remember(chatId, messageId, text, keyboard, parseMode);
+                    logger.info("{} edited successfully in chat {}", kind, chatId);
+                    return null;
+                })
+                .exceptionallyCompose(error -> {
+                    if (TelegramErrors.isNotModified(error)) {
+                        // Same content is already on screen, which is what we wanted
+                        renderedMessages.remember(chatId, messageId, text, keyboard, parseMode);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    logger.error("Failed to edit {} in chat {}: {}", kind.toLowerCase(), chatId, rootMessage(error));
+                    renderedMessages.forget(chatId, messageId);
+                    // After a 429/5xx the scheduler has already retried; a new copy would only add to the flood
+                    if (TelegramErrors.isRetryable(error)) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // Fallback: send new message if editing fails
+                    return fallback.get().thenApply(sent -> null);
+                });
+    }
+
+    private static String rootMessage(Throwable error) {
+        return TelegramErrors.unwrap(error).getMessage();
+    }
+}
@@ -0,0 +1,134 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel for per-key timeouts: scheduling, rescheduling and cancelling are O(1),
+ * and each tick only looks at the keys in one bucket. Deadlines further away than one turn of the
+ * wheel simply stay in their bucket until the tick that owns them comes round.
+ * The wheel has no thread of its own; the owner calls advance() at least once per tick.
+ * All times are System.nanoTime() values.
+ */
+public final class HashedTimingWheel<K> {
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final int mask;
+    private final Timeout<K>[] buckets;
+    private final Map<K, Timeout<K>> timeouts = new HashMap<>();
+
+    // Next tick to process
+    private long currentTick;
+
+    /**
+     * @param tick      timer resolution; keys expire at most one tick after their deadline
+     * @param wheelSize number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(Duration tick, int wheelSize, long startNanos) {
+        if (tick.isZero() || tick.isNegative() || wheelSize < 1) {
+            throw new IllegalArgumentException("tick and wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = tick.toNanos();
+        this.startNanos = startNanos;
+        this.mask = size - 1;
+        this.buckets = new Timeout[size];
+    }
+
+    /**
+     * Expire the key at deadlineNanos, replacing any deadline it already had
+     */
+    public synchronized void schedule(K key, long deadlineNanos) {
+        Timeout<K> timeout = timeouts.get(key);
+        if (timeout != null) {
+            unlink(timeout);
+        } else {
+            timeout = new Timeout<>(key);
+            timeouts.put(key, timeout);
+        }
+
+        long elapsed = deadlineNanos - startNanos;
+        // Round up so a key never expires before its deadline
+        long deadlineTick = elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+        timeout.deadlineTick = Math.max(deadlineTick, currentTick);
+        link(timeout);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Timeout<K> timeout = timeouts.remove(key);
+        if (timeout == null) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Process every tick that has started by nowNanos
+     *
+     * @return keys whose deadline has passed; they are no longer scheduled
+     */
+    public synchronized List<K> advance(long nowNanos) {
+        List<K> expired = new ArrayList<>();
+        while (nowNanos - startNanos >= currentTick * tickNanos) {
+            int index = (int) (currentTick & mask);
+            Timeout<K> timeout = buckets[index];
+            while (timeout != null) {
+                Timeout<K> next = timeout.next;
+                if (timeout.deadlineTick <= currentTick) {
+                    unlink(timeout);
+                    timeouts.remove(timeout.key);
+                    expired.add(timeout.key);
+                }
+                timeout = next;
+            }
+            currentTick++;
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    private void link(Timeout<K> timeout) {
+        int index = (int) (timeout.deadlineTick & mask);
+        timeout.bucket = index;
+        timeout.prev = null;
+        timeout.next = buckets[index];
+        if (buckets[index] != null) {
+            buckets[index].prev = timeout;
+        }
+        buckets[index] = timeout;
+    }
+
+    private void unlink(Timeout<K> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    private static final class Timeout<K> {
+        private final K key;
+        private long deadlineTick;
+        private int bucket;
+        private Timeout<K> prev;
+        private Timeout<K> next;
+
+        private Timeout(K key) {
+            this.key = key;
+        }
+    }
+}
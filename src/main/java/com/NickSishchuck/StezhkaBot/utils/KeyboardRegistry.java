@@ -0,0 +1,40 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Frozen keyboards of static screens, built once and looked up by screen id.
+ * Handlers register theirs at startup so a tap costs a map lookup instead of a new keyboard.
+ */
+@Component
+public class KeyboardRegistry {
+
+    private final Map<String, InlineKeyboardMarkup> keyboards = new ConcurrentHashMap<>();
+
+    public void register(String screenId, MenuBuilder builder) {
+        if (keyboards.putIfAbsent(screenId, builder.buildFrozen()) != null) {
+            throw new IllegalStateException("Keyboard '" + screenId + "' is already registered");
+        }
+    }
+
+    public InlineKeyboardMarkup get(String screenId) {
+        InlineKeyboardMarkup keyboard = keyboards.get(screenId);
+        if (keyboard == null) {
+            throw new IllegalArgumentException("No keyboard registered for screen '" + screenId + "'");
+        }
+        return keyboard;
+    }
+
+    /**
+     * For screens that vary over a small closed set of values (e.g. one per program):
+     * the keyboard is built on first use and shared afterwards
+     */
+    public InlineKeyboardMarkup getOrRegister(String screenId, Supplier<MenuBuilder> builder) {
+        return keyboards.computeIfAbsent(screenId, id -> builder.get().buildFrozen());
+    }
+}
@@ -0,0 +1,89 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock-free latency histogram for percentiles over a reporting interval.
+ * Values are bucketed by power of two with 16 linear sub-buckets each, so a reported
+ * percentile is within ~6% of the real value; anything above ~2 hours lands in the last bucket.
+ */
+public final class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int GROUPS = 30;
+
+    private final AtomicLongArray counts = new AtomicLongArray(GROUPS * SUB_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency in nanoseconds, with microsecond resolution
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(bucketOf(micros));
+        max.accumulate(micros);
+    }
+
+    /**
+     * Percentiles of everything recorded since the last call, then start over
+     */
+    public Snapshot snapshotAndReset() {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+            total += snapshot[i];
+        }
+        long maxMicros = max.getThenReset();
+        return new Snapshot(total, percentile(snapshot, total, 0.50), percentile(snapshot, total, 0.99), maxMicros);
+    }
+
+    private static double percentile(long[] snapshot, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBoundOf(i) / 1000.0;
+            }
+        }
+        return upperBoundOf(snapshot.length - 1) / 1000.0;
+    }
+
+    // Group g >= 1 covers [2^(g+3), 2^(g+4)) in 16 steps; group 0 holds 0..15 one by one
+    private static int bucketOf(long micros) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros | (SUB_BUCKETS - 1));
+        int group = magnitude - SUB_BUCKET_BITS + 1;
+        if (group >= GROUPS) {
+            return GROUPS * SUB_BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> Math.max(0, group - 1)) & (SUB_BUCKETS - 1);
+        return group * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int group = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (group == 0) {
+            return sub;
+        }
+        long width = 1L << (group - 1);
+        return ((long) SUB_BUCKETS + sub) * width + width - 1;
+    }
+
+    /**
+     * @param p50Millis median, in milliseconds
+     * @param p99Millis 99th percentile, in milliseconds
+     */
+    public record Snapshot(long count, double p50Millis, double p99Millis, long maxMicros) {
+        public double maxMillis() {
+            return maxMicros / 1000.0;
+        }
+    }
+}
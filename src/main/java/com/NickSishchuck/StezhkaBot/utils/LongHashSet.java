@@ -0,0 +1,104 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of longs: open addressing over a primitive array, no boxing on lookup
+ */
+public final class LongHashSet {
+
+    private static final LongHashSet EMPTY = new LongHashSet(new long[0]);
+
+    private final long[] slots;
+    private final boolean hasZero;
+    private final long[] values;
+    private final int mask;
+
+    private LongHashSet(long[] distinct) {
+        this.values = distinct;
+        int capacity = Integer.highestOneBit(Math.max(2, distinct.length * 2 - 1)) << 1;
+        this.slots = new long[capacity];
+        this.mask = capacity - 1;
+
+        boolean zero = false;
+        for (long value : distinct) {
+            if (value == 0) {
+                // 0 marks an empty slot, so it is tracked separately
+                zero = true;
+                continue;
+            }
+            int i = index(value);
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = value;
+        }
+        this.hasZero = zero;
+    }
+
+    public static LongHashSet of(long... values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        return new LongHashSet(Arrays.stream(values).distinct().toArray());
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return hasZero;
+        }
+        for (int i = index(value); slots[i] != 0; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * Copy of the values in insertion order
+     */
+    public long[] toArray() {
+        return values.clone();
+    }
+
+    private int index(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LongHashSet set) || set.size() != size()) {
+            return false;
+        }
+        for (long value : values) {
+            if (!set.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return Long.hashCode(sum);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -5,7 +5,14 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKe
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 public class MenuBuilder {
     private final List<InlineKeyboardRow> rows = new ArrayList<>();
@@ -35,4 +42,123 @@ public class MenuBuilder {
         }
         return InlineKeyboardMarkup.builder().keyboard(rows).build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Build a keyboard that is made once and shared by every request (see {@link KeyboardRegistry}):
+     * the row list and every row are unmodifiable copies. The buttons themselves are the library's
+     * mutable objects and are shared, so callers must never change a button of a frozen keyboard.
+     */
+    public InlineKeyboardMarkup buildFrozen() {
+        addRow();
+        List<InlineKeyboardRow> frozenRows = new ArrayList<>(rows.size());
+        for (InlineKeyboardRow row : rows) {
+            frozenRows.add(new FrozenRow(row));
+        }
+        return InlineKeyboardMarkup.builder().keyboard(Collections.unmodifiableList(frozenRows)).build();
+    }
+
+    /**
+     * A row whose buttons cannot be added, removed or replaced. It still has to be an InlineKeyboardRow
+     * (an ArrayList), so every mutating method is overridden to throw.
+     */
+    private static final class FrozenRow extends InlineKeyboardRow {
+
+        FrozenRow(Collection<? extends InlineKeyboardButton> buttons) {
+            super(buttons);
+        }
+
+        @Override
+        public boolean add(InlineKeyboardButton button) {
+            throw frozen();
+        }
+
+        @Override
+        public void add(int index, InlineKeyboardButton button) {
+            throw frozen();
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends InlineKeyboardButton> buttons) {
+            throw frozen();
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends InlineKeyboardButton> buttons) {
+            throw frozen();
+        }
+
+        @Override
+        public InlineKeyboardButton set(int index, InlineKeyboardButton button) {
+            throw frozen();
+        }
+
+        @Override
+        public InlineKeyboardButton remove(int index) {
+            throw frozen();
+        }
+
+        @Override
+        public boolean remove(Object button) {
+            throw frozen();
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> buttons) {
+            throw frozen();
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> buttons) {
+            throw frozen();
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super InlineKeyboardButton> filter) {
+            throw frozen();
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<InlineKeyboardButton> operator) {
+            throw frozen();
+        }
+
+        @Override
+        public void sort(Comparator<? super InlineKeyboardButton> comparator) {
+            throw frozen();
+        }
+
+        @Override
+        public void clear() {
+            throw frozen();
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            throw frozen();
+        }
+
+        @Override
+        public Iterator<InlineKeyboardButton> iterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<InlineKeyboardButton> listIterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<InlineKeyboardButton> listIterator(int index) {
+            return Collections.unmodifiableList(super.subList(0, size())).listIterator(index);
+        }
+
+        @Override
+        public List<InlineKeyboardButton> subList(int fromIndex, int toIndex) {
+            return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+        }
+
+        private static UnsupportedOperationException frozen() {
+            return new UnsupportedOperationException("Frozen keyboards are shared and cannot be changed");
+        }
+    }
+}
@@ -1,20 +1,31 @@
 package com.NickSishchuck.StezhkaBot.utils;
 
+import com.NickSishchuck.StezhkaBot.service.OutboundScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+/**
+ * Blocking sender: every call waits until the outbound scheduler has delivered the request,
+ * or until the scheduler's blocking timeout, after which the request is delivered in the background
+ */
+@Component
 public class MessageSender {
     private static final Logger logger = LoggerFactory.getLogger(MessageSender.class);
-    private final TelegramClient telegramClient;
+    private final OutboundScheduler outboundScheduler;
+    private final RenderedMessageCache renderedMessages;
 
-    public MessageSender(TelegramClient telegramClient) {
-        this.telegramClient = telegramClient;
+    @Autowired
+    public MessageSender(OutboundScheduler outboundScheduler, RenderedMessageCache renderedMessages) {
+        this.outboundScheduler = outboundScheduler;
+        this.renderedMessages = renderedMessages;
     }
 
     public void sendMessage(long chatId, String text, InlineKeyboardMarkup keyboard) {
@@ -26,10 +37,11 @@ public class MessageSender {
                 .build();
 
         try {
-            telegramClient.execute(message);
+            Message sent = outboundScheduler.execute(chatId, message);
+            rememberSent(chatId, sent, text, keyboard, null);
             logger.info("Message sent successfully to chat {}", chatId);
         } catch (TelegramApiException e) {
-            logger.error("Failed to send message to chat {}", chatId, e);
+            logFailure("send message", chatId, e);
         }
     }
 
@@ -42,10 +54,11 @@ public class MessageSender {
                 .build();
 
         try {
-            telegramClient.execute(message);
+            Message sent = outboundScheduler.execute(chatId, message);
+            rememberSent(chatId, sent, text, keyboard, null);
             logger.info("Plain message sent successfully to chat {}", chatId);
         } catch (TelegramApiException e) {
-            logger.error("Failed to send plain message to chat {}", chatId, e);
+            logFailure("send plain message", chatId, e);
         }
     }
 
@@ -58,10 +71,11 @@ public class MessageSender {
                 .build();
 
         try {
-            telegramClient.execute(message);
+            Message sent = outboundScheduler.execute(chatId, message);
+            rememberSent(chatId, sent, text, keyboard, "MarkdownV2");
             logger.info("Markdown message sent successfully to chat {}", chatId);
         } catch (TelegramApiException e) {
-            logger.error("Failed to send markdown message to chat {}", chatId, e);
+            logFailure("send markdown message", chatId, e);
         }
     }
 
@@ -75,11 +89,7 @@ public class MessageSender {
                 //.parseMode("MarkdownV2")
                 .build();
 
-        try {
-            telegramClient.execute(editMessage);
-            logger.info("Message edited successfully in chat {}", chatId);
-        } catch (TelegramApiException e) {
-            logger.error("Failed to edit message in chat {}: {}", chatId, e.getMessage());
+        if (!edit(editMessage, chatId, messageId, "Message")) {
             // Fallback: send new message if editing fails
             sendMessage(chatId, text, keyboard);
         }
@@ -94,11 +104,7 @@ public class MessageSender {
                 // No parseMode - edits as plain text
                 .build();
 
-        try {
-            telegramClient.execute(editMessage);
-            logger.info("Plain message edited successfully in chat {}", chatId);
-        } catch (TelegramApiException e) {
-            logger.error("Failed to edit plain message in chat {}: {}", chatId, e.getMessage());
+        if (!edit(editMessage, chatId, messageId, "Plain message")) {
             // Fallback: send new message if editing fails
             sendPlainMessage(chatId, text, keyboard);
         }
@@ -113,11 +119,7 @@ public class MessageSender {
                 .parseMode("MarkdownV2")
                 .build();
 
-        try {
-            telegramClient.execute(editMessage);
-            logger.info("Markdown message edited successfully in chat {}", chatId);
-        } catch (TelegramApiException e) {
-            logger.error("Failed to edit markdown message in chat {}: {}", chatId, e.getMessage());
+        if (!edit(editMessage, chatId, messageId, "Markdown message")) {
             // Fallback: send new message if editing fails
             sendMarkdownMessage(chatId, text, keyboard);
         }
@@ -131,10 +133,67 @@ public class MessageSender {
                 .build();
 
         try {
-            telegramClient.execute(editKeyboard);
+            outboundScheduler.execute(chatId, editKeyboard);
+            renderedMessages.rememberKeyboard(chatId, messageId, keyboard);
             logger.info("Keyboard edited successfully in chat {}", chatId);
         } catch (TelegramApiException e) {
-            logger.error("Failed to edit keyboard in chat {}: {}", chatId, e.getMessage());
+            if (TelegramErrors.isNotModified(e)) {
+                return;
+            }
+            renderedMessages.forget(chatId, messageId);
+            logFailure("edit keyboard", chatId, e);
+        }
+    }
+
+    /**
+     * Run the edit unless the message already shows this content.
+     *
+     * @return false when the caller should fall back to sending a new message
+     */
+    private boolean edit(EditMessageText editMessage, long chatId, int messageId, String kind) {
+        String text = editMessage.getText();
+        InlineKeyboardMarkup keyboard = editMessage.getReplyMarkup();
+        String parseMode = editMessage.getParseMode();
+
+        if (renderedMessages.isUnchanged(chatId, messageId, text, keyboard, parseMode)) {
+            logger.debug("{} {} in chat {} is unchanged, edit skipped", kind, messageId, chatId);
+            return true;
+        }
+
+        try {
+            outboundScheduler.execute(chatId, editMessage);
+            renderedMessages.remember(chatId, messageId, text, keyboard, parseMode);
+            logger.info("{} edited successfully in chat {}", kind, chatId);
+            return true;
+        } catch (TelegramApiException e) {
+            if (TelegramErrors.isNotModified(e)) {
+                // Same content is already on screen, which is what we wanted
+                renderedMessages.remember(chatId, messageId, text, keyboard, parseMode);
+                return true;
+            }
+            renderedMessages.forget(chatId, messageId);
+            if (TelegramErrors.isTimeout(e)) {
+                // The edit is still queued; a new copy would show up twice
+                logger.warn("Edit of {} {} in chat {} is still queued: {}", kind.toLowerCase(), messageId, chatId, e.getMessage());
+                return true;
+            }
+            logger.error("Failed to edit {} in chat {}: {}", kind.toLowerCase(), chatId, e.getMessage());
+            // After a 429/5xx the scheduler has already retried; sending a new copy would only add to the flood
+            return TelegramErrors.isRetryable(e);
+        }
+    }
+
+    private void logFailure(String action, long chatId, TelegramApiException e) {
+        if (TelegramErrors.isTimeout(e)) {
+            logger.warn("Gave up waiting to {} in chat {}: {}", action, chatId, e.getMessage());
+        } else {
+            logger.error("Failed to {} in chat {}", action, chatId, e);
+        }
+    }
+
+    private void rememberSent(long chatId, Message sent, String text, InlineKeyboardMarkup keyboard, String parseMode) {
+        if (sent != null && sent.getMessageId() != null) {
+            renderedMessages.remember(chatId, sent.getMessageId(), text, keyboard, parseMode);
         }
     }
-}
\ No newline at end of file
+}
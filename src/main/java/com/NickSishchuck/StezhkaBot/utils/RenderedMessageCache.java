@@ -0,0 +1,79 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Remembers what each bot message currently shows (text, keyboard, parse mode),
+ * so an edit that would not change anything can be dropped before it reaches Telegram.
+ * The full content is kept rather than a hash, since a collision would silently drop a real edit;
+ * texts are mostly the shared strings of the text cache and keyboards the frozen registry instances.
+ * Bounded LRU keyed by (chatId, messageId).
+ */
+@Component
+public class RenderedMessageCache {
+
+    private final Map<MessageKey, Rendered> entries;
+
+    public RenderedMessageCache(@Value("${bot.outbound.render-cache-size:10000}") int capacity) {
+        int maxEntries = Math.max(1, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MessageKey, Rendered> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * True when the message already shows exactly this content
+     */
+    public boolean isUnchanged(long chatId, int messageId, String text, InlineKeyboardMarkup keyboard, String parseMode) {
+        Rendered rendered;
+        synchronized (entries) {
+            rendered = entries.get(new MessageKey(chatId, messageId));
+        }
+        return rendered != null && rendered.shows(text, keyboard, parseMode);
+    }
+
+    public void remember(long chatId, int messageId, String text, InlineKeyboardMarkup keyboard, String parseMode) {
+        Rendered rendered = new Rendered(text, keyboard, parseMode);
+        synchronized (entries) {
+            entries.put(new MessageKey(chatId, messageId), rendered);
+        }
+    }
+
+    /**
+     * Keep the entry in sync after a keyboard-only edit
+     */
+    public void rememberKeyboard(long chatId, int messageId, InlineKeyboardMarkup keyboard) {
+        synchronized (entries) {
+            entries.computeIfPresent(new MessageKey(chatId, messageId),
+                    (key, rendered) -> new Rendered(rendered.text(), keyboard, rendered.parseMode()));
+        }
+    }
+
+    public void forget(long chatId, int messageId) {
+        synchronized (entries) {
+            entries.remove(new MessageKey(chatId, messageId));
+        }
+    }
+
+    private record MessageKey(long chatId, int messageId) {
+    }
+
+    private record Rendered(String text, InlineKeyboardMarkup keyboard, String parseMode) {
+
+        boolean shows(String text, InlineKeyboardMarkup keyboard, String parseMode) {
+            // Same instances are the common case and skip the deep comparison
+            return Objects.equals(this.text, text)
+                    && (this.keyboard == keyboard || Objects.equals(this.keyboard, keyboard))
+                    && Objects.equals(this.parseMode, parseMode);
+        }
+    }
+}
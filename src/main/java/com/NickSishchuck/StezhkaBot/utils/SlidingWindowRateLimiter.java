@@ -0,0 +1,226 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import java.time.Duration;
+
+/**
+ * At most `limit` events per user within a sliding `window`.
+ * Each user has a ring buffer of the last `limit` event times (epoch millis); the limit is reached
+ * when the oldest of them is still inside the window. Users are spread over lock stripes, each an
+ * open-addressing long -> ring map, so users on different stripes never contend and a check
+ * does not allocate.
+ */
+public final class SlidingWindowRateLimiter {
+
+    private static final int STRIPES = 64;
+
+    private final int limit;
+    private final long windowMillis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public SlidingWindowRateLimiter(int limit, Duration window) {
+        if (limit < 1 || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("limit and window must be positive");
+        }
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * True when the user already has `limit` events inside the window
+     */
+    public boolean isLimited(long userId, long nowMillis) {
+        return count(userId, nowMillis) >= limit;
+    }
+
+    /**
+     * Number of the user's events inside the window
+     */
+    public int count(long userId, long nowMillis) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            long[] ring = stripe.get(userId);
+            return ring == null ? 0 : countInWindow(ring, nowMillis);
+        }
+    }
+
+    /**
+     * Record an event unless the user is already limited
+     *
+     * @return false when the user is limited and nothing was recorded
+     */
+    public boolean tryAcquire(long userId, long nowMillis) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            long[] ring = stripe.get(userId);
+            if (ring != null && countInWindow(ring, nowMillis) >= limit) {
+                return false;
+            }
+            if (ring == null) {
+                ring = new long[limit + 1];
+                stripe.put(userId, ring);
+            }
+            append(ring, nowMillis);
+            return true;
+        }
+    }
+
+    /**
+     * Take back an event recorded by tryAcquire, for a submission that did not go through
+     *
+     * @return false when no event at atMillis is recorded for the user
+     */
+    public boolean release(long userId, long atMillis) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            long[] ring = stripe.get(userId);
+            return ring != null && remove(ring, atMillis);
+        }
+    }
+
+    /**
+     * Forget the user once all of their events have left the window
+     *
+     * @return true when the user was removed
+     */
+    public boolean evictIfIdle(long userId, long nowMillis) {
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            long[] ring = stripe.get(userId);
+            if (ring == null || countInWindow(ring, nowMillis) > 0) {
+                return false;
+            }
+            stripe.remove(userId);
+            return true;
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Duration getWindow() {
+        return Duration.ofMillis(windowMillis);
+    }
+
+    // Ring layout: ring[0] is the next write position, ring[1..limit] hold event times (0 = unused)
+    private void append(long[] ring, long nowMillis) {
+        int position = (int) ring[0];
+        ring[1 + position] = nowMillis;
+        ring[0] = (position + 1) % limit;
+    }
+
+    // Drop the newest event at atMillis and move the later ones back a slot, so the ring stays in write order
+    // and the next append reuses the freed slot instead of overwriting the oldest event
+    private boolean remove(long[] ring, long atMillis) {
+        if (atMillis == 0) {
+            return false;
+        }
+        int newest = ((int) ring[0] + limit - 1) % limit;
+        int position = newest;
+        for (int i = 0; i < limit; i++, position = (position + limit - 1) % limit) {
+            if (ring[1 + position] == atMillis) {
+                for (int j = position; j != newest; j = (j + 1) % limit) {
+                    ring[1 + j] = ring[1 + (j + 1) % limit];
+                }
+                ring[1 + newest] = 0;
+                ring[0] = newest;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int countInWindow(long[] ring, long nowMillis) {
+        long cutoff = nowMillis - windowMillis;
+        int count = 0;
+        for (int i = 1; i <= limit; i++) {
+            if (ring[i] != 0 && ring[i] > cutoff) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Stripe stripe(long userId) {
+        return stripes[mix(userId) & (STRIPES - 1)];
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Open-addressing map from user id to ring, linear probing, guarded by the stripe's monitor
+     */
+    private static final class Stripe {
+        private long[] keys = new long[8];
+        private long[][] values = new long[8][];
+        private int size;
+
+        long[] get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) >>> 6 & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, long[] value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = mix(key) >>> 6 & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) >>> 6 & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                return;
+            }
+            size--;
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            int gap = i;
+            for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = mix(keys[j]) >>> 6 & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            values[gap] = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2][];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Classifies errors returned by the Bot API
+ */
+public final class TelegramErrors {
+
+    private TelegramErrors() {
+    }
+
+    /**
+     * 429 (flood control) and 5xx are worth retrying, everything else will fail again
+     */
+    public static boolean isRetryable(Throwable error) {
+        int code = errorCode(error);
+        return code == 429 || code >= 500;
+    }
+
+    /**
+     * Telegram's answer to an edit that would leave the message as it is
+     */
+    public static boolean isNotModified(Throwable error) {
+        return isBadRequest(error, "message is not modified");
+    }
+
+    /**
+     * Telegram's answer to an edit of a message that was deleted or is too old to edit;
+     * retrying the edit cannot succeed, only a new message can
+     */
+    public static boolean isEditImpossible(Throwable error) {
+        return isBadRequest(error, "message to edit not found") || isBadRequest(error, "message can't be edited");
+    }
+
+    /**
+     * A blocking send that gave up waiting; the call is still queued and may yet be delivered,
+     * so callers must not fall back to sending a copy
+     */
+    public static boolean isTimeout(Throwable error) {
+        return unwrap(error).getCause() instanceof TimeoutException;
+    }
+
+    /**
+     * Seconds Telegram asked us to wait, or -1 when the error carries no retry_after
+     */
+    public static int retryAfterSeconds(Throwable error) {
+        if (unwrap(error) instanceof TelegramApiRequestException requestException) {
+            ResponseParameters parameters = requestException.getParameters();
+            if (parameters != null && parameters.getRetryAfter() != null) {
+                return parameters.getRetryAfter();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * HTTP-like error code of a Bot API error, 0 for transport errors
+     */
+    public static int errorCode(Throwable error) {
+        if (unwrap(error) instanceof TelegramApiRequestException requestException
+                && requestException.getErrorCode() != null) {
+            return requestException.getErrorCode();
+        }
+        return 0;
+    }
+
+    private static boolean isBadRequest(Throwable error, String descriptionPart) {
+        Throwable cause = unwrap(error);
+        if (errorCode(cause) != 400) {
+            return false;
+        }
+        String description = cause instanceof TelegramApiRequestException requestException
+                && requestException.getApiResponse() != null
+                ? requestException.getApiResponse() : cause.getMessage();
+        return description != null && description.contains(descriptionPart);
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
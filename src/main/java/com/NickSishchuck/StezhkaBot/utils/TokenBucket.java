@@ -0,0 +1,63 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time"
+ * that is advanced with a CAS, so checks never block and never allocate.
+ * All times are System.nanoTime() values.
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param permits tokens refilled per period
+     * @param period  refill period
+     * @param burst   tokens that may be taken back to back when the bucket is full
+     */
+    public TokenBucket(int permits, Duration period, int burst) {
+        if (permits < 1 || burst < 1) {
+            throw new IllegalArgumentException("permits and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, period.toNanos() / permits);
+        this.burstToleranceNanos = intervalNanos * (burst - 1);
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return 0 when the token was taken, otherwise nanoseconds until the next token
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long base = Math.max(arrival, nowNanos);
+            long wait = base - burstToleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Nanoseconds until a token is available, without taking it
+     */
+    public long delay(long nowNanos) {
+        long wait = Math.max(theoreticalArrival.get(), nowNanos) - burstToleranceNanos - nowNanos;
+        return Math.max(0, wait);
+    }
+
+    /**
+     * True when the bucket is full again, i.e. it holds no information worth keeping
+     */
+    public boolean isIdle(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
@@ -0,0 +1,98 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import java.util.Arrays;
+
+/**
+ * Remembers which of the last `capacity` update ids have been seen, one bit each.
+ * Telegram numbers updates sequentially, so the window slides with the highest id: ids above it
+ * are new, ids inside it are checked against the bitmap, and ids that fell out of it (or are at or
+ * below the floor restored after a restart) count as seen.
+ */
+public final class UpdateDedupWindow {
+
+    private final long[] bits;
+    private final int capacity;
+    private long highest = -1;
+    private long floor = -1;
+
+    /**
+     * @param capacity window size in updates, rounded up to a multiple of 64
+     */
+    public UpdateDedupWindow(int capacity) {
+        int words = Math.max(1, (capacity + 63) / 64);
+        this.bits = new long[words];
+        this.capacity = words * 64;
+    }
+
+    /**
+     * Treat every id up to and including this one as already seen
+     */
+    public synchronized void advanceFloor(long updateId) {
+        floor = Math.max(floor, updateId);
+    }
+
+    /**
+     * Mark the id as seen
+     *
+     * @return false when it had been seen before
+     */
+    public synchronized boolean markSeen(long updateId) {
+        if (updateId <= floor) {
+            return false;
+        }
+        if (highest < 0 || updateId > highest) {
+            slideTo(updateId);
+            set(updateId);
+            return true;
+        }
+        if (updateId <= highest - capacity || isSet(updateId)) {
+            return false;
+        }
+        set(updateId);
+        return true;
+    }
+
+    /**
+     * Forget everything, e.g. when ids may have been renumbered
+     */
+    public synchronized void reset() {
+        Arrays.fill(bits, 0L);
+        highest = -1;
+        floor = -1;
+    }
+
+    public synchronized long getHighest() {
+        return highest;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Clear the bits of the ids the window moves over
+    private void slideTo(long updateId) {
+        if (highest < 0 || updateId - highest >= capacity) {
+            Arrays.fill(bits, 0L);
+        } else {
+            for (long id = highest + 1; id <= updateId; id++) {
+                int index = index(id);
+                bits[index >>> 6] &= ~(1L << index);
+            }
+        }
+        highest = updateId;
+    }
+
+    private boolean isSet(long updateId) {
+        int index = index(updateId);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void set(long updateId) {
+        int index = index(updateId);
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private int index(long updateId) {
+        return (int) Math.floorMod(updateId, (long) capacity);
+    }
+}
@@ -0,0 +1,6 @@
+-- Extra admins for bot.admin.db.enabled=true (created on startup if missing), merged with bot.admin.user.ids
+CREATE TABLE IF NOT EXISTS admin_user (
+    user_id    BIGINT       NOT NULL PRIMARY KEY,
+    note       VARCHAR(255) NULL,
+    created_at TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,9 @@
+-- Conversation state for bot.state.store=jdbc (created on startup if missing)
+CREATE TABLE IF NOT EXISTS conversation_state (
+    namespace  VARCHAR(32) NOT NULL,
+    chat_id    BIGINT      NOT NULL,
+    state_data BLOB        NOT NULL,
+    updated_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (namespace, chat_id),
+    INDEX idx_conversation_state_updated_at (namespace, updated_at)
+);
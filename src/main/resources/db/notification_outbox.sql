@@ -0,0 +1,21 @@
+-- Outgoing Telegram messages written together with enrollment/consultation requests and drained by the relay.
+-- Hibernate only validates the schema, so apply this before deploying the version that maps it.
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id              BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    chat_id         BIGINT       NOT NULL,
+    message_id      INT          NULL,
+    text            TEXT         NOT NULL,
+    parse_mode      VARCHAR(20)  NULL,
+    reply_markup    TEXT         NULL,
+    request_type    VARCHAR(20)  NULL,
+    request_id      BIGINT       NULL,
+    status          VARCHAR(20)  NOT NULL,
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6)  NOT NULL,
+    lease_owner     VARCHAR(64)  NULL,
+    lease_until     DATETIME(6)  NULL,
+    last_error      VARCHAR(500) NULL,
+    created_at      DATETIME(6)  NOT NULL,
+    sent_at         DATETIME(6)  NULL,
+    INDEX idx_notification_outbox_pending (status, next_attempt_at)
+);
@@ -0,0 +1,12 @@
+-- Per-admin copies of request notifications. Hibernate only validates the schema,
+-- so apply this before deploying the version that maps it.
+CREATE TABLE IF NOT EXISTS request_admin_message (
+    id           BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    request_type VARCHAR(20) NOT NULL,
+    request_id   BIGINT      NOT NULL,
+    chat_id      BIGINT      NOT NULL,
+    message_id   INT         NOT NULL,
+    created_at   DATETIME(6) NOT NULL,
+    INDEX idx_request_admin_message_chat_message (chat_id, message_id),
+    INDEX idx_request_admin_message_request (request_type, request_id)
+);
@@ -0,0 +1,3 @@
+-- Index for the text cache poller, which reads text_content rows by updated_at every few seconds.
+-- Hibernate only validates the schema, so the @Index on TextContent does not create it: apply this once.
+CREATE INDEX idx_text_content_updated_at ON text_content (updated_at);
@@ -0,0 +1,6 @@
+-- Last update_id taken from Telegram per bot, so a restart resumes after it (created on startup if missing)
+CREATE TABLE IF NOT EXISTS update_offset (
+    bot_key        VARCHAR(64) NOT NULL PRIMARY KEY,
+    last_update_id BIGINT      NOT NULL,
+    updated_at     DATETIME(3) NOT NULL
+);
@@ -0,0 +1,228 @@
+package com.NickSishchuck.StezhkaBot.component;
+
+import com.NickSishchuck.StezhkaBot.component.UpdateDispatcher.Lane;
+import com.NickSishchuck.StezhkaBot.config.ExecutorConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateDispatcherTest {
+
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+    private UpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.drain(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void chatTasksRunInSubmissionOrderAcrossLanes() throws InterruptedException {
+        dispatcher = started(1, 16, 16);
+        CountDownLatch release = blockShard(99);
+
+        dispatcher.dispatch(1, Lane.MENU, 7, record("1:menu program_nmt"));
+        dispatcher.dispatch(1, Lane.FORM, 0, record("1:form confirm"));
+        dispatcher.dispatch(1, Lane.MENU, 0, record("1:menu back_main"));
+        dispatcher.dispatch(1, Lane.ADMIN, 0, record("1:admin"));
+        release.countDown();
+
+        awaitRan(4);
+        assertThat(ran).containsExactly("1:menu program_nmt", "1:form confirm", "1:menu back_main", "1:admin");
+    }
+
+    @Test
+    void higherLaneChatsGoFirstWithoutReorderingAChat() throws InterruptedException {
+        dispatcher = started(1, 16, 16);
+        CountDownLatch release = blockShard(99);
+
+        dispatcher.dispatch(1, Lane.MENU, 0, record("1:menu"));
+        dispatcher.dispatch(2, Lane.MENU, 0, record("2:menu"));
+        dispatcher.dispatch(2, Lane.FORM, 0, record("2:form"));
+        dispatcher.dispatch(3, Lane.ADMIN, 0, record("3:admin"));
+        release.countDown();
+
+        awaitRan(4);
+        // Chat 2 is promoted by its form task, but its earlier menu tap still runs first
+        assertThat(ran).containsExactly("3:admin", "2:menu", "2:form", "1:menu");
+    }
+
+    @Test
+    void collapsesOnlyTheChatsLastTask() throws InterruptedException {
+        dispatcher = started(1, 16, 16);
+        CountDownLatch release = blockShard(99);
+
+        dispatcher.dispatch(1, Lane.MENU, 7, record("1:tap a"));
+        dispatcher.dispatch(1, Lane.MENU, 7, record("1:tap b"));
+        dispatcher.dispatch(1, Lane.FORM, 0, record("1:form"));
+        // The form task sits between them, so this tap is queued behind it instead of replacing tap b
+        dispatcher.dispatch(1, Lane.MENU, 7, record("1:tap c"));
+        release.countDown();
+
+        awaitRan(3);
+        assertThat(ran).containsExactly("1:tap b", "1:form", "1:tap c");
+        assertThat(dispatcher.getLaneDropCount(Lane.MENU)).isEqualTo(1);
+    }
+
+    @Test
+    void differentShardsRunInParallel() throws InterruptedException {
+        dispatcher = started(2, 16, 16);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch finished = new CountDownLatch(2);
+        // Chats 1 and 2 land on different shards of two
+        for (long chatId = 1; chatId <= 2; chatId++) {
+            dispatcher.dispatch(chatId, () -> {
+                bothRunning.countDown();
+                try {
+                    if (bothRunning.await(5, TimeUnit.SECONDS)) {
+                        finished.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void fullFormLaneBlocksTheCaller() throws InterruptedException {
+        dispatcher = started(1, 1, 16);
+        CountDownLatch release = blockShard(99);
+        dispatcher.dispatch(1, Lane.FORM, 0, record("1:first"));
+
+        CountDownLatch queued = new CountDownLatch(1);
+        Thread poller = new Thread(() -> {
+            dispatcher.dispatch(2, Lane.FORM, 0, record("2:second"));
+            queued.countDown();
+        });
+        poller.start();
+
+        assertThat(queued.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(dispatcher.getLaneDepth(Lane.FORM)).isEqualTo(1);
+
+        release.countDown();
+        assertThat(queued.await(5, TimeUnit.SECONDS)).isTrue();
+        awaitRan(2);
+        assertThat(ran).containsExactly("1:first", "2:second");
+        assertThat(dispatcher.getLaneDropCount(Lane.FORM)).isZero();
+    }
+
+    @Test
+    void fullMenuLaneDropsInsteadOfBlocking() throws InterruptedException {
+        dispatcher = started(1, 16, 2);
+        CountDownLatch release = blockShard(99);
+
+        assertThat(dispatcher.dispatch(1, Lane.MENU, 0, record("1:menu"))).isTrue();
+        assertThat(dispatcher.dispatch(2, Lane.MENU, 0, record("2:menu"))).isTrue();
+        assertThat(dispatcher.dispatch(3, Lane.MENU, 0, record("3:menu"))).isFalse();
+        // Other lanes are not affected by a full menu lane
+        assertThat(dispatcher.dispatch(3, Lane.FORM, 0, record("3:form"))).isTrue();
+        release.countDown();
+
+        awaitRan(3);
+        assertThat(ran).containsExactly("3:form", "1:menu", "2:menu");
+        assertThat(dispatcher.getLaneDropCount(Lane.MENU)).isEqualTo(1);
+    }
+
+    @Test
+    void repeatedTapReplacesTheQueuedOne() throws InterruptedException {
+        dispatcher = started(1, 16, 16);
+        CountDownLatch release = blockShard(99);
+
+        dispatcher.dispatch(1, Lane.MENU, 7, record("1:tap a"));
+        dispatcher.dispatch(1, Lane.MENU, 7, record("1:tap b"));
+        // Another message of the same chat, and a new message (screen 0), are never collapsed
+        dispatcher.dispatch(1, Lane.MENU, 8, record("1:other screen"));
+        dispatcher.dispatch(1, Lane.MENU, 0, record("1:new message"));
+        dispatcher.dispatch(1, Lane.MENU, 0, record("1:new message again"));
+        release.countDown();
+
+        awaitRan(4);
+        assertThat(ran).containsExactly("1:tap b", "1:other screen", "1:new message", "1:new message again");
+    }
+
+    @Test
+    void drainRunsWhatIsQueued() throws InterruptedException {
+        dispatcher = started(2, 16, 16);
+        CountDownLatch release = blockShard(99);
+        for (int i = 0; i < 10; i++) {
+            dispatcher.dispatch(i % 3, Lane.FORM, 0, record("task " + i));
+        }
+        release.countDown();
+
+        assertThat(dispatcher.drain(Duration.ofSeconds(5))).isTrue();
+        assertThat(ran).hasSize(10);
+        assertThat(dispatcher.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void drainReportsTasksStillRunningAtTheDeadline() throws InterruptedException {
+        dispatcher = started(1, 16, 16);
+        CountDownLatch release = blockShard(99);
+
+        assertThat(dispatcher.drain(Duration.ofMillis(100))).isFalse();
+        release.countDown();
+        assertThat(dispatcher.drain(Duration.ofSeconds(5))).isTrue();
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheShard() throws InterruptedException {
+        dispatcher = started(1, 16, 16);
+        dispatcher.dispatch(1, () -> {
+            throw new IllegalStateException("handler failed");
+        });
+        dispatcher.dispatch(1, record("1:after failure"));
+
+        awaitRan(1);
+        assertThat(ran).containsExactly("1:after failure");
+    }
+
+    private UpdateDispatcher started(int shards, int queueCapacity, int menuCapacity) {
+        UpdateDispatcher started = new UpdateDispatcher(new ExecutorConfig(), shards, shards, queueCapacity, menuCapacity);
+        started.start();
+        return started;
+    }
+
+    /**
+     * Keep the shard of the given chat busy until the returned latch is released
+     */
+    private CountDownLatch blockShard(long chatId) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(chatId, Lane.ADMIN, 0, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        return release;
+    }
+
+    private Runnable record(String name) {
+        return () -> ran.add(name);
+    }
+
+    private void awaitRan(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ran.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // Give a wrongly queued extra task the chance to show up
+        Thread.sleep(20);
+        assertThat(ran).hasSize(count);
+    }
+}
@@ -0,0 +1,112 @@
+package com.NickSishchuck.StezhkaBot.component;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateOffsetTrackerTest {
+
+    private static final String BOT = "stezhka_bot";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+    }
+
+    @Test
+    void storesTheHighestIdAndResumesAfterItWhenPolling() {
+        UpdateOffsetTracker tracker = newTracker("polling");
+        tracker.accept(10);
+        tracker.accept(12);
+        tracker.accept(11);
+        tracker.flush();
+
+        assertThat(storedOffsets()).containsExactly(12L);
+
+        UpdateOffsetTracker restarted = newTracker("polling");
+        assertThat(restarted.getLastUpdateId()).isEqualTo(12);
+        assertThat(restarted.accept(12)).isFalse();
+        assertThat(restarted.accept(9)).isFalse();
+        assertThat(restarted.accept(13)).isTrue();
+    }
+
+    @Test
+    void webhookKeepsAcceptingRetriesBelowTheStoredId() {
+        UpdateOffsetTracker tracker = newTracker("webhook");
+        tracker.accept(20);
+        tracker.flush();
+
+        UpdateOffsetTracker restarted = newTracker("webhook");
+        assertThat(restarted.getLastUpdateId()).isEqualTo(20);
+        assertThat(restarted.accept(18)).isTrue();
+        assertThat(restarted.accept(18)).isFalse();
+        assertThat(restarted.accept(21)).isTrue();
+    }
+
+    @Test
+    void dropsDuplicatesWithinARun() {
+        UpdateOffsetTracker tracker = newTracker("polling");
+
+        assertThat(tracker.accept(5)).isTrue();
+        assertThat(tracker.accept(5)).isFalse();
+        assertThat(tracker.accept(null)).isTrue();
+    }
+
+    @Test
+    void renumberedIdsReplaceTheStoredOffset() {
+        UpdateOffsetTracker tracker = newTracker("polling");
+        tracker.accept(900_000);
+        tracker.flush();
+
+        goQuietFor(tracker, Duration.ofHours(25));
+        // Stale until an update shows what the ids look like now
+        assertThat(tracker.getLastUpdateId()).isEqualTo(-1);
+
+        assertThat(tracker.accept(1_000)).isTrue();
+        assertThat(tracker.getLastUpdateId()).isEqualTo(1_000);
+        tracker.flush();
+
+        assertThat(storedOffsets()).containsExactly(1_000L);
+        assertThat(newTracker("polling").getLastUpdateId()).isEqualTo(1_000);
+    }
+
+    @Test
+    void ignoresStoredOffsetsOlderThanADay() {
+        newTracker("polling");
+        jdbcTemplate.update("INSERT INTO update_offset (bot_key, last_update_id, updated_at) VALUES (?, ?, ?)",
+                BOT, 500, Timestamp.from(Instant.now().minus(Duration.ofHours(30))));
+
+        UpdateOffsetTracker tracker = newTracker("polling");
+        assertThat(tracker.getLastUpdateId()).isEqualTo(-1);
+        assertThat(tracker.accept(400)).isTrue();
+    }
+
+    private UpdateOffsetTracker newTracker(String ingressMode) {
+        UpdateOffsetTracker tracker = new UpdateOffsetTracker(jdbcTemplate, BOT, 64, ingressMode);
+        tracker.init();
+        return tracker;
+    }
+
+    private void goQuietFor(UpdateOffsetTracker tracker, Duration quiet) {
+        AtomicLong lastSeen = (AtomicLong) ReflectionTestUtils.getField(tracker, "lastSeenMillis");
+        lastSeen.set(System.currentTimeMillis() - quiet.toMillis());
+    }
+
+    private List<Long> storedOffsets() {
+        return jdbcTemplate.queryForList("SELECT last_update_id FROM update_offset WHERE bot_key = ?", Long.class, BOT);
+    }
+}
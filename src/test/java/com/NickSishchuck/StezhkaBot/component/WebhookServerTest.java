@@ -0,0 +1,118 @@
+package com.NickSishchuck.StezhkaBot.component;
+
+import com.NickSishchuck.StezhkaBot.service.StezhkaBotService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class WebhookServerTest {
+
+    private static final String SECRET = "s3cret";
+    private static final String UPDATE = "{\"update_id\":7}";
+
+    private final StezhkaBotService consumer = mock(StezhkaBotService.class);
+    private final LinkedBlockingQueue<List<Update>> consumed = new LinkedBlockingQueue<>();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private CountDownLatch releaseConsumer = new CountDownLatch(0);
+    private WebhookServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(invocation -> {
+            releaseConsumer.await(5, TimeUnit.SECONDS);
+            consumed.add(invocation.getArgument(0));
+            return null;
+        }).when(consumer).consume(anyList());
+
+        // Port 0 binds any free port; register=false leaves Telegram alone, so no client is needed
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        server = new WebhookServer(consumer, objectMapper, "", 0, "/telegram", SECRET, false, 40, 2, 64);
+        server.start(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void validUpdateReachesTheConsumer() throws Exception {
+        assertThat(post(SECRET, UPDATE).statusCode()).isEqualTo(200);
+
+        assertThat(consumed.poll(5, TimeUnit.SECONDS)).hasSize(1);
+    }
+
+    @Test
+    void wrongOrMissingSecretIsRejected() throws Exception {
+        assertThat(post("wrong", UPDATE).statusCode()).isEqualTo(401);
+        assertThat(post(null, UPDATE).statusCode()).isEqualTo(401);
+
+        assertThat(consumed.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void bodyOverTheLimitIsRejected() throws Exception {
+        String large = "{\"update_id\":7,\"padding\":\"" + "x".repeat(100) + "\"}";
+
+        assertThat(post(SECRET, large).statusCode()).isEqualTo(413);
+        assertThat(consumed.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void onlyPostIsAccepted() throws Exception {
+        HttpResponse<Void> response = client.send(request(SECRET).GET().build(), HttpResponse.BodyHandlers.discarding());
+
+        assertThat(response.statusCode()).isEqualTo(405);
+    }
+
+    @Test
+    void requestIsAcknowledgedBeforeTheUpdateIsHandled() throws Exception {
+        releaseConsumer = new CountDownLatch(1);
+
+        // The consumer is still blocked when the 200 arrives
+        assertThat(post(SECRET, UPDATE).statusCode()).isEqualTo(200);
+        assertThat(consumed).isEmpty();
+
+        releaseConsumer.countDown();
+        assertThat(consumed.poll(5, TimeUnit.SECONDS)).hasSize(1);
+    }
+
+    @Test
+    void unreadableUpdateIsAcknowledgedAndDropped() throws Exception {
+        assertThat(post(SECRET, "not json").statusCode()).isEqualTo(200);
+
+        assertThat(consumed.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private HttpResponse<Void> post(String secret, String body) throws Exception {
+        return client.send(request(secret).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private HttpRequest.Builder request(String secret) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/telegram"))
+                .timeout(Duration.ofSeconds(5));
+        if (secret != null) {
+            builder.header("X-Telegram-Bot-Api-Secret-Token", secret);
+        }
+        return builder;
+    }
+}
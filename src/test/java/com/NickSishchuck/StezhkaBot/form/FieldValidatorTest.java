@@ -0,0 +1,54 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FieldValidatorTest {
+
+    @Test
+    void lengthIsInclusive() {
+        FieldValidator validator = FieldValidator.length(2, 4);
+
+        assertThat(validator.isValid("a")).isFalse();
+        assertThat(validator.isValid("ab")).isTrue();
+        assertThat(validator.isValid("abcd")).isTrue();
+        assertThat(validator.isValid("abcde")).isFalse();
+    }
+
+    @Test
+    void intRangeRejectsNonNumbers() {
+        FieldValidator validator = FieldValidator.intRange(3, 18);
+
+        assertThat(validator.isValid("3")).isTrue();
+        assertThat(validator.isValid("18")).isTrue();
+        assertThat(validator.isValid("2")).isFalse();
+        assertThat(validator.isValid("19")).isFalse();
+        assertThat(validator.isValid("seven")).isFalse();
+        assertThat(validator.isValid("7.5")).isFalse();
+        assertThat(validator.isValid("")).isFalse();
+        assertThat(validator.isValid("99999999999")).isFalse();
+    }
+
+    @Test
+    void phoneAcceptsCommonFormats() {
+        FieldValidator validator = FieldValidator.phone();
+
+        assertThat(validator.isValid("+380501234567")).isTrue();
+        assertThat(validator.isValid("050 123 45 67")).isTrue();
+        assertThat(validator.isValid("(050) 123-45-67")).isTrue();
+
+        assertThat(validator.isValid("12345678")).isFalse();
+        assertThat(validator.isValid("call me maybe")).isFalse();
+        assertThat(validator.isValid("+38050123456x")).isFalse();
+    }
+
+    @Test
+    void patternMatchesTheWholeInput() {
+        FieldValidator validator = FieldValidator.pattern("[a-z]+", 3);
+
+        assertThat(validator.isValid("abc")).isTrue();
+        assertThat(validator.isValid("ab")).isFalse();
+        assertThat(validator.isValid("abc1")).isFalse();
+    }
+}
@@ -0,0 +1,159 @@
+package com.NickSishchuck.StezhkaBot.form;
+
+import com.NickSishchuck.StezhkaBot.form.FormEngine.InputResult;
+import com.NickSishchuck.StezhkaBot.form.FormEngine.InputStatus;
+import com.NickSishchuck.StezhkaBot.scheduler.SessionExpiry;
+import com.NickSishchuck.StezhkaBot.state.ActiveFlowIndex;
+import com.NickSishchuck.StezhkaBot.state.InMemoryConversationStateStore;
+import com.NickSishchuck.StezhkaBot.utils.MenuBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FormEngineTest {
+
+    private static final long CHAT = 1L;
+    private static final InlineKeyboardMarkup COURSES = new MenuBuilder()
+            .addButton("Preschool", "course_preschool")
+            .addButton("English", "course_english")
+            .buildFrozen();
+
+    private final InMemoryConversationStateStore stateStore = new InMemoryConversationStateStore();
+    private final ActiveFlowIndex activeFlows = new ActiveFlowIndex(stateStore);
+    private final FormEngine engine = new FormEngine(stateStore, mock(SessionExpiry.class), activeFlows);
+
+    @BeforeEach
+    void setUp() {
+        engine.register(FormDefinition.builder("enrollment")
+                .choice("course", "Course?", Map.of("preschool", "Preschool", "english", "English"), COURSES)
+                .text("name", "Name?", "Bad name", FieldValidator.length(2, 10))
+                .text("age", "Age?", "Bad age", FieldValidator.intRange(3, 18))
+                .summary(values -> values.label("course") + ", " + values.get("name") + ", " + values.get("age"))
+                .callbacks("enroll_confirm", "enroll_cancel")
+                .build());
+        engine.register(FormDefinition.builder("consultation")
+                .text("phone", "Phone?", "Bad phone", FieldValidator.phone())
+                .summary(values -> values.get("phone"))
+                .callbacks("consult_confirm", "consult_cancel")
+                .build());
+    }
+
+    @Test
+    void fieldsAreAskedInOrderUntilTheFormIsComplete() {
+        FormState state = engine.start("enrollment", CHAT, Map.of());
+        assertThat(state.getStep()).isZero();
+
+        assertThat(engine.choose("enrollment", CHAT, "course", "english").getStep()).isEqualTo(1);
+        assertThat(submit("Olena").status()).isEqualTo(InputStatus.ACCEPTED);
+        InputResult last = submit("7");
+        assertThat(last.status()).isEqualTo(InputStatus.ACCEPTED);
+        assertThat(last.field().key()).isEqualTo("age");
+        assertThat(last.definition().isComplete(last.state())).isTrue();
+
+        assertThat(submit("more text").status()).isEqualTo(InputStatus.AWAITING_CONFIRMATION);
+        assertThat(last.definition().summarize(last.state())).isEqualTo("English, Olena, 7");
+        assertThat(activeFlows.owner(CHAT)).isEqualTo(FormEngine.FLOW_ID);
+    }
+
+    @Test
+    void presetValuesAreSkipped() {
+        FormState state = engine.start("enrollment", CHAT, Map.of("course", "preschool"));
+
+        assertThat(state.getStep()).isEqualTo(1);
+        assertThat(engine.getDefinition("enrollment").getField(state.getStep()).key()).isEqualTo("name");
+    }
+
+    @Test
+    void textOnAChoiceStepShowsTheOptionsAgain() {
+        engine.start("enrollment", CHAT, Map.of());
+
+        InputResult result = submit("English please");
+
+        assertThat(result.status()).isEqualTo(InputStatus.AWAITING_CHOICE);
+        assertThat(result.state().getStep()).isZero();
+        assertThat(result.field().kind()).isEqualTo(FormField.Kind.CHOICE);
+        assertThat(result.field().keyboard()).isSameAs(COURSES);
+        assertThat(result.field().label("english")).isEqualTo("English");
+    }
+
+    @Test
+    void invalidInputKeepsTheStep() {
+        engine.start("enrollment", CHAT, Map.of("course", "english"));
+        submit("Olena");
+
+        InputResult result = submit("42");
+
+        assertThat(result.status()).isEqualTo(InputStatus.INVALID);
+        assertThat(result.field().error()).isEqualTo("Bad age");
+        assertThat(engine.getState("enrollment", CHAT).getStep()).isEqualTo(2);
+    }
+
+    @Test
+    void inputIsTrimmedBeforeValidationAndStorage() {
+        engine.start("enrollment", CHAT, Map.of("course", "english"));
+
+        // 12 characters with the spaces, 9 without
+        assertThat(submit("   Anastasia").status()).isEqualTo(InputStatus.ACCEPTED);
+        assertThat(submit(" 7 \n").status()).isEqualTo(InputStatus.ACCEPTED);
+
+        FormValues values = engine.getCompleted("enrollment", CHAT);
+        assertThat(values.get("name")).isEqualTo("Anastasia");
+        assertThat(values.get("age")).isEqualTo("7");
+    }
+
+    @Test
+    void incompleteFormCannotBeConfirmed() {
+        engine.start("enrollment", CHAT, Map.of("course", "english"));
+        submit("Olena");
+
+        assertThat(engine.getCompleted("enrollment", CHAT)).isNull();
+        assertThat(engine.getCompleted("consultation", CHAT)).isNull();
+
+        submit("7");
+        assertThat(engine.getCompleted("enrollment", CHAT)).isNotNull();
+    }
+
+    @Test
+    void startingAFormReplacesTheOpenOne() {
+        engine.start("enrollment", CHAT, Map.of("course", "english"));
+        submit("Olena");
+
+        engine.start("consultation", CHAT, Map.of());
+
+        assertThat(engine.getState("enrollment", CHAT)).isNull();
+        assertThat(engine.choose("enrollment", CHAT, "course", "preschool")).isNull();
+        InputResult result = submit("+380 50 123 45 67");
+        assertThat(result.status()).isEqualTo(InputStatus.ACCEPTED);
+        assertThat(result.definition().getId()).isEqualTo("consultation");
+    }
+
+    @Test
+    void finishClosesOnlyTheNamedForm() {
+        engine.start("consultation", CHAT, Map.of());
+
+        engine.finish("enrollment", CHAT);
+        assertThat(engine.getState("consultation", CHAT)).isNotNull();
+
+        engine.finish("consultation", CHAT);
+        assertThat(submit("+380501234567").status()).isEqualTo(InputStatus.NO_FORM);
+        assertThat(activeFlows.owner(CHAT)).isNull();
+    }
+
+    @Test
+    void stateOfAChangedFormIsDropped() {
+        // Saved by a version of the form with one more field
+        stateStore.put("form", CHAT, new FormState("consultation", 2));
+
+        assertThat(submit("+380501234567").status()).isEqualTo(InputStatus.NO_FORM);
+        assertThat(stateStore.get("form", CHAT, FormState.class)).isNull();
+    }
+
+    private InputResult submit(String text) {
+        return engine.submit(CHAT, text);
+    }
+}
@@ -0,0 +1,115 @@
+package com.NickSishchuck.StezhkaBot.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MenuHandlerRegistryTest {
+
+    private final RecordingHandler main = new RecordingHandler(Set.of("main", "back_main"), Set.of());
+    private final RecordingHandler programs = new RecordingHandler(Set.of("directions_main"), Set.of("program_"));
+    private final RecordingHandler admin = new RecordingHandler(Set.of("admin"), Set.of("admin_", "admin_edit_"));
+
+    @Test
+    void resolvesExactCallbacks() {
+        MenuHandlerRegistry registry = new MenuHandlerRegistry(List.of(main, programs));
+
+        assertThat(registry.resolve("directions_main")).isSameAs(programs);
+        assertThat(registry.resolve("back_main")).isSameAs(main);
+    }
+
+    @Test
+    void resolvesLongestPrefix() {
+        MenuHandlerRegistry registry = new MenuHandlerRegistry(List.of(main, programs, admin));
+
+        assertThat(registry.resolve("program_preschool")).isSameAs(programs);
+        assertThat(registry.resolve("program_")).isSameAs(programs);
+        assertThat(registry.resolve("admin_edit_WELCOME")).isSameAs(admin);
+        assertThat(registry.resolve("admin_stats")).isSameAs(admin);
+    }
+
+    @Test
+    void unknownCallbacksDoNotResolve() {
+        MenuHandlerRegistry registry = new MenuHandlerRegistry(List.of(main, programs));
+
+        assertThat(registry.resolve("program")).isNull();
+        assertThat(registry.resolve("unknown")).isNull();
+        assertThat(registry.resolve("")).isNull();
+        assertThat(registry.resolve(null)).isNull();
+        assertThat(registry.resolve("програма_")).isNull();
+    }
+
+    @Test
+    void unknownCallbackFallsBackToMainMenu() {
+        MenuHandlerRegistry registry = new MenuHandlerRegistry(List.of(main, programs));
+
+        registry.handle(1L, 7, "something_else");
+        registry.handle(2L, "program_nmt");
+
+        assertThat(main.calls).containsExactly("1:7:main");
+        assertThat(programs.calls).containsExactly("2:program_nmt");
+    }
+
+    @Test
+    void rejectsConflictingDeclarations() {
+        RecordingHandler other = new RecordingHandler(Set.of("main"), Set.of("program_pre"));
+
+        assertThatThrownBy(() -> new MenuHandlerRegistry(List.of(main, programs, other)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("callback 'main' is claimed by")
+                .hasMessageContaining("prefix 'program_pre'");
+    }
+
+    @Test
+    void rejectsExactCallbackCoveredByAnotherPrefix() {
+        RecordingHandler other = new RecordingHandler(Set.of(), Set.of("directions"));
+
+        assertThatThrownBy(() -> new MenuHandlerRegistry(List.of(main, programs, other)))
+                .hasMessageContaining("callback 'directions_main'")
+                .hasMessageContaining("also covered by a prefix");
+    }
+
+    @Test
+    void rejectsNonAsciiPrefix() {
+        RecordingHandler other = new RecordingHandler(Set.of(), Set.of("меню_"));
+
+        assertThatThrownBy(() -> new MenuHandlerRegistry(List.of(main, other)))
+                .hasMessageContaining("invalid prefix");
+    }
+
+    private static final class RecordingHandler implements MenuHandler {
+        private final Set<String> exact;
+        private final Set<String> prefixes;
+        private final List<String> calls = new ArrayList<>();
+
+        RecordingHandler(Set<String> exact, Set<String> prefixes) {
+            this.exact = exact;
+            this.prefixes = prefixes;
+        }
+
+        @Override
+        public void handle(long chatId, String callbackData) {
+            calls.add(chatId + ":" + callbackData);
+        }
+
+        @Override
+        public void handle(long chatId, int messageId, String callbackData) {
+            calls.add(chatId + ":" + messageId + ":" + callbackData);
+        }
+
+        @Override
+        public Set<String> getExactCallbacks() {
+            return exact;
+        }
+
+        @Override
+        public Set<String> getCallbackPrefixes() {
+            return prefixes;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.NickSishchuck.StezhkaBot.menu;
+
+import com.NickSishchuck.StezhkaBot.menu.MenuDefinition.Button;
+import com.NickSishchuck.StezhkaBot.menu.MenuDefinition.Screen;
+import com.NickSishchuck.StezhkaBot.service.TextContentService;
+import com.NickSishchuck.StezhkaBot.utils.KeyboardRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MenuTreeTest {
+
+    private final KeyboardRegistry keyboards = new KeyboardRegistry();
+
+    @Test
+    void bundledTreesCompile() {
+        TextContentService texts = mock(TextContentService.class);
+        when(texts.getText(anyString())).thenAnswer(invocation -> "text of " + invocation.getArgument(0));
+        MenuTreeLoader loader = new MenuTreeLoader(new ObjectMapper(), texts, keyboards);
+
+        MenuTree programs = loader.load("programs");
+        assertThat(programs.resolve("directions_main").render()).isEqualTo("text of PROGRAMS_MENU_MESSAGE");
+        assertThat(programs.resolve("programs_main")).isSameAs(programs.resolve("directions_main"));
+        assertThat(programs.resolve("directions_main").keyboard()).isSameAs(keyboards.get("programs.directions_main"));
+
+        MenuTree admin = loader.load("admin");
+        assertThat(admin.resolve("/admin").id()).isEqualTo("admin_main");
+        assertThat(admin.resolve("admin_stats")).isNull();
+    }
+
+    @Test
+    void compilesScreensAliasesAndButtons() {
+        MenuTree tree = compile(
+                screen("start", List.of("/start"), null, "Hello", row(to("Next", "next"), callback("Call us", "contacts"))),
+                screen("next", null, "NEXT_TEXT", null, row(to("Back", "start"))));
+
+        assertThat(tree.getCallbacks()).containsExactlyInAnyOrder("start", "/start", "next");
+        assertThat(tree.resolve("/start").render()).isEqualTo("Hello");
+        assertThat(tree.resolve("next").render()).isEqualTo("[NEXT_TEXT]");
+        assertThat(tree.resolve("start").keyboard().getKeyboard()).hasSize(1);
+        assertThat(tree.resolve("start").keyboard().getKeyboard().get(0))
+                .extracting(button -> button.getCallbackData())
+                .containsExactly("next", "contacts");
+        assertThat(tree.resolve("contacts")).isNull();
+    }
+
+    @Test
+    void rejectsDuplicateScreens() {
+        assertInvalid("screen 'start' is defined twice",
+                screen("start", null, null, "One", row()),
+                screen("start", null, null, "Two", row()));
+    }
+
+    @Test
+    void rejectsScreensWithoutId() {
+        assertInvalid("a screen has no id", screen(" ", null, null, "Hello", row()));
+    }
+
+    @Test
+    void rejectsACallbackOpeningTwoScreens() {
+        assertInvalid("callback 'home' opens both",
+                screen("start", List.of("home"), null, "One", row()),
+                screen("home", null, null, "Two", row()));
+        assertInvalid("callback 'home' opens both",
+                screen("start", List.of("home"), null, "One", row()),
+                screen("other", List.of("home"), null, "Two", row()));
+    }
+
+    @Test
+    void rejectsLinksToUnknownScreens() {
+        assertInvalid("screen 'start' links to unknown screen 'missing'",
+                screen("start", null, null, "Hello", row(to("Go", "missing"))));
+    }
+
+    @Test
+    void rejectsScreensWithoutTextOrWithBothTexts() {
+        assertInvalid("screen 'start' needs exactly one of textKey and text",
+                screen("start", null, null, null, row()));
+        assertInvalid("screen 'start' needs exactly one of textKey and text",
+                screen("start", null, "START_TEXT", "Hello", row()));
+    }
+
+    @Test
+    void rejectsButtonsWithoutLabelOrTarget() {
+        assertInvalid("screen 'start' has a button without label or target",
+                screen("start", null, null, "Hello", row(new Button(null, "start", null))));
+        assertInvalid("screen 'start' has a button without label or target",
+                screen("start", null, null, "Hello", row(new Button("Nowhere", null, null))));
+    }
+
+    @Test
+    void reportsEveryProblemAtOnce() {
+        assertThatThrownBy(() -> compile(
+                screen("start", null, null, null, row()),
+                screen("next", null, null, "Hello", row(to("Go", "missing")))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("needs exactly one of textKey and text")
+                .hasMessageContaining("links to unknown screen 'missing'");
+    }
+
+    @Test
+    void loaderRejectsUnknownFields() {
+        MenuTreeLoader loader = new MenuTreeLoader(new ObjectMapper(), mock(TextContentService.class), keyboards);
+
+        // A misspelt "to" fails the load instead of being ignored
+        assertThatThrownBy(() -> loader.load("unknown_field"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("menus/unknown_field.json")
+                .hasMessageContaining("too");
+    }
+
+    @Test
+    void loaderReportsAMissingFile() {
+        MenuTreeLoader loader = new MenuTreeLoader(new ObjectMapper(), mock(TextContentService.class), keyboards);
+
+        assertThatThrownBy(() -> loader.load("no_such_tree"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("menus/no_such_tree.json");
+    }
+
+    private MenuTree compile(Screen... screens) {
+        return MenuTree.compile("test", new MenuDefinition(List.of(screens)), key -> "[" + key + "]", keyboards);
+    }
+
+    private void assertInvalid(String problem, Screen... screens) {
+        assertThatThrownBy(() -> MenuTree.compile("test", new MenuDefinition(List.of(screens)), key -> key,
+                new KeyboardRegistry()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("Menu tree 'test' is invalid")
+                .hasMessageContaining(problem);
+    }
+
+    private static Screen screen(String id, List<String> aliases, String textKey, String text, List<Button> row) {
+        return new Screen(id, aliases, textKey, text, List.of(row));
+    }
+
+    private static List<Button> row(Button... buttons) {
+        return List.of(buttons);
+    }
+
+    private static Button to(String label, String screenId) {
+        return new Button(label, screenId, null);
+    }
+
+    private static Button callback(String label, String callback) {
+        return new Button(label, null, callback);
+    }
+}
@@ -0,0 +1,179 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.service.AdminNotifier.Delivery;
+import com.NickSishchuck.StezhkaBot.utils.RenderedMessageCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdminNotifierTest {
+
+    private final OutboundScheduler scheduler = mock(OutboundScheduler.class);
+    private final AdminRegistry adminRegistry = mock(AdminRegistry.class);
+    private final RenderedMessageCache renderedMessages = new RenderedMessageCache(100);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AdminNotifier notifier = new AdminNotifier(scheduler, adminRegistry, executor, renderedMessages);
+
+    // Calls queued on the scheduler by admin chat, left incomplete until the test answers them
+    private final Map<Long, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        when(scheduler.isReady()).thenReturn(true);
+        when(adminRegistry.getAdminIds()).thenReturn(new long[]{1, 2, 3});
+        when(scheduler.submit(anyLong(), any())).thenAnswer(invocation -> {
+            CompletableFuture<Object> call = new CompletableFuture<>();
+            calls.put(invocation.getArgument(0), call);
+            return call;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void broadcastQueuesEveryAdminBeforeAnySendFinishes() throws Exception {
+        CompletableFuture<List<Delivery>> result = notifier.broadcast("test", "New request", null, null);
+
+        assertThat(calls).containsOnlyKeys(1L, 2L, 3L);
+        assertThat(result).isNotDone();
+
+        // Admins finish in any order; the result waits for the last one
+        calls.get(3L).complete(sent(30));
+        calls.get(1L).complete(sent(10));
+        assertThat(result).isNotDone();
+        calls.get(2L).complete(sent(20));
+
+        assertThat(result.get(5, TimeUnit.SECONDS))
+                .containsExactlyInAnyOrder(new Delivery(1, 10), new Delivery(2, 20), new Delivery(3, 30));
+        assertThat(renderedMessages.isUnchanged(2, 20, "New request", null, null)).isTrue();
+    }
+
+    @Test
+    void failedSendsAreLeftOutOfTheDeliveries() throws Exception {
+        CompletableFuture<List<Delivery>> result = notifier.broadcast("test", "New request", null, null);
+
+        calls.get(1L).complete(sent(10));
+        calls.get(2L).completeExceptionally(new TelegramApiException("Forbidden: bot was blocked by the user"));
+        calls.get(3L).complete(sent(30));
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).containsExactlyInAnyOrder(new Delivery(1, 10), new Delivery(3, 30));
+    }
+
+    @Test
+    void broadcastSendsTheSameMessageToEveryAdmin() {
+        List<SendMessage> sends = new CopyOnWriteArrayList<>();
+        when(scheduler.submit(anyLong(), any())).thenAnswer(invocation -> {
+            sends.add(invocation.getArgument(1));
+            return new CompletableFuture<>();
+        });
+
+        notifier.broadcast("test", "*New request*", "Markdown", null);
+
+        assertThat(sends).hasSize(3).allSatisfy(send -> {
+            assertThat(send.getText()).isEqualTo("*New request*");
+            assertThat(send.getParseMode()).isEqualTo("Markdown");
+        });
+        assertThat(sends).extracting(SendMessage::getChatId).containsExactlyInAnyOrder("1", "2", "3");
+    }
+
+    @Test
+    void nothingIsSentWithoutAdminsOrBeforeTheClientIsReady() throws Exception {
+        when(adminRegistry.getAdminIds()).thenReturn(new long[0]);
+        assertThat(notifier.broadcast("test", "text", null, null).get()).isEmpty();
+
+        when(adminRegistry.getAdminIds()).thenReturn(new long[]{1});
+        when(scheduler.isReady()).thenReturn(false);
+        assertThat(notifier.broadcast("test", "text", null, null).get()).isEmpty();
+
+        assertThat(calls).isEmpty();
+    }
+
+    @Test
+    void editAllUpdatesEveryCopyAndCountsTheEdited() throws Exception {
+        List<Delivery> copies = List.of(new Delivery(1, 10), new Delivery(2, 20), new Delivery(3, 30));
+
+        CompletableFuture<Integer> result = notifier.editAll("test", copies, "Processed");
+
+        assertThat(calls).containsOnlyKeys(1L, 2L, 3L);
+        calls.get(1L).complete(true);
+        // Another instance already edited this copy
+        calls.get(2L).completeExceptionally(apiError(400, "Bad Request: message is not modified"));
+        calls.get(3L).completeExceptionally(apiError(400, "Bad Request: message to edit not found"));
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(renderedMessages.isUnchanged(1, 10, "Processed", null, null)).isTrue();
+        assertThat(renderedMessages.isUnchanged(2, 20, "Processed", null, null)).isTrue();
+        assertThat(renderedMessages.isUnchanged(3, 30, "Processed", null, null)).isFalse();
+    }
+
+    @Test
+    void editAllSkipsCopiesThatAlreadyShowTheText() throws Exception {
+        renderedMessages.remember(1, 10, "Processed", null, null);
+        renderedMessages.remember(2, 20, "New request", null, null);
+
+        CompletableFuture<Integer> result = notifier.editAll("test",
+                List.of(new Delivery(1, 10), new Delivery(2, 20)), "Processed");
+
+        assertThat(calls).containsOnlyKeys(2L);
+        calls.get(2L).complete(true);
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+
+        // Both copies are now known to show the text, so repeating the edit sends nothing
+        calls.clear();
+        assertThat(notifier.editAll("test", List.of(new Delivery(1, 10), new Delivery(2, 20)), "Processed")
+                .get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(calls).isEmpty();
+    }
+
+    @Test
+    void failedEditIsRetriedOnTheNextCall() throws Exception {
+        List<Delivery> copies = List.of(new Delivery(1, 10));
+        renderedMessages.remember(1, 10, "New request", null, null);
+
+        CompletableFuture<Integer> first = notifier.editAll("test", copies, "Processed");
+        calls.get(1L).completeExceptionally(new TelegramApiException("connection reset"));
+        assertThat(first.get(5, TimeUnit.SECONDS)).isZero();
+
+        calls.clear();
+        CompletableFuture<Integer> second = notifier.editAll("test", copies, "Processed");
+        assertThat(calls).containsOnlyKeys(1L);
+        calls.get(1L).complete(true);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    private static Message sent(int messageId) {
+        Message message = mock(Message.class);
+        when(message.getMessageId()).thenReturn(messageId);
+        return message;
+    }
+
+    private static TelegramApiRequestException apiError(int code, String description) {
+        TelegramApiRequestException error = mock(TelegramApiRequestException.class);
+        when(error.getErrorCode()).thenReturn(code);
+        when(error.getApiResponse()).thenReturn(description);
+        when(error.getMessage()).thenReturn(description);
+        return error;
+    }
+}
@@ -0,0 +1,69 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.entity.EnrollmentRequest;
+import com.NickSishchuck.StezhkaBot.form.FormEngine;
+import com.NickSishchuck.StezhkaBot.form.FormValues;
+import com.NickSishchuck.StezhkaBot.repository.EnrollmentRequestRepository;
+import com.NickSishchuck.StezhkaBot.repository.RequestAdminMessageRepository;
+import com.NickSishchuck.StezhkaBot.scheduler.SessionExpiry;
+import com.NickSishchuck.StezhkaBot.utils.SlidingWindowRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EnrollmentServiceTest {
+
+    private static final long USER = 7L;
+
+    private final EnrollmentRequestRepository repository = mock(EnrollmentRequestRepository.class);
+    private final FormEngine formEngine = mock(FormEngine.class);
+    private final SlidingWindowRateLimiter rateLimiter = new SlidingWindowRateLimiter(1, Duration.ofMinutes(30));
+    private final EnrollmentService service = new EnrollmentService(repository, mock(RequestAdminMessageRepository.class),
+            formEngine, mock(SessionExpiry.class), rateLimiter);
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        // The service is not proxied here, so the test opens the transaction @Transactional would
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")));
+        when(formEngine.getCompleted(eq(EnrollmentService.FORM_ID), anyLong())).thenReturn(mock(FormValues.class));
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void committedRequestTakesTheSlot() {
+        assertThat(complete(request -> { })).isNotNull();
+
+        assertThat(rateLimiter.count(USER, System.currentTimeMillis())).isEqualTo(1);
+        assertThat(complete(request -> { })).isNull();
+    }
+
+    @Test
+    void rolledBackRequestGivesTheSlotBack() {
+        assertThatThrownBy(() -> complete(request -> {
+            throw new IllegalStateException("outbox insert failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(rateLimiter.count(USER, System.currentTimeMillis())).isZero();
+        assertThat(complete(request -> { })).isNotNull();
+    }
+
+    private EnrollmentRequest complete(Consumer<EnrollmentRequest> onSaved) {
+        return transaction.execute(status -> service.completeEnrollment(USER, onSaved));
+    }
+}
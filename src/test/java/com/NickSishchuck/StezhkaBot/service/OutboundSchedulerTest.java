@@ -0,0 +1,136 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.config.ExecutorConfig;
+import com.NickSishchuck.StezhkaBot.utils.TelegramErrors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboundSchedulerTest {
+
+    private final ExecutorService outboundExecutor = Executors.newSingleThreadExecutor();
+    private final List<CompletableFuture<Object>> calls = new CopyOnWriteArrayList<>();
+    private final Map<String, CompletableFuture<Object>> callsByChat = new ConcurrentHashMap<>();
+    private final OutboundScheduler scheduler = new OutboundScheduler(new ExecutorConfig(), outboundExecutor,
+            30, 1, 20, 3, 5, 500, 30000, 200, new DeadLetterLog(10));
+
+    @AfterEach
+    void tearDown() {
+        calls.forEach(call -> call.complete(null));
+        scheduler.shutdown();
+        outboundExecutor.shutdownNow();
+    }
+
+    @Test
+    void blockingSendGivesUpAtTheDeadlineButStaysQueued() throws Exception {
+        scheduler.setTelegramClient(pendingClient());
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> scheduler.execute(1L, message(1L, "hello")))
+                .isInstanceOf(TelegramApiException.class)
+                .satisfies(e -> assertThat(TelegramErrors.isTimeout(e)).isTrue());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(150L, 2000L);
+
+        // The call is in flight and finishes on its own
+        assertThat(calls).hasSize(1);
+        assertThat(scheduler.getQueuedCount()).isZero();
+        calls.get(0).complete(null);
+    }
+
+    @Test
+    void blockingSendReturnsAnswerInTime() throws Exception {
+        scheduler.setTelegramClient(pendingClient());
+        CompletableFuture<Void> answered = CompletableFuture.runAsync(() -> {
+            while (calls.isEmpty()) {
+                Thread.onSpinWait();
+            }
+            calls.get(0).complete(null);
+        });
+
+        assertThat((Object) scheduler.execute(1L, message(1L, "hello"))).isNull();
+        answered.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void trackedSendsCompleteWhenEveryOneIsAnswered() throws Exception {
+        scheduler.setTelegramClient(pendingClient());
+
+        CompletableFuture<Void> rendered = scheduler.trackChatSends(() -> {
+            scheduler.submit(1L, message(1L, "first"));
+            scheduler.submit(2L, message(2L, "second"));
+        });
+        // Submitted outside the tracked work, left unanswered
+        scheduler.submit(3L, message(3L, "other"));
+        awaitCalls(3);
+
+        callFor("1").complete(null);
+        assertThat(rendered).isNotDone();
+        // A failed send ends the wait as well
+        callFor("2").completeExceptionally(new TelegramApiException("Bad Request"));
+
+        rendered.get(1, TimeUnit.SECONDS);
+        assertThat(callFor("3")).isNotDone();
+    }
+
+    @Test
+    void workWithoutSendsIsDoneAtOnce() {
+        assertThat(scheduler.trackChatSends(() -> { })).isDone();
+    }
+
+    @Test
+    void otherErrorsAreNotTimeouts() {
+        assertThat(TelegramErrors.isTimeout(new TelegramApiException("Bad Request"))).isFalse();
+    }
+
+    private static SendMessage message(long chatId, String text) {
+        return SendMessage.builder().chatId(chatId).text(text).build();
+    }
+
+    private CompletableFuture<Object> callFor(String chatId) {
+        return callsByChat.get(chatId);
+    }
+
+    private void awaitCalls(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(calls).hasSize(count);
+    }
+
+    /**
+     * Client whose calls complete only when the test completes them
+     */
+    private TelegramClient pendingClient() {
+        return (TelegramClient) Proxy.newProxyInstance(TelegramClient.class.getClassLoader(),
+                new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("executeAsync")) {
+                        CompletableFuture<Object> call = new CompletableFuture<>();
+                        calls.add(call);
+                        if (args[0] instanceof SendMessage sent) {
+                            callsByChat.put(sent.getChatId(), call);
+                        }
+                        return call;
+                    }
+                    if (method.getName().equals("toString")) {
+                        return "pending TelegramClient";
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
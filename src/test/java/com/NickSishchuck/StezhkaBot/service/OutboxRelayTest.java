@@ -0,0 +1,242 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.entity.OutboxMessage;
+import com.NickSishchuck.StezhkaBot.entity.OutboxMessage.OutboxStatus;
+import com.NickSishchuck.StezhkaBot.entity.RequestAdminMessage;
+import com.NickSishchuck.StezhkaBot.repository.OutboxMessageRepository;
+import com.NickSishchuck.StezhkaBot.repository.RequestAdminMessageRepository;
+import com.NickSishchuck.StezhkaBot.utils.RenderedMessageCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the relay against the real repositories on H2 in MySQL mode, so the claim statement and the
+ * settle transaction are the ones used in production
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+
+    private static final long CHAT = 42L;
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+    @Autowired
+    private RequestAdminMessageRepository adminMessageRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final OutboundScheduler scheduler = mock(OutboundScheduler.class);
+    private final RenderedMessageCache renderedMessages = new RenderedMessageCache(100);
+    private final List<Object> calls = new CopyOnWriteArrayList<>();
+    private Function<Object, CompletableFuture<?>> telegram = method -> CompletableFuture.completedFuture(sent(77));
+
+    @BeforeEach
+    void setUp() {
+        when(scheduler.isReady()).thenReturn(true);
+        when(scheduler.submit(anyLong(), any())).thenAnswer(invocation -> {
+            calls.add(invocation.getArgument(1));
+            return telegram.apply(invocation.getArgument(1));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+        adminMessageRepository.deleteAll();
+    }
+
+    @Test
+    void sendIsMarkedSentAndTheAdminCopyRecorded() {
+        OutboxMessage message = new OutboxMessage(CHAT, null, "New request", null, null);
+        message.setRequestType(RequestAdminMessage.RequestType.ENROLLMENT);
+        message.setRequestId(5L);
+        long id = outboxRepository.save(message).getId();
+
+        runOnce(relay(10));
+
+        OutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(OutboxStatus.SENT);
+        assertThat(stored.getAttempts()).isEqualTo(1);
+        assertThat(stored.getSentAt()).isNotNull();
+        assertThat(stored.getLeaseOwner()).isNull();
+        assertThat(stored.getLeaseUntil()).isNull();
+        assertThat(adminMessageRepository.findByRequestTypeAndRequestId(RequestAdminMessage.RequestType.ENROLLMENT, 5L))
+                .singleElement()
+                .satisfies(copy -> assertThat(copy.getMessageId()).isEqualTo(77));
+    }
+
+    @Test
+    void rowsLeasedToAnotherRelayAreLeftAloneUntilTheLeaseExpires() {
+        long held = outboxRepository.save(leased("held", LocalDateTime.now().plusMinutes(5))).getId();
+        long expired = outboxRepository.save(leased("expired", LocalDateTime.now().minusSeconds(1))).getId();
+
+        runOnce(relay(10));
+
+        assertThat(calls).singleElement()
+                .satisfies(call -> assertThat(((SendMessage) call).getText()).isEqualTo("expired"));
+        assertThat(outboxRepository.findById(held).orElseThrow().getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(outboxRepository.findById(held).orElseThrow().getLeaseOwner()).isEqualTo("other");
+        assertThat(outboxRepository.findById(expired).orElseThrow().getStatus()).isEqualTo(OutboxStatus.SENT);
+    }
+
+    @Test
+    void messagesNotYetDueAreNotClaimed() {
+        OutboxMessage later = new OutboxMessage(CHAT, null, "later", null, null);
+        later.setNextAttemptAt(LocalDateTime.now().plusMinutes(1));
+        outboxRepository.save(later);
+
+        runOnce(relay(10));
+
+        assertThat(calls).isEmpty();
+    }
+
+    @Test
+    void failedSendIsRetriedWithBackoff() {
+        telegram = method -> CompletableFuture.failedFuture(apiError(502, "Bad Gateway"));
+        long id = outboxRepository.save(new OutboxMessage(CHAT, null, "hello", null, null)).getId();
+
+        LocalDateTime before = LocalDateTime.now();
+        runOnce(relay(10));
+
+        OutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(stored.getAttempts()).isEqualTo(1);
+        assertThat(stored.getLastError()).isEqualTo("Bad Gateway");
+        assertThat(stored.getNextAttemptAt()).isAfter(before.plusSeconds(4));
+        assertThat(stored.getLeaseOwner()).isNull();
+    }
+
+    @Test
+    void messageIsDroppedAfterMaxAttempts() {
+        telegram = method -> CompletableFuture.failedFuture(apiError(403, "Forbidden: bot was blocked by the user"));
+        OutboxMessage message = new OutboxMessage(CHAT, null, "hello", null, null);
+        message.setAttempts(2);
+        long id = outboxRepository.save(message).getId();
+
+        runOnce(relay(3));
+
+        OutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(stored.getAttempts()).isEqualTo(3);
+        assertThat(stored.getLastError()).contains("blocked");
+    }
+
+    @Test
+    void editOfAMissingMessageTurnsIntoASend() {
+        telegram = method -> method instanceof EditMessageText
+                ? CompletableFuture.failedFuture(apiError(400, "Bad Request: message to edit not found"))
+                : CompletableFuture.completedFuture(sent(78));
+        long id = outboxRepository.save(new OutboxMessage(CHAT, 10, "updated", null, null)).getId();
+
+        runOnce(relay(10));
+
+        OutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(stored.getMessageId()).isNull();
+        assertThat(stored.getNextAttemptAt()).isBeforeOrEqualTo(LocalDateTime.now());
+
+        runOnce(relay(10));
+
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(1)).isInstanceOf(SendMessage.class);
+        assertThat(outboxRepository.findById(id).orElseThrow().getStatus()).isEqualTo(OutboxStatus.SENT);
+    }
+
+    @Test
+    void editFailingForAnotherReasonIsRetriedAsAnEdit() {
+        telegram = method -> CompletableFuture.failedFuture(new TelegramApiException("connection reset"));
+        long id = outboxRepository.save(new OutboxMessage(CHAT, 10, "updated", null, null)).getId();
+
+        runOnce(relay(10));
+
+        OutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        assertThat(stored.getMessageId()).isEqualTo(10);
+        assertThat(stored.getAttempts()).isEqualTo(1);
+        assertThat(stored.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(4));
+    }
+
+    @Test
+    void resultIsDroppedWhenTheLeaseWasTakenOver() {
+        long id = outboxRepository.save(new OutboxMessage(CHAT, null, "hello", null, null)).getId();
+        telegram = method -> {
+            // Another relay picks the row up while this one is still sending
+            jdbcTemplate.update("UPDATE notification_outbox SET lease_owner = 'other' WHERE id = ?", id);
+            return CompletableFuture.completedFuture(sent(77));
+        };
+
+        runOnce(relay(10));
+
+        OutboxMessage stored = outboxRepository.findById(id).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(stored.getAttempts()).isZero();
+        assertThat(stored.getLeaseOwner()).isEqualTo("other");
+    }
+
+    private OutboxRelay relay(int maxAttempts) {
+        return new OutboxRelay(outboxRepository, adminMessageRepository, scheduler, renderedMessages, new ObjectMapper(),
+                transactionManager, 1000, 50, 10, maxAttempts, 5000, 72);
+    }
+
+    // wake() queues a drain on the relay thread, stop() waits for it to settle
+    private static void runOnce(OutboxRelay relay) {
+        relay.wake();
+        assertThat(relay.stop(Duration.ofSeconds(5))).isTrue();
+    }
+
+    private static OutboxMessage leased(String text, LocalDateTime until) {
+        OutboxMessage message = new OutboxMessage(CHAT, null, text, null, null);
+        message.setLeaseOwner("other");
+        message.setLeaseUntil(until);
+        return message;
+    }
+
+    private static Message sent(int messageId) {
+        Message message = mock(Message.class);
+        when(message.getMessageId()).thenReturn(messageId);
+        return message;
+    }
+
+    private static TelegramApiRequestException apiError(int code, String description) {
+        TelegramApiRequestException error = mock(TelegramApiRequestException.class);
+        when(error.getErrorCode()).thenReturn(code);
+        when(error.getApiResponse()).thenReturn(description);
+        when(error.getMessage()).thenReturn(description);
+        return error;
+    }
+}
@@ -0,0 +1,123 @@
+package com.NickSishchuck.StezhkaBot.service;
+
+import com.NickSishchuck.StezhkaBot.StezhkaBotApplication;
+import com.NickSishchuck.StezhkaBot.entity.TextContent;
+import com.NickSishchuck.StezhkaBot.repository.TextContentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TextContentServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final TextContentRepository repository = mock(TextContentRepository.class);
+    private final TextContentService service = new TextContentService(repository, 5000);
+
+    @Test
+    void loadsAndServesTexts() {
+        when(repository.findAll()).thenReturn(List.of(row("WELCOME", "Hi", T0)));
+        service.loadAllTexts();
+
+        assertThat(service.getText("WELCOME")).isEqualTo("Hi");
+        assertThat(service.getText("MISSING")).isEqualTo("MISSING");
+        assertThat(service.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void failedRefreshReachesTheCallerAndKeepsTexts() {
+        when(repository.findAll())
+                .thenReturn(List.of(row("WELCOME", "Hi", T0)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        service.loadAllTexts();
+
+        assertThatThrownBy(service::refreshCache).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(service.getText("WELCOME")).isEqualTo("Hi");
+        assertThat(service.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void pollMergesOnlyChangedValues() {
+        when(repository.findAll()).thenReturn(List.of(row("WELCOME", "Hi", T0), row("FAQ", "faq", T0)));
+        service.loadAllTexts();
+        when(repository.findByUpdatedAtGreaterThanEqual(any()))
+                .thenReturn(List.of(row("WELCOME", "Hi", T0), row("FAQ", "new faq", T0.plusMinutes(1))));
+
+        service.pollChanges();
+
+        assertThat(service.getText("FAQ")).isEqualTo("new faq");
+        assertThat(service.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void fullReloadCannotOverwriteANewerPoll() throws Exception {
+        when(repository.findAll()).thenReturn(List.of(row("WELCOME", "v1", T0)));
+        service.loadAllTexts();
+
+        // The admin's reload reads v1, then stalls before publishing
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch releaseRead = new CountDownLatch(1);
+        when(repository.findAll()).thenAnswer(invocation -> {
+            readStarted.countDown();
+            releaseRead.await(5, TimeUnit.SECONDS);
+            return List.of(row("WELCOME", "v1", T0));
+        });
+        when(repository.findByUpdatedAtGreaterThanEqual(any()))
+                .thenReturn(List.of(row("WELCOME", "v2", T0.plusMinutes(1))));
+
+        CompletableFuture<Void> reload = CompletableFuture.runAsync(service::refreshCache);
+        assertThat(readStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> poll = CompletableFuture.runAsync(service::pollChanges);
+        Thread.sleep(100);
+        releaseRead.countDown();
+        reload.get(5, TimeUnit.SECONDS);
+        poll.get(5, TimeUnit.SECONDS);
+
+        assertThat(service.getText("WELCOME")).isEqualTo("v2");
+    }
+
+    @Test
+    void pollRunsOnTheApplicationScheduler() throws Exception {
+        // @Scheduled does nothing unless the application enables scheduling itself, not via some other bean
+        assertThat(TextContentService.class.getMethod("pollChanges").isAnnotationPresent(Scheduled.class)).isTrue();
+        assertThat(StezhkaBotApplication.class.isAnnotationPresent(EnableScheduling.class)).isTrue();
+    }
+
+    @Test
+    void watermarkDoesNotMoveBack() {
+        when(repository.findAll()).thenReturn(List.of(row("WELCOME", "v1", T0)));
+        service.loadAllTexts();
+        when(repository.findByUpdatedAtGreaterThanEqual(any()))
+                .thenReturn(List.of(row("WELCOME", "v2", T0.plusHours(1))));
+        service.pollChanges();
+
+        // A reload that sees only older rows (e.g. a lagging replica) keeps the newer watermark
+        service.refreshCache();
+        service.pollChanges();
+
+        verify(repository).findByUpdatedAtGreaterThanEqual(T0.minusSeconds(5));
+        verify(repository).findByUpdatedAtGreaterThanEqual(T0.plusHours(1).minusSeconds(5));
+        verify(repository, times(2)).findByUpdatedAtGreaterThanEqual(any());
+    }
+
+    private static TextContent row(String key, String value, LocalDateTime updatedAt) {
+        TextContent content = new TextContent(key, value, null);
+        content.setUpdatedAt(updatedAt);
+        return content;
+    }
+}
@@ -0,0 +1,95 @@
+package com.NickSishchuck.StezhkaBot.state;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ActiveFlowIndexTest {
+
+    private final AtomicInteger selects = new AtomicInteger();
+    private final List<JdbcConversationStateStore> stores = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private JdbcConversationStateStore store;
+    private ActiveFlowIndex index;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")) {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
+                if (sql.startsWith("SELECT state_data")) {
+                    selects.incrementAndGet();
+                }
+                return super.query(sql, rowMapper, args);
+            }
+        };
+        store = newStore();
+        index = new ActiveFlowIndex(store);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(JdbcConversationStateStore::shutdown);
+    }
+
+    @Test
+    void claimAndRelease() {
+        index.claim(1, "enrollment");
+        assertThat(index.owner(1)).isEqualTo("enrollment");
+
+        // A newer claim by another flow survives the old flow's release
+        index.claim(1, "admin_edit");
+        index.release(1, "enrollment");
+        assertThat(index.owner(1)).isEqualTo("admin_edit");
+
+        index.release(1, "admin_edit");
+        assertThat(index.owner(1)).isNull();
+    }
+
+    @Test
+    void mayHaveOwnerNeverQueriesTheDatabase() {
+        index.claim(1, "enrollment");
+        store.flush();
+        ActiveFlowIndex restarted = new ActiveFlowIndex(newStore());
+        selects.set(0);
+
+        // Not cached: the chat counts as owned rather than waiting for the row
+        assertThat(restarted.mayHaveOwner(1)).isTrue();
+        assertThat(restarted.mayHaveOwner(2)).isTrue();
+        assertThat(selects).hasValue(0);
+
+        // Once loaded, the cached answer is used
+        assertThat(restarted.owner(2)).isNull();
+        assertThat(restarted.mayHaveOwner(2)).isFalse();
+        assertThat(selects).hasValue(1);
+    }
+
+    @Test
+    void mayHaveOwnerFollowsLocalClaims() {
+        index.claim(1, "consultation");
+        assertThat(index.mayHaveOwner(1)).isTrue();
+
+        index.release(1, "consultation");
+        assertThat(index.mayHaveOwner(1)).isFalse();
+    }
+
+    private JdbcConversationStateStore newStore() {
+        // Long flush interval and cache TTL: the tests flush by hand
+        JdbcConversationStateStore created = new JdbcConversationStateStore(jdbcTemplate, 60_000, 60_000, 200, true, 24);
+        created.start();
+        stores.add(created);
+        return created;
+    }
+}
@@ -0,0 +1,163 @@
+package com.NickSishchuck.StezhkaBot.state;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcConversationStateStoreTest {
+
+    private static final String NS = "form";
+
+    private final List<JdbcConversationStateStore> stores = new ArrayList<>();
+    private DataSource dataSource;
+    private Runnable duringSelect = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(JdbcConversationStateStore::shutdown);
+    }
+
+    @Test
+    void writesAreBufferedUntilFlush() {
+        JdbcConversationStateStore store = newStore();
+
+        store.put(NS, 1L, "step-1");
+        store.put(NS, 1L, "step-2");
+
+        assertThat(store.get(NS, 1L, String.class)).isEqualTo("step-2");
+        assertThat(store.getPendingCount()).isEqualTo(1);
+        assertThat(rowCount()).isZero();
+
+        store.flush();
+
+        assertThat(store.getPendingCount()).isZero();
+        assertThat(rowCount()).isEqualTo(1);
+        assertThat(newStore().get(NS, 1L, String.class)).isEqualTo("step-2");
+    }
+
+    @Test
+    void removeDeletesTheRowOnFlush() {
+        JdbcConversationStateStore store = newStore();
+        store.put(NS, 1L, "step-1");
+        store.flush();
+
+        store.remove(NS, 1L);
+        assertThat(store.get(NS, 1L, String.class)).isNull();
+        store.flush();
+
+        assertThat(rowCount()).isZero();
+    }
+
+    @Test
+    void loadDoesNotOverwriteAWriteMadeDuringTheQuery() {
+        JdbcConversationStateStore writer = newStore();
+        writer.put(NS, 1L, "old");
+        writer.flush();
+
+        JdbcConversationStateStore store = newStore();
+        duringSelect = () -> store.put(NS, 1L, "new");
+
+        assertThat(store.get(NS, 1L, String.class)).isEqualTo("new");
+        duringSelect = () -> { };
+        assertThat(store.get(NS, 1L, String.class)).isEqualTo("new");
+    }
+
+    @Test
+    void loadDoesNotOverwriteARemoveMadeDuringTheQuery() {
+        JdbcConversationStateStore writer = newStore();
+        writer.put(NS, 1L, "old");
+        writer.flush();
+
+        JdbcConversationStateStore store = newStore();
+        duringSelect = () -> store.remove(NS, 1L);
+
+        assertThat(store.get(NS, 1L, String.class)).isNull();
+        assertThat(store.peek(NS, 1L, String.class, "unknown")).isNull();
+    }
+
+    @Test
+    void peekNeverLoads() {
+        JdbcConversationStateStore writer = newStore();
+        writer.put(NS, 1L, "saved");
+        writer.flush();
+
+        JdbcConversationStateStore store = newStore();
+        duringSelect = () -> {
+            throw new AssertionError("peek must not query");
+        };
+        assertThat(store.peek(NS, 1L, String.class, "unknown")).isEqualTo("unknown");
+
+        duringSelect = () -> { };
+        store.get(NS, 1L, String.class);
+        store.get(NS, 2L, String.class);
+        assertThat(store.peek(NS, 1L, String.class, "unknown")).isEqualTo("saved");
+        assertThat(store.peek(NS, 2L, String.class, "unknown")).isNull();
+    }
+
+    @Test
+    void removeIfIdleKeepsRecentStates() {
+        JdbcConversationStateStore store = newStore();
+        store.put(NS, 1L, "active");
+
+        assertThat(store.removeIfIdle(NS, 1L, Duration.ofMinutes(30))).isFalse();
+        store.flush();
+        assertThat(store.removeIfIdle(NS, 1L, Duration.ofMinutes(30))).isFalse();
+        assertThat(store.removeIfIdle(NS, 1L, Duration.ofMillis(-1000))).isTrue();
+
+        assertThat(rowCount()).isZero();
+        assertThat(store.peek(NS, 1L, String.class, "unknown")).isNull();
+    }
+
+    @Test
+    void unreadableStateIsDropped() {
+        new JdbcTemplate(dataSource).execute("RUNSCRIPT FROM 'classpath:db/conversation_state.sql'");
+        new JdbcTemplate(dataSource).update(
+                "INSERT INTO conversation_state (namespace, chat_id, state_data, updated_at) VALUES (?, ?, ?, NOW())",
+                NS, 1L, new byte[]{1, 2, 3});
+        JdbcConversationStateStore store = newStore();
+
+        assertThat(store.get(NS, 1L, String.class)).isNull();
+        store.flush();
+        assertThat(rowCount()).isZero();
+    }
+
+    private JdbcConversationStateStore newStore() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
+                if (sql.startsWith("SELECT state_data")) {
+                    duringSelect.run();
+                }
+                return super.query(sql, rowMapper, args);
+            }
+        };
+        // Long flush interval and cache TTL: the tests flush by hand
+        JdbcConversationStateStore store = new JdbcConversationStateStore(jdbcTemplate, 60_000, 60_000, 200, true, 24);
+        store.start();
+        stores.add(store);
+        return store;
+    }
+
+    private int rowCount() {
+        Integer count = new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM conversation_state", Integer.class);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,121 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashedTimingWheelTest {
+
+    private static final long TICK = TimeUnit.SECONDS.toNanos(1);
+    private static final long START = -123_456_789L; // nanoTime may be negative
+
+    private final HashedTimingWheel<Long> wheel = new HashedTimingWheel<>(Duration.ofSeconds(1), 8, START);
+
+    @Test
+    void expiresAfterTheDeadlineAndWithinOneTick() {
+        wheel.schedule(1L, START + 2500 * TICK / 1000);
+
+        assertThat(wheel.advance(START + 2 * TICK)).isEmpty();
+        assertThat(wheel.advance(START + 3 * TICK - 1)).isEmpty();
+        assertThat(wheel.advance(START + 3 * TICK)).containsExactly(1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rescheduleReplacesTheDeadline() {
+        wheel.schedule(1L, START + TICK);
+        wheel.schedule(1L, START + 5 * TICK);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START + 4 * TICK)).isEmpty();
+        assertThat(wheel.advance(START + 5 * TICK)).containsExactly(1L);
+    }
+
+    @Test
+    void cancelledKeysNeverExpire() {
+        wheel.schedule(1L, START + TICK);
+        wheel.schedule(2L, START + TICK);
+
+        assertThat(wheel.cancel(1L)).isTrue();
+        assertThat(wheel.cancel(1L)).isFalse();
+        assertThat(wheel.advance(START + 10 * TICK)).containsExactly(2L);
+    }
+
+    @Test
+    void deadlinesBeyondOneTurnWaitForTheirRound() {
+        // 8 buckets: tick 3 and tick 19 share a bucket
+        wheel.schedule(1L, START + 3 * TICK);
+        wheel.schedule(2L, START + 19 * TICK);
+
+        assertThat(wheel.advance(START + 3 * TICK)).containsExactly(1L);
+        assertThat(wheel.advance(START + 18 * TICK)).isEmpty();
+        assertThat(wheel.advance(START + 19 * TICK)).containsExactly(2L);
+    }
+
+    @Test
+    void pastDeadlinesExpireOnTheNextAdvance() {
+        wheel.advance(START + 10 * TICK);
+        wheel.schedule(1L, START + TICK);
+
+        assertThat(wheel.advance(START + 10 * TICK)).isEmpty();
+        assertThat(wheel.advance(START + 11 * TICK)).containsExactly(1L);
+    }
+
+    @Test
+    void longPauseExpiresEverythingDue() {
+        for (long key = 0; key < 100; key++) {
+            wheel.schedule(key, START + key * TICK);
+        }
+
+        assertThat(wheel.advance(START + 1000 * TICK)).hasSize(100);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void matchesABruteForceModel() {
+        Random random = new Random(42);
+        HashedTimingWheel<Long> small = new HashedTimingWheel<>(Duration.ofSeconds(1), 4, START);
+        Map<Long, Long> deadlines = new HashMap<>();
+        long now = START;
+
+        for (int step = 0; step < 5000; step++) {
+            long key = random.nextInt(50);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    long deadline = now + random.nextInt(20_000) * TICK / 1000;
+                    small.schedule(key, deadline);
+                    deadlines.put(key, deadline);
+                }
+                case 1 -> assertThat(small.cancel(key)).isEqualTo(deadlines.remove(key) != null);
+                default -> {
+                    now += random.nextInt(3000) * TICK / 1000;
+                    List<Long> expired = small.advance(now);
+                    for (Long expiredKey : expired) {
+                        long deadline = deadlines.remove(expiredKey);
+                        assertThat(deadline).isLessThanOrEqualTo(now);
+                    }
+                    long tickStart = START + (now - START) / TICK * TICK;
+                    for (long deadline : deadlines.values()) {
+                        // Every tick up to the current one is processed, so nothing due before it is left
+                        assertThat(deadline).isGreaterThanOrEqualTo(tickStart);
+                    }
+                }
+            }
+            assertThat(small.size()).isEqualTo(deadlines.size());
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThatThrownBy(() -> new HashedTimingWheel<>(Duration.ZERO, 8, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HashedTimingWheel<>(Duration.ofSeconds(1), 0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,114 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyRecorderTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void emptySnapshotIsZero() {
+        LatencyRecorder.Snapshot snapshot = new LatencyRecorder().snapshotAndReset();
+
+        assertThat(snapshot.count()).isZero();
+        assertThat(snapshot.p50Millis()).isZero();
+        assertThat(snapshot.p99Millis()).isZero();
+        assertThat(snapshot.maxMicros()).isZero();
+    }
+
+    @Test
+    void reportsPercentilesAndMax() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 100; i++) {
+            recorder.record(i * MS);
+        }
+
+        LatencyRecorder.Snapshot snapshot = recorder.snapshotAndReset();
+        assertThat(snapshot.count()).isEqualTo(100);
+        assertThat(snapshot.p50Millis()).isCloseTo(50, within(50 * 0.07));
+        assertThat(snapshot.p99Millis()).isCloseTo(99, within(99 * 0.07));
+        assertThat(snapshot.maxMillis()).isEqualTo(100.0);
+    }
+
+    @Test
+    void percentilesStayWithinTheBucketErrorAcrossMagnitudes() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            long[] micros = new long[1000];
+            for (int i = 0; i < micros.length; i++) {
+                // From a few microseconds to about a minute
+                micros[i] = (long) Math.pow(10, 1 + random.nextDouble() * 6.8);
+                recorder.record(TimeUnit.MICROSECONDS.toNanos(micros[i]));
+            }
+            Arrays.sort(micros);
+
+            LatencyRecorder.Snapshot snapshot = recorder.snapshotAndReset();
+            double p50 = micros[499] / 1000.0;
+            double p99 = micros[989] / 1000.0;
+            // Reported as the bucket's upper bound: never below the real value, at most one sub-bucket above
+            assertThat(snapshot.p50Millis()).isBetween(p50, p50 * 1.0625 + 0.001);
+            assertThat(snapshot.p99Millis()).isBetween(p99, p99 * 1.0625 + 0.001);
+        }
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 0; i < 10; i++) {
+            recorder.record(TimeUnit.MICROSECONDS.toNanos(7));
+        }
+
+        assertThat(recorder.snapshotAndReset().p50Millis()).isEqualTo(0.007);
+    }
+
+    @Test
+    void negativeAndHugeValuesAreClamped() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(-5);
+        recorder.record(Long.MAX_VALUE);
+
+        LatencyRecorder.Snapshot snapshot = recorder.snapshotAndReset();
+        assertThat(snapshot.count()).isEqualTo(2);
+        assertThat(snapshot.p50Millis()).isZero();
+        assertThat(snapshot.p99Millis()).isGreaterThan(TimeUnit.HOURS.toMillis(2));
+    }
+
+    @Test
+    void snapshotStartsANewInterval() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(500 * MS);
+        recorder.snapshotAndReset();
+        recorder.record(MS);
+
+        LatencyRecorder.Snapshot snapshot = recorder.snapshotAndReset();
+        assertThat(snapshot.count()).isEqualTo(1);
+        assertThat(snapshot.maxMillis()).isEqualTo(1.0);
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    recorder.record(i * 1000L);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(recorder.snapshotAndReset().count()).isEqualTo(40_000);
+    }
+}
@@ -0,0 +1,93 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    @Test
+    void emptySetContainsNothing() {
+        LongHashSet set = LongHashSet.of();
+
+        assertThat(set.isEmpty()).isTrue();
+        assertThat(set.size()).isZero();
+        assertThat(set.contains(0)).isFalse();
+        assertThat(set.contains(1006790528L)).isFalse();
+    }
+
+    @Test
+    void findsTelegramSizedIds() {
+        LongHashSet set = LongHashSet.of(1006790528L, 7_412_903_551L, -1001234567890L);
+
+        assertThat(set.contains(1006790528L)).isTrue();
+        assertThat(set.contains(7_412_903_551L)).isTrue();
+        assertThat(set.contains(-1001234567890L)).isTrue();
+        assertThat(set.contains(1006790529L)).isFalse();
+        assertThat(set.size()).isEqualTo(3);
+    }
+
+    @Test
+    void zeroIsAMemberOnlyWhenAdded() {
+        assertThat(LongHashSet.of(5).contains(0)).isFalse();
+
+        LongHashSet set = LongHashSet.of(0, 5);
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.contains(5)).isTrue();
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    void dropsDuplicatesAndKeepsInsertionOrder() {
+        LongHashSet set = LongHashSet.of(3, 1, 3, 2, 1);
+
+        assertThat(set.size()).isEqualTo(3);
+        assertThat(set.toArray()).containsExactly(3, 1, 2);
+        assertThat(set).hasToString("[3, 1, 2]");
+    }
+
+    @Test
+    void toArrayIsACopy() {
+        LongHashSet set = LongHashSet.of(1, 2);
+        set.toArray()[0] = 42;
+
+        assertThat(set.contains(42)).isFalse();
+        assertThat(set.toArray()).containsExactly(1, 2);
+    }
+
+    @Test
+    void equalityIgnoresOrder() {
+        assertThat(LongHashSet.of(1, 2, 3)).isEqualTo(LongHashSet.of(3, 2, 1));
+        assertThat(LongHashSet.of(1, 2, 3)).hasSameHashCodeAs(LongHashSet.of(3, 2, 1));
+        assertThat(LongHashSet.of(1, 2)).isNotEqualTo(LongHashSet.of(1, 3));
+        assertThat(LongHashSet.of(1, 2)).isNotEqualTo(LongHashSet.of(1, 2, 3));
+    }
+
+    @Test
+    void agreesWithHashSetOnRandomContents() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int size = random.nextInt(64);
+            long[] values = new long[size];
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < size; i++) {
+                // A narrow range forces duplicates and collisions
+                values[i] = random.nextBoolean() ? random.nextInt(100) : random.nextLong();
+                expected.add(values[i]);
+            }
+            LongHashSet set = LongHashSet.of(values);
+
+            assertThat(set.size()).isEqualTo(expected.size());
+            for (long value : expected) {
+                assertThat(set.contains(value)).isTrue();
+            }
+            for (long probe = -10; probe < 110; probe++) {
+                assertThat(set.contains(probe)).as("round %d, probe %d", round, probe).isEqualTo(expected.contains(probe));
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MenuBuilderTest {
+
+    @Test
+    void buildsRowsInOrder() {
+        InlineKeyboardMarkup keyboard = new MenuBuilder()
+                .addButton("A", "a").addButton("B", "b")
+                .addRow()
+                .addButton("C", "c")
+                .build();
+
+        assertThat(keyboard.getKeyboard()).hasSize(2);
+        assertThat(keyboard.getKeyboard().get(0)).extracting(InlineKeyboardButton::getCallbackData).containsExactly("a", "b");
+        assertThat(keyboard.getKeyboard().get(1)).extracting(InlineKeyboardButton::getCallbackData).containsExactly("c");
+    }
+
+    @Test
+    void frozenKeyboardEqualsTheRegularOne() {
+        InlineKeyboardMarkup regular = twoRows().build();
+        InlineKeyboardMarkup frozen = twoRows().buildFrozen();
+
+        assertThat(frozen).isEqualTo(regular);
+        assertThat(frozen.getKeyboard().get(0)).isInstanceOf(InlineKeyboardRow.class);
+    }
+
+    @Test
+    void frozenKeyboardCannotBeChanged() {
+        InlineKeyboardMarkup frozen = twoRows().buildFrozen();
+        List<InlineKeyboardRow> rows = frozen.getKeyboard();
+        InlineKeyboardRow row = rows.get(0);
+        InlineKeyboardButton button = InlineKeyboardButton.builder().text("X").callbackData("x").build();
+
+        assertThatThrownBy(() -> rows.add(new InlineKeyboardRow())).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> rows.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> row.add(button)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> row.set(0, button)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> row.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> row.addAll(List.of(button))).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> row.removeIf(b -> true)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> row.sort(null)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(row::clear).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> row.subList(0, 1).clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> {
+            Iterator<InlineKeyboardButton> iterator = row.iterator();
+            iterator.next();
+            iterator.remove();
+        }).isInstanceOf(UnsupportedOperationException.class);
+
+        assertThat(row).extracting(InlineKeyboardButton::getCallbackData).containsExactly("a", "b");
+    }
+
+    @Test
+    void frozenKeyboardDoesNotFollowTheBuilder() {
+        MenuBuilder builder = twoRows();
+        InlineKeyboardMarkup frozen = builder.buildFrozen();
+        builder.addButton("D", "d").build();
+
+        assertThat(frozen.getKeyboard()).hasSize(2);
+    }
+
+    @Test
+    void registryRejectsDuplicateScreens() {
+        KeyboardRegistry registry = new KeyboardRegistry();
+        registry.register("main", twoRows());
+
+        assertThat(registry.get("main")).isSameAs(registry.get("main"));
+        assertThat(registry.getOrRegister("main", MenuBuilder::new)).isSameAs(registry.get("main"));
+        assertThatThrownBy(() -> registry.register("main", twoRows())).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> registry.get("other")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MenuBuilder twoRows() {
+        return new MenuBuilder()
+                .addButton("A", "a").addButton("B", "b")
+                .addRow()
+                .addButton("C", "c");
+    }
+}
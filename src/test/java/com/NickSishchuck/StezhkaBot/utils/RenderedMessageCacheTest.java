@@ -0,0 +1,70 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RenderedMessageCacheTest {
+
+    private final RenderedMessageCache cache = new RenderedMessageCache(100);
+
+    @Test
+    void sameContentIsUnchanged() {
+        InlineKeyboardMarkup keyboard = keyboard("back_main");
+        cache.remember(1L, 10, "Hello", keyboard, null);
+
+        assertThat(cache.isUnchanged(1L, 10, "Hello", keyboard, null)).isTrue();
+        assertThat(cache.isUnchanged(1L, 10, "Hello", keyboard("back_main"), null)).isTrue();
+    }
+
+    @Test
+    void anyDifferenceIsAChange() {
+        InlineKeyboardMarkup keyboard = keyboard("back_main");
+        cache.remember(1L, 10, "Hello", keyboard, null);
+
+        assertThat(cache.isUnchanged(1L, 10, "Hello!", keyboard, null)).isFalse();
+        assertThat(cache.isUnchanged(1L, 10, "Hello", keyboard("main"), null)).isFalse();
+        assertThat(cache.isUnchanged(1L, 10, "Hello", null, null)).isFalse();
+        assertThat(cache.isUnchanged(1L, 10, "Hello", keyboard, "MarkdownV2")).isFalse();
+        assertThat(cache.isUnchanged(1L, 11, "Hello", keyboard, null)).isFalse();
+        assertThat(cache.isUnchanged(2L, 10, "Hello", keyboard, null)).isFalse();
+    }
+
+    @Test
+    void textsWithTheSameHashAndLengthAreDifferent() {
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        cache.remember(1L, 10, "Aa", null, null);
+
+        assertThat(cache.isUnchanged(1L, 10, "BB", null, null)).isFalse();
+    }
+
+    @Test
+    void keyboardEditKeepsTheText() {
+        cache.remember(1L, 10, "Hello", keyboard("a"), null);
+        cache.rememberKeyboard(1L, 10, keyboard("b"));
+        cache.rememberKeyboard(2L, 20, keyboard("b"));
+
+        assertThat(cache.isUnchanged(1L, 10, "Hello", keyboard("b"), null)).isTrue();
+        assertThat(cache.isUnchanged(2L, 20, null, keyboard("b"), null)).isFalse();
+    }
+
+    @Test
+    void forgetAndEvictionDropEntries() {
+        RenderedMessageCache small = new RenderedMessageCache(2);
+        small.remember(1L, 1, "one", null, null);
+        small.remember(1L, 2, "two", null, null);
+        small.isUnchanged(1L, 1, "one", null, null);
+        small.remember(1L, 3, "three", null, null);
+
+        assertThat(small.isUnchanged(1L, 1, "one", null, null)).isTrue();
+        assertThat(small.isUnchanged(1L, 2, "two", null, null)).isFalse();
+
+        small.forget(1L, 1);
+        assertThat(small.isUnchanged(1L, 1, "one", null, null)).isFalse();
+    }
+
+    private static InlineKeyboardMarkup keyboard(String callback) {
+        return new MenuBuilder().addButton("⬅️ Назад", callback).build();
+    }
+}
@@ -0,0 +1,170 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowRateLimiterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void refusesOnceTheLimitIsReachedInsideTheWindow() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(3, Duration.ofMinutes(60));
+
+        assertThat(limiter.tryAcquire(1, NOW)).isTrue();
+        assertThat(limiter.tryAcquire(1, NOW + MINUTE)).isTrue();
+        assertThat(limiter.isLimited(1, NOW + MINUTE)).isFalse();
+        assertThat(limiter.tryAcquire(1, NOW + 2 * MINUTE)).isTrue();
+
+        assertThat(limiter.count(1, NOW + 2 * MINUTE)).isEqualTo(3);
+        assertThat(limiter.isLimited(1, NOW + 2 * MINUTE)).isTrue();
+        assertThat(limiter.tryAcquire(1, NOW + 3 * MINUTE)).isFalse();
+        assertThat(limiter.count(1, NOW + 3 * MINUTE)).isEqualTo(3);
+    }
+
+    @Test
+    void windowSlidesOneEventAtATime() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(2, Duration.ofMinutes(10));
+        limiter.tryAcquire(1, NOW);
+        limiter.tryAcquire(1, NOW + 5 * MINUTE);
+
+        // The first event leaves the window exactly one window after it happened
+        assertThat(limiter.tryAcquire(1, NOW + 10 * MINUTE - 1)).isFalse();
+        assertThat(limiter.count(1, NOW + 10 * MINUTE)).isEqualTo(1);
+        assertThat(limiter.tryAcquire(1, NOW + 10 * MINUTE)).isTrue();
+
+        // Only the second event has left by now, so the freed slot is the only one
+        assertThat(limiter.tryAcquire(1, NOW + 15 * MINUTE)).isTrue();
+        assertThat(limiter.tryAcquire(1, NOW + 15 * MINUTE)).isFalse();
+        assertThat(limiter.count(1, NOW + 25 * MINUTE)).isZero();
+    }
+
+    @Test
+    void usersAreLimitedIndependently() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(1, Duration.ofMinutes(1));
+
+        assertThat(limiter.tryAcquire(1, NOW)).isTrue();
+        assertThat(limiter.tryAcquire(2, NOW)).isTrue();
+        assertThat(limiter.tryAcquire(1, NOW)).isFalse();
+        assertThat(limiter.isLimited(3, NOW)).isFalse();
+        assertThat(limiter.count(3, NOW)).isZero();
+    }
+
+    @Test
+    void evictsOnlyIdleUsers() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(2, Duration.ofMinutes(1));
+        limiter.tryAcquire(1, NOW);
+
+        assertThat(limiter.evictIfIdle(1, NOW + MINUTE - 1)).isFalse();
+        assertThat(limiter.count(1, NOW + MINUTE - 1)).isEqualTo(1);
+        assertThat(limiter.evictIfIdle(1, NOW + MINUTE)).isTrue();
+        assertThat(limiter.evictIfIdle(1, NOW + MINUTE)).isFalse();
+        assertThat(limiter.evictIfIdle(42, NOW)).isFalse();
+
+        assertThat(limiter.tryAcquire(1, NOW + MINUTE)).isTrue();
+        assertThat(limiter.count(1, NOW + MINUTE)).isEqualTo(1);
+    }
+
+    @Test
+    void releasedEventFreesItsSlot() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(2, Duration.ofMinutes(60));
+        limiter.tryAcquire(1, NOW);
+        limiter.tryAcquire(1, NOW + MINUTE);
+
+        assertThat(limiter.release(1, NOW + MINUTE)).isTrue();
+        assertThat(limiter.count(1, NOW + MINUTE)).isEqualTo(1);
+        assertThat(limiter.tryAcquire(1, NOW + 2 * MINUTE)).isTrue();
+        assertThat(limiter.tryAcquire(1, NOW + 2 * MINUTE)).isFalse();
+
+        assertThat(limiter.release(1, NOW + 5 * MINUTE)).isFalse();
+        assertThat(limiter.release(2, NOW)).isFalse();
+    }
+
+    @Test
+    void releaseKeepsTheOldestEventsInTheRing() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(3, Duration.ofMinutes(10));
+        limiter.tryAcquire(1, NOW);
+        limiter.tryAcquire(1, NOW + MINUTE);
+        limiter.tryAcquire(1, NOW + 2 * MINUTE);
+
+        // Releasing a middle event must not let the next one overwrite the oldest
+        assertThat(limiter.release(1, NOW + MINUTE)).isTrue();
+        assertThat(limiter.tryAcquire(1, NOW + 3 * MINUTE)).isTrue();
+        assertThat(limiter.count(1, NOW + 3 * MINUTE)).isEqualTo(3);
+        assertThat(limiter.tryAcquire(1, NOW + 3 * MINUTE)).isFalse();
+
+        // The first event still leaves the window first
+        assertThat(limiter.count(1, NOW + 10 * MINUTE)).isEqualTo(2);
+        assertThat(limiter.tryAcquire(1, NOW + 10 * MINUTE)).isTrue();
+        assertThat(limiter.tryAcquire(1, NOW + 10 * MINUTE)).isFalse();
+    }
+
+    @Test
+    void keepsEveryUserAcrossResizesAndRemovals() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(1, Duration.ofMinutes(1));
+        int users = 10_000;
+        for (long user = 1; user <= users; user++) {
+            assertThat(limiter.tryAcquire(user, NOW)).isTrue();
+        }
+
+        // Remove every other user, then every remaining one must still be found behind the shifted entries
+        for (long user = 2; user <= users; user += 2) {
+            assertThat(limiter.evictIfIdle(user, NOW + MINUTE)).isTrue();
+        }
+        for (long user = 1; user <= users; user++) {
+            assertThat(limiter.count(user, NOW)).as("user %d", user).isEqualTo(user % 2 == 1 ? 1 : 0);
+        }
+    }
+
+    @Test
+    void concurrentSubmissionsNeverExceedTheLimit() throws InterruptedException {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(3, Duration.ofMinutes(60));
+        int threads = 8;
+        int users = 50;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int round = 0; round < 100; round++) {
+                    for (long user = 1; user <= users; user++) {
+                        if (limiter.tryAcquire(user, NOW)) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(granted.get()).isEqualTo(3 * users);
+        for (long user = 1; user <= users; user++) {
+            assertThat(limiter.count(user, NOW)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThatThrownBy(() -> new SlidingWindowRateLimiter(0, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SlidingWindowRateLimiter(1, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
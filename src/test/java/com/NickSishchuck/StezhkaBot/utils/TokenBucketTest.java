@@ -0,0 +1,106 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenRefillsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(20, Duration.ofMinutes(1), 3);
+        long now = 1_000 * SECOND;
+
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isEqualTo(3 * SECOND);
+
+        assertThat(bucket.tryAcquire(now + 3 * SECOND - 1)).isEqualTo(1);
+        assertThat(bucket.tryAcquire(now + 3 * SECOND)).isZero();
+        assertThat(bucket.tryAcquire(now + 3 * SECOND)).isEqualTo(3 * SECOND);
+    }
+
+    @Test
+    void refusedAttemptsDoNotConsume() {
+        TokenBucket bucket = new TokenBucket(1, Duration.ofSeconds(1), 1);
+
+        assertThat(bucket.tryAcquire(0)).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryAcquire(SECOND / 2)).isEqualTo(SECOND / 2);
+        }
+        assertThat(bucket.tryAcquire(SECOND)).isZero();
+    }
+
+    @Test
+    void delayAndIdleDoNotTakeTokens() {
+        TokenBucket bucket = new TokenBucket(1, Duration.ofSeconds(1), 2);
+        long now = -5 * SECOND; // nanoTime may be negative
+
+        assertThat(bucket.isIdle(now)).isTrue();
+        assertThat(bucket.delay(now)).isZero();
+
+        bucket.tryAcquire(now);
+        bucket.tryAcquire(now);
+        assertThat(bucket.delay(now)).isEqualTo(SECOND);
+        assertThat(bucket.delay(now)).isEqualTo(SECOND);
+        assertThat(bucket.isIdle(now + SECOND)).isFalse();
+        assertThat(bucket.isIdle(now + 2 * SECOND)).isTrue();
+    }
+
+    @Test
+    void longIdlePeriodRefillsOnlyUpToBurst() {
+        TokenBucket bucket = new TokenBucket(10, Duration.ofSeconds(1), 2);
+        bucket.tryAcquire(0);
+
+        long later = 3600 * SECOND;
+        assertThat(bucket.tryAcquire(later)).isZero();
+        assertThat(bucket.tryAcquire(later)).isZero();
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, Duration.ofHours(1), 50);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire(0) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(granted).hasValue(50);
+    }
+
+    @Test
+    void rejectsNonPositiveArguments() {
+        assertThatThrownBy(() -> new TokenBucket(0, Duration.ofSeconds(1), 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, Duration.ofSeconds(1), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
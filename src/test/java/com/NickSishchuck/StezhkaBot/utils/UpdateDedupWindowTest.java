@@ -0,0 +1,86 @@
+package com.NickSishchuck.StezhkaBot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateDedupWindowTest {
+
+    @Test
+    void acceptsEachIdOnce() {
+        UpdateDedupWindow window = new UpdateDedupWindow(64);
+
+        assertThat(window.markSeen(100)).isTrue();
+        assertThat(window.markSeen(100)).isFalse();
+        assertThat(window.markSeen(101)).isTrue();
+        assertThat(window.getHighest()).isEqualTo(101);
+    }
+
+    @Test
+    void acceptsIdsArrivingOutOfOrderInsideTheWindow() {
+        UpdateDedupWindow window = new UpdateDedupWindow(64);
+        window.markSeen(110);
+
+        assertThat(window.markSeen(105)).isTrue();
+        assertThat(window.markSeen(105)).isFalse();
+        assertThat(window.markSeen(108)).isTrue();
+        assertThat(window.getHighest()).isEqualTo(110);
+    }
+
+    @Test
+    void treatsIdsThatLeftTheWindowAsSeen() {
+        UpdateDedupWindow window = new UpdateDedupWindow(64);
+        window.markSeen(1000);
+
+        assertThat(window.markSeen(1000 - 64)).isFalse();
+        assertThat(window.markSeen(1000 - 63)).isTrue();
+    }
+
+    @Test
+    void slidingClearsTheReusedBits() {
+        UpdateDedupWindow window = new UpdateDedupWindow(64);
+        window.markSeen(10);
+        window.markSeen(20);
+
+        // 74 and 84 share their bits with 10 and 20
+        assertThat(window.markSeen(80)).isTrue();
+        assertThat(window.markSeen(74)).isTrue();
+        assertThat(window.markSeen(84)).isTrue();
+        assertThat(window.markSeen(20)).isFalse();
+
+        // A jump past the whole window starts from a clean bitmap
+        assertThat(window.markSeen(10_000)).isTrue();
+        assertThat(window.markSeen(10_000 - 10)).isTrue();
+    }
+
+    @Test
+    void dropsEverythingAtOrBelowTheFloor() {
+        UpdateDedupWindow window = new UpdateDedupWindow(64);
+        window.advanceFloor(500);
+        window.advanceFloor(400);
+
+        assertThat(window.markSeen(500)).isFalse();
+        assertThat(window.markSeen(450)).isFalse();
+        assertThat(window.markSeen(501)).isTrue();
+    }
+
+    @Test
+    void resetForgetsIdsAndFloor() {
+        UpdateDedupWindow window = new UpdateDedupWindow(64);
+        window.advanceFloor(500);
+        window.markSeen(600);
+
+        window.reset();
+
+        assertThat(window.getHighest()).isEqualTo(-1);
+        assertThat(window.markSeen(3)).isTrue();
+        assertThat(window.markSeen(600)).isTrue();
+    }
+
+    @Test
+    void roundsCapacityUpToWholeWords() {
+        assertThat(new UpdateDedupWindow(1).getCapacity()).isEqualTo(64);
+        assertThat(new UpdateDedupWindow(4096).getCapacity()).isEqualTo(4096);
+        assertThat(new UpdateDedupWindow(4097).getCapacity()).isEqualTo(4160);
+    }
+}
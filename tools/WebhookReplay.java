@@ -0,0 +1,225 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline harness for webhook mode (no dependencies, run with `java tools/WebhookReplay.java ...`).
+ *
+ * fake-api: a stand-in Bot API that accepts every call, so the bot can run without Telegram.
+ *   java tools/WebhookReplay.java fake-api --port 8081
+ *   then start the bot with bot.ingress.mode=webhook, bot.webhook.register=false,
+ *   bot.webhook.secret-token=local-secret and bot.telegram.api-url=http://localhost:8081
+ *
+ * replay: POST recorded updates (one JSON update per line) to the webhook and report latencies.
+ *   java tools/WebhookReplay.java replay --url http://localhost:8443/telegram --secret local-secret \
+ *       --file tools/sample-updates.jsonl --repeat 1000 --chats 200 --concurrency 32 --rate 500
+ *   Every POST gets a fresh update_id; with --chats N the recorded chat/user id 100000001 is spread
+ *   over N chats so the dispatcher sees parallel traffic.
+ */
+public class WebhookReplay {
+
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final String RECORDED_CHAT_ID = "100000001";
+    private static final Pattern UPDATE_ID = Pattern.compile("\"update_id\"\\s*:\\s*\\d+");
+    private static final Pattern CHAT_ID = Pattern.compile("\"chat_id\"\\s*:\\s*\"?(-?\\d+)");
+    private static final Pattern METHOD = Pattern.compile("/bot[^/]+/(\\w+)");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Map<String, String> options = parseOptions(Arrays.copyOfRange(args, 1, args.length));
+        switch (args[0]) {
+            case "fake-api" -> fakeApi(Integer.parseInt(options.getOrDefault("port", "8081")));
+            case "replay" -> replay(options);
+            default -> usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("usage: java tools/WebhookReplay.java fake-api [--port 8081]");
+        System.out.println("       java tools/WebhookReplay.java replay --url URL --secret TOKEN --file FILE"
+                + " [--repeat 1] [--chats 1] [--concurrency 8] [--rate 0 (per second, 0 = unlimited)]");
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    // ---- fake Bot API ----
+
+    private static void fakeApi(int port) throws IOException {
+        AtomicInteger messageIds = new AtomicInteger(1000);
+        Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", exchange -> {
+            String body = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+            Matcher method = METHOD.matcher(exchange.getRequestURI().getPath());
+            String name = method.find() ? method.group(1) : "unknown";
+            calls.computeIfAbsent(name, key -> new LongAdder()).increment();
+
+            String result;
+            if (name.equalsIgnoreCase("sendMessage") || name.equalsIgnoreCase("editMessageText")) {
+                Matcher chat = CHAT_ID.matcher(body);
+                String chatId = chat.find() ? chat.group(1) : RECORDED_CHAT_ID;
+                result = "{\"message_id\":" + messageIds.incrementAndGet()
+                        + ",\"date\":" + System.currentTimeMillis() / 1000
+                        + ",\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"},\"text\":\"ok\"}";
+            } else if (name.equalsIgnoreCase("getMe")) {
+                result = "{\"id\":1,\"is_bot\":true,\"first_name\":\"Fake\",\"username\":\"fake_bot\"}";
+            } else {
+                result = "true";
+            }
+            respond(exchange, 200, "{\"ok\":true,\"result\":" + result + "}");
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        System.out.println("Fake Bot API on http://localhost:" + port);
+
+        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
+            StringBuilder line = new StringBuilder("calls:");
+            calls.forEach((name, count) -> line.append(' ').append(name).append('=').append(count.sum()));
+            System.out.println(line);
+        }, 10, 10, TimeUnit.SECONDS);
+    }
+
+    // ---- replay ----
+
+    private static void replay(Map<String, String> options) throws Exception {
+        URI url = URI.create(require(options, "url"));
+        String secret = require(options, "secret");
+        List<String> recorded = Files.readAllLines(Path.of(require(options, "file"))).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+        int chats = Integer.parseInt(options.getOrDefault("chats", "1"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "0"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(concurrency))
+                .build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        // update_id is a 32-bit number; seeding from the clock keeps ids of later runs apart
+        AtomicLong updateId = new AtomicLong(System.currentTimeMillis() / 1000 % 1_000_000 * 1000);
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService senders = Executors.newFixedThreadPool(concurrency);
+
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long started = System.nanoTime();
+        long next = started;
+        int total = 0;
+        for (int round = 0; round < repeat; round++) {
+            for (String update : recorded) {
+                String chatId = String.valueOf(Long.parseLong(RECORDED_CHAT_ID) + (total % chats));
+                String body = UPDATE_ID.matcher(update.replace(RECORDED_CHAT_ID, chatId))
+                        .replaceFirst("\"update_id\":" + updateId.incrementAndGet());
+                total++;
+
+                if (intervalNanos > 0) {
+                    next += intervalNanos;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                inFlight.acquire();
+                senders.execute(() -> {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpRequest request = HttpRequest.newBuilder(url)
+                                .timeout(Duration.ofSeconds(10))
+                                .header("Content-Type", "application/json")
+                                .header(SECRET_HEADER, secret)
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+                        latencies.add(System.nanoTime() - sent);
+                    } catch (IOException | InterruptedException e) {
+                        statuses.computeIfAbsent(-1, key -> new LongAdder()).increment();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        inFlight.acquire(concurrency);
+        senders.shutdown();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%d updates in %.1f s (%.0f/s)%n", total, seconds, total / seconds);
+        System.out.println("status: " + statuses + " (-1 = connection error)");
+        if (sorted.length > 0) {
+            System.out.printf("ack latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    sorted[sorted.length - 1] / 1e6);
+        }
+        System.exit(0);
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static String require(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("--" + name + " is required");
+        }
+        return value;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}